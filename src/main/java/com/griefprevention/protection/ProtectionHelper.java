@@ -68,7 +68,7 @@ public final class ProtectionHelper
         if (playerData.ignoreClaims) return null;
 
         // Get claim at location, respecting 3D boundaries (ignoreHeight = false)
-        Claim claim = GriefPrevention.instance.dataStore.getClaimAt(location, false, playerData.lastClaim);
+        Claim claim = GriefPrevention.instance.dataStore.getClaimAtFor(location, false, playerData);
 
         // If there is no claim here, use wilderness rules.
         if (claim == null)
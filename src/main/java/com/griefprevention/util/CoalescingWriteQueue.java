@@ -0,0 +1,378 @@
+package com.griefprevention.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * A write-behind queue that hands values to a writer on a single background thread.
+ *
+ * <p>Only the latest value submitted for a key is kept, so a key that is submitted repeatedly while waiting is
+ * written once. Values should therefore be complete, self-contained snapshots prepared by the submitting thread.
+ * A write waits at most the configured delay after the oldest pending submission before the writer picks it up,
+ * which bounds how stale storage can be. Keys are written in the order they were first submitted.
+ *
+ * <p>Once the queue is {@link #close() closed}, remaining values are written before {@code close} returns and
+ * any later submissions are written immediately on the submitting thread. A delay of zero or less disables the
+ * background thread entirely.
+ *
+ * <p>This queue is thread-safe. The writer is only ever called by one thread at a time, and an optional batch
+ * callback runs on the same thread after every batch, i.e. to sync everything the batch wrote at once.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class CoalescingWriteQueue<K, V> implements AutoCloseable
+{
+
+    private final @NotNull String name;
+    private final @NotNull BiConsumer<K, V> writer;
+    private final @NotNull Runnable batchWritten;
+    private final long maxDelayNanos;
+
+    private final Object lock = new Object();
+    private LinkedHashMap<K, V> pending = new LinkedHashMap<>();
+    private Map<K, V> writing;
+    private long oldestPendingNanos;
+    private long submitted;
+    private long written;
+    private long flushTarget;
+    private boolean closed;
+    private Thread thread;
+
+    private long writeCount;
+    private long coalescedCount;
+    private long totalWriteNanos;
+    private long lastLatencyNanos;
+
+    /**
+     * Construct a new queue.
+     *
+     * @param name the name of the background thread
+     * @param writer the writer that persists each key's latest value
+     * @param maxDelayMillis the longest a submission may wait before it is written
+     */
+    public CoalescingWriteQueue(@NotNull String name, @NotNull BiConsumer<K, V> writer, long maxDelayMillis)
+    {
+        this(name, writer, () -> {}, maxDelayMillis);
+    }
+
+    /**
+     * Construct a new queue with a callback run after each batch of writes.
+     *
+     * @param name the name of the background thread
+     * @param writer the writer that persists each key's latest value
+     * @param batchWritten the callback run after each batch, including single writes made once closed
+     * @param maxDelayMillis the longest a submission may wait before it is written
+     */
+    public CoalescingWriteQueue(
+            @NotNull String name,
+            @NotNull BiConsumer<K, V> writer,
+            @NotNull Runnable batchWritten,
+            long maxDelayMillis)
+    {
+        this.name = name;
+        this.writer = writer;
+        this.batchWritten = batchWritten;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        if (maxDelayMillis <= 0) this.closed = true;
+    }
+
+    /**
+     * Submit a value to be written, replacing any value still waiting for the same key.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public void submit(@NotNull K key, @NotNull V value)
+    {
+        synchronized (this.lock)
+        {
+            if (!this.closed)
+            {
+                if (this.pending.isEmpty()) this.oldestPendingNanos = System.nanoTime();
+                if (this.pending.put(key, value) != null) this.coalescedCount++;
+                this.submitted++;
+
+                if (this.thread == null)
+                {
+                    this.thread = new Thread(this::run, this.name);
+                    this.thread.setDaemon(true);
+                    this.thread.start();
+                }
+                this.lock.notifyAll();
+                return;
+            }
+
+            // Don't overtake a batch the writer is still finishing after being closed.
+            awaitWritten(this.submitted);
+        }
+
+        long start = System.nanoTime();
+        this.writer.accept(key, value);
+        this.batchWritten.run();
+        recordWrites(1, System.nanoTime() - start, start);
+    }
+
+    /**
+     * Get the value waiting or being written for a key without waiting for the writer.
+     *
+     * @param key the key
+     * @return the latest value submitted for the key, or null if it has been written
+     */
+    public @Nullable V peek(@NotNull K key)
+    {
+        synchronized (this.lock)
+        {
+            V value = this.pending.get(key);
+            if (value == null && this.writing != null) value = this.writing.get(key);
+            return value;
+        }
+    }
+
+    /**
+     * If a key is waiting or being written, write everything submitted so far and wait for it to finish, i.e.
+     * before reading the key back from storage.
+     *
+     * @param key the key
+     */
+    public void flush(@NotNull K key)
+    {
+        synchronized (this.lock)
+        {
+            if (!this.pending.containsKey(key) && (this.writing == null || !this.writing.containsKey(key))) return;
+        }
+        flush();
+    }
+
+    /**
+     * Write everything submitted so far without waiting out the delay, and wait for it to finish.
+     */
+    public void flush()
+    {
+        synchronized (this.lock)
+        {
+            // The writer can't wait on itself.
+            if (Thread.currentThread() == this.thread) return;
+
+            long target = this.submitted;
+            this.flushTarget = Math.max(this.flushTarget, target);
+            this.lock.notifyAll();
+            awaitWritten(target);
+        }
+    }
+
+    /**
+     * Write everything still waiting and stop the background thread. Later submissions are written immediately.
+     */
+    @Override
+    public void close()
+    {
+        Thread writerThread;
+        synchronized (this.lock)
+        {
+            this.closed = true;
+            this.lock.notifyAll();
+            writerThread = this.thread;
+        }
+
+        if (writerThread == null || writerThread == Thread.currentThread()) return;
+
+        boolean interrupted = false;
+        while (writerThread.isAlive())
+        {
+            try
+            {
+                writerThread.join();
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Get the number of keys waiting to be written.
+     *
+     * @return the number of pending keys
+     */
+    public int getQueueDepth()
+    {
+        synchronized (this.lock)
+        {
+            return this.pending.size();
+        }
+    }
+
+    /**
+     * Get the number of values written so far.
+     *
+     * @return the number of writes
+     */
+    public long getWriteCount()
+    {
+        synchronized (this.lock)
+        {
+            return this.writeCount;
+        }
+    }
+
+    /**
+     * Get the number of submissions that replaced a value still waiting for the same key, i.e. writes saved.
+     *
+     * @return the number of coalesced submissions
+     */
+    public long getCoalescedCount()
+    {
+        synchronized (this.lock)
+        {
+            return this.coalescedCount;
+        }
+    }
+
+    /**
+     * Get how long the writer spends on a single value on average.
+     *
+     * @return the average write time in nanoseconds
+     */
+    public long getAverageWriteNanos()
+    {
+        synchronized (this.lock)
+        {
+            return this.writeCount == 0 ? 0 : this.totalWriteNanos / this.writeCount;
+        }
+    }
+
+    /**
+     * Get how long the oldest value of the most recent batch waited between submission and being written.
+     *
+     * @return the latency in nanoseconds
+     */
+    public long getLastLatencyNanos()
+    {
+        synchronized (this.lock)
+        {
+            return this.lastLatencyNanos;
+        }
+    }
+
+    private void run()
+    {
+        while (true)
+        {
+            Map<K, V> batch;
+            long sequence;
+            long oldest;
+            synchronized (this.lock)
+            {
+                if (!awaitBatch()) return;
+
+                batch = this.pending;
+                sequence = this.submitted;
+                oldest = this.oldestPendingNanos;
+                this.pending = new LinkedHashMap<>();
+                this.writing = batch;
+            }
+
+            long start = System.nanoTime();
+            for (Map.Entry<K, V> entry : batch.entrySet())
+            {
+                runReporting(() -> this.writer.accept(entry.getKey(), entry.getValue()));
+            }
+            runReporting(this.batchWritten);
+            long elapsed = System.nanoTime() - start;
+
+            synchronized (this.lock)
+            {
+                this.written = sequence;
+                this.writing = null;
+                recordWrites(batch.size(), elapsed, oldest);
+                this.lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wait until a batch is due. Must be called holding the lock.
+     *
+     * @return false if the queue is closed and drained
+     */
+    private boolean awaitBatch()
+    {
+        while (true)
+        {
+            try
+            {
+                if (this.pending.isEmpty())
+                {
+                    if (this.closed) return false;
+                    this.lock.wait();
+                    continue;
+                }
+
+                if (this.closed || this.flushTarget > this.written) return true;
+
+                long remaining = this.oldestPendingNanos + this.maxDelayNanos - System.nanoTime();
+                if (remaining <= 0) return true;
+                TimeUnit.NANOSECONDS.timedWait(this.lock, remaining);
+            }
+            catch (InterruptedException ignored)
+            {
+                // Only close stops the writer, so pending values are never abandoned.
+            }
+        }
+    }
+
+    /**
+     * Wait until everything up to a submission has been written. Must be called holding the lock.
+     */
+    private void awaitWritten(long target)
+    {
+        boolean interrupted = false;
+        while (this.written < target && this.thread != null && this.thread.isAlive())
+        {
+            try
+            {
+                this.lock.wait(100);
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Run a task, reporting rather than propagating failures so the writer keeps running.
+     */
+    private static void runReporting(Runnable task)
+    {
+        try
+        {
+            task.run();
+        }
+        catch (RuntimeException e)
+        {
+            Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, e);
+        }
+    }
+
+    private void recordWrites(int count, long elapsedNanos, long oldestNanos)
+    {
+        synchronized (this.lock)
+        {
+            this.writeCount += count;
+            this.totalWriteNanos += elapsedNanos;
+            this.lastLatencyNanos = System.nanoTime() - oldestNanos;
+        }
+    }
+
+}
@@ -0,0 +1,321 @@
+package com.griefprevention.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.LongFunction;
+
+/**
+ * A hash map from primitive {@code long} keys to objects.
+ *
+ * <p>Keys are stored unboxed in a flat array and resolved with linear probing, so lookups neither
+ * allocate nor chase entry nodes the way a {@code Map<Long, V>} does. Values may not be {@code null};
+ * an empty value slot marks a free bucket.
+ *
+ * <p>This map is not thread-safe.
+ *
+ * @param <V> the type of mapped values
+ */
+public class LongObjectHashMap<V>
+{
+
+    private static final int MINIMUM_CAPACITY = 4;
+    private static final float LOAD_FACTOR = 0.5F;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * Construct a new empty map.
+     */
+    public LongObjectHashMap()
+    {
+        this(16);
+    }
+
+    /**
+     * Construct a new empty map sized to hold the expected number of entries without resizing.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public LongObjectHashMap(int expectedSize)
+    {
+        if (expectedSize < 0) throw new IllegalArgumentException("Expected size may not be negative!");
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Construct a new map containing the same entries as another map.
+     *
+     * @param other the map to copy
+     */
+    public LongObjectHashMap(@NotNull LongObjectHashMap<? extends V> other)
+    {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.mask = other.mask;
+        this.size = other.size;
+        this.resizeThreshold = other.resizeThreshold;
+    }
+
+    /**
+     * Get the number of entries in the map.
+     *
+     * @return the number of entries
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Check whether the map contains no entries.
+     *
+     * @return true if the map is empty
+     */
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * Get the value mapped to a key.
+     *
+     * @param key the key
+     * @return the mapped value or {@code null} if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V get(long key)
+    {
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        int slot = hash(key) & this.mask;
+        Object value;
+        while ((value = values[slot]) != null)
+        {
+            if (keys[slot] == key) return (V) value;
+            slot = (slot + 1) & this.mask;
+        }
+        return null;
+    }
+
+    /**
+     * Check whether a key is present in the map.
+     *
+     * @param key the key
+     * @return true if the key is mapped to a value
+     */
+    public boolean containsKey(long key)
+    {
+        return get(key) != null;
+    }
+
+    /**
+     * Map a key to a value, replacing any existing mapping.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the previously mapped value or {@code null} if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V put(long key, @NotNull V value)
+    {
+        Objects.requireNonNull(value, "Values may not be null!");
+
+        int slot = hash(key) & this.mask;
+        Object existing;
+        while ((existing = this.values[slot]) != null)
+        {
+            if (this.keys[slot] == key)
+            {
+                this.values[slot] = value;
+                return (V) existing;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        if (++this.size > this.resizeThreshold)
+        {
+            rehash(this.values.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Get the value mapped to a key, computing and inserting it if the key is not present.
+     *
+     * @param key the key
+     * @param mappingFunction the function used to create a missing value
+     * @return the existing or newly mapped value
+     */
+    public @NotNull V computeIfAbsent(long key, @NotNull LongFunction<? extends V> mappingFunction)
+    {
+        V value = get(key);
+        if (value == null)
+        {
+            value = Objects.requireNonNull(mappingFunction.apply(key), "Computed values may not be null!");
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Remove the mapping for a key.
+     *
+     * @param key the key
+     * @return the previously mapped value or {@code null} if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V remove(long key)
+    {
+        int slot = hash(key) & this.mask;
+        Object existing;
+        while ((existing = this.values[slot]) != null)
+        {
+            if (this.keys[slot] == key)
+            {
+                --this.size;
+                shiftKeys(slot);
+                return (V) existing;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return null;
+    }
+
+    /**
+     * Remove all entries from the map.
+     */
+    public void clear()
+    {
+        if (this.size == 0) return;
+        Arrays.fill(this.values, null);
+        this.size = 0;
+    }
+
+    /**
+     * Perform an action for every entry in the map. The map must not be modified during iteration.
+     *
+     * @param action the action to perform
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(@NotNull EntryConsumer<? super V> action)
+    {
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        for (int slot = 0; slot < values.length; slot++)
+        {
+            Object value = values[slot];
+            if (value != null) action.accept(keys[slot], (V) value);
+        }
+    }
+
+    /**
+     * Close the gap left by a removed entry by moving back any following entries
+     * that would otherwise become unreachable from their ideal slot.
+     *
+     * @param slot the slot that was emptied
+     */
+    private void shiftKeys(int slot)
+    {
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        while (true)
+        {
+            int last = slot;
+            slot = (slot + 1) & this.mask;
+            while (true)
+            {
+                if (values[slot] == null)
+                {
+                    values[last] = null;
+                    return;
+                }
+                int ideal = hash(keys[slot]) & this.mask;
+                // Stop at the first entry whose ideal slot does not lie cyclically within (last, slot].
+                if (last <= slot ? last >= ideal || ideal > slot : last >= ideal && ideal > slot) break;
+                slot = (slot + 1) & this.mask;
+            }
+            keys[last] = keys[slot];
+            values[last] = values[slot];
+        }
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        allocate(capacity);
+
+        for (int oldSlot = 0; oldSlot < oldValues.length; oldSlot++)
+        {
+            Object value = oldValues[oldSlot];
+            if (value == null) continue;
+            long key = oldKeys[oldSlot];
+            int slot = hash(key) & this.mask;
+            while (this.values[slot] != null)
+            {
+                slot = (slot + 1) & this.mask;
+            }
+            this.keys[slot] = key;
+            this.values[slot] = value;
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize)
+    {
+        long needed = (long) Math.ceil(expectedSize / (double) LOAD_FACTOR) + 1;
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity < needed && capacity < (1 << 30))
+        {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(long key)
+    {
+        // Murmur3 64-bit finalizer; spreads packed coordinate keys across the table.
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * An action performed on a map entry.
+     *
+     * @param <V> the type of mapped values
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V>
+    {
+
+        /**
+         * Perform the action.
+         *
+         * @param key the entry key
+         * @param value the entry value
+         */
+        void accept(long key, @NotNull V value);
+
+    }
+
+}
@@ -328,7 +328,7 @@ public class BlockEventHandler implements Listener
         {
             // Allow players with container trust to place books in lecterns
             PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
-            Claim claim = this.dataStore.getClaimAt(block.getLocation(), true, playerData.lastClaim);
+            Claim claim = this.dataStore.getClaimAtFor(block.getLocation(), true, playerData);
             if (block.getType() == Material.LECTERN && placeEvent.getBlockReplacedState().getType() == Material.LECTERN)
             {
                 if (claim != null)
@@ -350,7 +350,7 @@ public class BlockEventHandler implements Listener
 
         //if the block is being placed within or under an existing claim
         PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
-        Claim claim = this.dataStore.getClaimAt(block.getLocation(), true, playerData.lastClaim);
+        Claim claim = this.dataStore.getClaimAtFor(block.getLocation(), true, playerData);
 
         //If block is a chest, don't allow a DoubleChest to form across a claim boundary
         denyConnectingDoubleChestsAcrossClaimBoundary(claim, block, player);
@@ -464,7 +464,7 @@ public class BlockEventHandler implements Listener
             }
 
             //check to see if this chest is in a claim, and warn when it isn't
-            if (GriefPrevention.instance.config_claims_preventTheft && this.dataStore.getClaimAt(block.getLocation(), false, playerData.lastClaim) == null)
+            if (GriefPrevention.instance.config_claims_preventTheft && this.dataStore.getClaimAtFor(block.getLocation(), false, playerData) == null)
             {
                 GriefPrevention.sendMessage(player, TextMode.Warn, Messages.UnprotectedChestWarning);
             }
@@ -722,7 +722,7 @@ public class BlockEventHandler implements Listener
             // Also consider child subdivisions (including 2D subclaims) which are not in the chunk map.
             if (!claim.children.isEmpty())
             {
-                for (Claim child : claim.children)
+                for (Claim child : dataStore.getSubdivisionsIntersecting(claim, boundingBox))
                 {
                     if (!child.inDataStore) continue;
                     // Skip the initiating child claim to avoid redundant self-conflict checks.
@@ -0,0 +1,57 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * GriefPrevention permission nodes checked often enough, i.e. for every protected action or every chat recipient,
+ * that their results are held in {@link PlayerData} instead of asking the permission plugin each time.
+ *
+ * <p>Cached results are recalculated on join, on world change and every
+ * {@code GriefPrevention.Advanced.PermissionRefreshSeconds}. Addons that change a player's permissions can apply
+ * the change immediately with {@link PlayerData#invalidatePermissions()}.
+ */
+public enum CachedPermission
+{
+    IgnoreClaims("griefprevention.ignoreclaims"),
+    AdminClaims("griefprevention.adminclaims"),
+    DeleteClaims("griefprevention.deleteclaims"),
+    Spam("griefprevention.spam"),
+    NotIgnorable("griefprevention.notignorable"),
+    EavesdropSoftMute("griefprevention.eavesdrop.softmute"),
+    EavesdropPrivateMessages("griefprevention.eavesdrop.pm"),
+    EavesdropImmune("griefprevention.eavesdropimmune"),
+    PreMovementChat("griefprevention.premovementchat");
+
+    private final String node;
+
+    CachedPermission(@NotNull String node)
+    {
+        this.node = node;
+    }
+
+    /**
+     * Get the permission node.
+     *
+     * @return the permission node
+     */
+    public @NotNull String getNode()
+    {
+        return this.node;
+    }
+
+    /**
+     * Check whether a player has this permission, using their cached result where possible.
+     *
+     * @param player the player
+     * @return true if the player has the permission
+     */
+    public boolean isGrantedTo(@NotNull Player player)
+    {
+        GriefPrevention plugin = GriefPrevention.instance;
+        if (plugin == null || plugin.dataStore == null) return player.hasPermission(this.node);
+
+        return plugin.dataStore.getPlayerData(player.getUniqueId()).hasPermission(player, this);
+    }
+
+}
@@ -0,0 +1,617 @@
+package me.ryanhamshire.GriefPrevention;
+
+import com.griefprevention.util.LongObjectHashMap;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A per-world index of the claims overlapping each chunk.
+ *
+ * <p>Top level claims and 3D subdivisions are indexed; regular subdivisions are found through their parent's
+ * {@link Entry#children}. Chunk coordinates are packed into a primitive {@code long} so lookups do not box keys,
+ * and claims in different worlds never share a bucket.
+ *
+ * <p>The index is copy-on-write. Readers load the current version through a single volatile read and never block.
+ * Every indexed claim is captured as an immutable {@link Entry}, so a reader sees either all or none of a change
+ * to a claim's bounds. Writers copy the buckets they touch and publish a new version; they must hold the owning
+ * {@link DataStore}'s monitor. Several changes can be published together by wrapping them in
+ * {@link #beginBatch()} and {@link #endBatch()}.
+ */
+class ChunkClaimIndex
+{
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private volatile Map<UUID, LongObjectHashMap<Bucket>> published = Collections.emptyMap();
+    // Incremented before each version is published.
+    private volatile long epoch;
+
+    // Writer state, guarded by the owning DataStore's monitor.
+    private final Map<Claim, Entry> indexed = new IdentityHashMap<>();
+    private @Nullable Map<UUID, LongObjectHashMap<Bucket>> pending;
+    private final Set<UUID> copiedWorlds = new HashSet<>();
+    private int batchDepth;
+
+    /**
+     * Pack chunk coordinates into a single key.
+     *
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @return the packed key
+     */
+    static long chunkKey(int chunkX, int chunkZ)
+    {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get the entries indexed in a chunk. The returned array is shared and must not be modified.
+     *
+     * @param world the world
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @return the indexed entries or {@code null} if there are none
+     */
+    @Nullable Entry[] get(@NotNull World world, int chunkX, int chunkZ)
+    {
+        Bucket bucket = getBucket(world, chunkX, chunkZ);
+        return bucket == null ? null : bucket.entries;
+    }
+
+    /**
+     * Get the bucket indexed for a chunk.
+     *
+     * @param world the world
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @return the bucket or {@code null} if no claims overlap the chunk
+     */
+    @Nullable Bucket getBucket(@NotNull World world, int chunkX, int chunkZ)
+    {
+        LongObjectHashMap<Bucket> chunks = this.published.get(world.getUID());
+        if (chunks == null) return null;
+        return chunks.get(chunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Find the published entry for a top level claim.
+     *
+     * @param claim the claim
+     * @return the entry or {@code null} if the claim is not indexed at its current location
+     */
+    @Nullable Entry find(@NotNull Claim claim)
+    {
+        Location corner = claim.lesserBoundaryCorner;
+        World world = corner.getWorld();
+        if (world == null) return null;
+
+        Bucket bucket = getBucket(world, corner.getBlockX() >> 4, corner.getBlockZ() >> 4);
+        if (bucket == null) return null;
+
+        for (Entry entry : bucket.topLevelEntries)
+        {
+            if (entry.claim == claim) return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Get the current mutation epoch. The epoch changes whenever a claim is added, removed or resized.
+     *
+     * @return the current epoch
+     */
+    long getEpoch()
+    {
+        return this.epoch;
+    }
+
+    /**
+     * Get the mutation epoch of a chunk. The epoch changes whenever a claim overlapping the chunk is added,
+     * removed or resized, so a result derived from the chunk's claims stays valid while its epoch is unchanged.
+     *
+     * @param world the world
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @return the chunk's epoch, or 0 if no claims overlap the chunk
+     */
+    long getChunkEpoch(@NotNull World world, int chunkX, int chunkZ)
+    {
+        Bucket bucket = getBucket(world, chunkX, chunkZ);
+        return bucket == null ? 0 : bucket.epoch;
+    }
+
+    /**
+     * Get the claims indexed in a chunk.
+     *
+     * @param world the world
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @return the indexed claims
+     */
+    @NotNull List<Claim> getClaims(@NotNull World world, int chunkX, int chunkZ)
+    {
+        Entry[] entries = get(world, chunkX, chunkZ);
+        if (entries == null) return Collections.emptyList();
+
+        List<Claim> claims = new ArrayList<>(entries.length);
+        for (Entry entry : entries)
+        {
+            claims.add(entry.claim);
+        }
+        return claims;
+    }
+
+    /**
+     * Get the claims indexed at chunk coordinates in any world.
+     *
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @return the indexed claims
+     */
+    @NotNull List<Claim> getClaimsInAllWorlds(int chunkX, int chunkZ)
+    {
+        long key = chunkKey(chunkX, chunkZ);
+        List<Claim> claims = new ArrayList<>();
+        for (LongObjectHashMap<Bucket> chunks : this.published.values())
+        {
+            Bucket bucket = chunks.get(key);
+            if (bucket == null) continue;
+
+            for (Entry entry : bucket.entries)
+            {
+                claims.add(entry.claim);
+            }
+        }
+        return claims;
+    }
+
+    /**
+     * Get the top level claims whose columns intersect an area, as currently seen by writers. Unlike the other
+     * queries this includes changes in an unpublished batch, so the caller must hold the owning
+     * {@link DataStore}'s monitor.
+     *
+     * @param world the world
+     * @param minX the minimum block X coordinate
+     * @param minZ the minimum block Z coordinate
+     * @param maxX the maximum block X coordinate
+     * @param maxZ the maximum block Z coordinate
+     * @return the intersecting top level claims, each listed once
+     */
+    @NotNull List<Claim> getTopLevelClaimsIntersecting(@NotNull World world, int minX, int minZ, int maxX, int maxZ)
+    {
+        Map<UUID, LongObjectHashMap<Bucket>> worlds = this.pending != null ? this.pending : this.published;
+        LongObjectHashMap<Bucket> chunks = worlds.get(world.getUID());
+        if (chunks == null) return Collections.emptyList();
+
+        int minChunkX = minX >> 4;
+        int minChunkZ = minZ >> 4;
+        List<Claim> claims = new ArrayList<>();
+        for (int chunkX = minChunkX; chunkX <= maxX >> 4; chunkX++)
+        {
+            for (int chunkZ = minChunkZ; chunkZ <= maxZ >> 4; chunkZ++)
+            {
+                Bucket bucket = chunks.get(chunkKey(chunkX, chunkZ));
+                if (bucket == null) continue;
+
+                for (Entry entry : bucket.topLevelEntries)
+                {
+                    if (entry.minX > maxX || entry.maxX < minX || entry.minZ > maxZ || entry.maxZ < minZ) continue;
+
+                    // Claims span several chunks; only report each from the first chunk it shares with the area.
+                    if (chunkX != Math.max(entry.minX >> 4, minChunkX) || chunkZ != Math.max(entry.minZ >> 4, minChunkZ)) continue;
+
+                    claims.add(entry.claim);
+                }
+            }
+        }
+        return claims;
+    }
+
+    /**
+     * Start collecting changes to publish together. Batches may be nested; changes are published when the
+     * outermost batch ends.
+     */
+    void beginBatch()
+    {
+        this.batchDepth++;
+    }
+
+    /**
+     * End a batch started with {@link #beginBatch()}.
+     */
+    void endBatch()
+    {
+        if (this.batchDepth <= 0) throw new IllegalStateException("No batch in progress!");
+        if (--this.batchDepth == 0) publish();
+    }
+
+    /**
+     * Index a claim at its current bounds, replacing any previously indexed version.
+     *
+     * @param claim the claim
+     */
+    void add(@NotNull Claim claim)
+    {
+        unindex(claim);
+
+        World world = claim.lesserBoundaryCorner.getWorld();
+        if (world != null)
+        {
+            Entry entry = new Entry(claim);
+            LongObjectHashMap<Bucket> chunks = editableWorld(world.getUID());
+            for (int chunkX = entry.minX >> 4; chunkX <= entry.maxX >> 4; chunkX++)
+            {
+                for (int chunkZ = entry.minZ >> 4; chunkZ <= entry.maxZ >> 4; chunkZ++)
+                {
+                    long key = chunkKey(chunkX, chunkZ);
+                    Bucket bucket = chunks.get(key);
+                    Entry[] entries = bucket == null ? NO_ENTRIES : bucket.entries;
+                    Entry[] updated = new Entry[entries.length + 1];
+                    System.arraycopy(entries, 0, updated, 0, entries.length);
+                    updated[entries.length] = entry;
+                    chunks.put(key, new Bucket(chunkX, chunkZ, updated, this.epoch + 1));
+                }
+            }
+            this.indexed.put(claim, entry);
+        }
+
+        publishIfIdle();
+    }
+
+    /**
+     * Remove a claim from the index.
+     *
+     * @param claim the claim
+     */
+    void remove(@NotNull Claim claim)
+    {
+        unindex(claim);
+        publishIfIdle();
+    }
+
+    /**
+     * Re-capture a claim that is already indexed, i.e. after its bounds or subdivisions changed.
+     *
+     * @param claim the claim
+     */
+    void refresh(@NotNull Claim claim)
+    {
+        if (this.indexed.containsKey(claim))
+        {
+            add(claim);
+        }
+    }
+
+    /**
+     * Replace the entire index with the given top level claims and their 3D subdivisions.
+     *
+     * @param topLevelClaims the top level claims
+     */
+    void rebuild(@NotNull Collection<Claim> topLevelClaims)
+    {
+        beginBatch();
+        try
+        {
+            this.indexed.clear();
+            this.pending = new HashMap<>();
+            this.copiedWorlds.clear();
+            for (Claim claim : topLevelClaims)
+            {
+                add(claim);
+                for (Claim child : claim.children)
+                {
+                    if (child.is3D()) add(child);
+                }
+            }
+        }
+        finally
+        {
+            endBatch();
+        }
+    }
+
+    private void unindex(@NotNull Claim claim)
+    {
+        Entry entry = this.indexed.remove(claim);
+        if (entry == null) return;
+
+        LongObjectHashMap<Bucket> chunks = editableWorld(entry.worldId);
+        for (int chunkX = entry.minX >> 4; chunkX <= entry.maxX >> 4; chunkX++)
+        {
+            for (int chunkZ = entry.minZ >> 4; chunkZ <= entry.maxZ >> 4; chunkZ++)
+            {
+                long key = chunkKey(chunkX, chunkZ);
+                Bucket bucket = chunks.get(key);
+                if (bucket == null) continue;
+
+                Entry[] entries = bucket.entries;
+                int index = -1;
+                for (int i = 0; i < entries.length; i++)
+                {
+                    if (entries[i] == entry)
+                    {
+                        index = i;
+                        break;
+                    }
+                }
+                if (index < 0) continue;
+
+                // If nothing's left, remove this chunk's bucket.
+                if (entries.length == 1)
+                {
+                    chunks.remove(key);
+                    continue;
+                }
+
+                Entry[] updated = new Entry[entries.length - 1];
+                System.arraycopy(entries, 0, updated, 0, index);
+                System.arraycopy(entries, index + 1, updated, index, entries.length - index - 1);
+                chunks.put(key, new Bucket(chunkX, chunkZ, updated, this.epoch + 1));
+            }
+        }
+    }
+
+    private @NotNull LongObjectHashMap<Bucket> editableWorld(@NotNull UUID worldId)
+    {
+        if (this.pending == null)
+        {
+            this.pending = new HashMap<>(this.published);
+        }
+
+        LongObjectHashMap<Bucket> chunks = this.pending.get(worldId);
+        if (this.copiedWorlds.add(worldId))
+        {
+            // Published maps are never modified; copy on first write in this version.
+            chunks = chunks == null ? new LongObjectHashMap<>() : new LongObjectHashMap<>(chunks);
+            this.pending.put(worldId, chunks);
+        }
+        return chunks;
+    }
+
+    private void publishIfIdle()
+    {
+        if (this.batchDepth == 0) publish();
+    }
+
+    private void publish()
+    {
+        if (this.pending == null) return;
+        this.epoch++;
+        this.published = this.pending;
+        this.pending = null;
+        this.copiedWorlds.clear();
+    }
+
+    /**
+     * The immutable set of entries overlapping a single chunk. A bucket is replaced whenever a change touches
+     * its chunk, so derived data such as the {@link ClaimColumnGrid} is only recomputed for touched chunks.
+     */
+    static final class Bucket
+    {
+
+        final int chunkX;
+        final int chunkZ;
+        final Entry[] entries;
+        // The epoch of the version this bucket was published in.
+        final long epoch;
+        // Entries for top level claims only; 3D subdivisions are reached through their parent's tree.
+        final Entry[] topLevelEntries;
+        private volatile @Nullable ClaimColumnGrid columnGrid;
+
+        private Bucket(int chunkX, int chunkZ, Entry[] entries, long epoch)
+        {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.entries = entries;
+            this.epoch = epoch;
+
+            int topLevelCount = 0;
+            for (Entry entry : entries)
+            {
+                if (entry.topLevel) topLevelCount++;
+            }
+            if (topLevelCount == entries.length)
+            {
+                this.topLevelEntries = entries;
+            }
+            else
+            {
+                Entry[] topLevel = new Entry[topLevelCount];
+                int index = 0;
+                for (Entry entry : entries)
+                {
+                    if (entry.topLevel) topLevel[index++] = entry;
+                }
+                this.topLevelEntries = topLevel;
+            }
+        }
+
+        /**
+         * Get the column grid for this chunk, building it on first use.
+         *
+         * @return the column grid
+         */
+        @NotNull ClaimColumnGrid getColumnGrid()
+        {
+            ClaimColumnGrid grid = this.columnGrid;
+            if (grid == null)
+            {
+                // Concurrent readers may both build the grid; the results are identical.
+                grid = new ClaimColumnGrid(this.chunkX << 4, this.chunkZ << 4, this.entries);
+                this.columnGrid = grid;
+            }
+            return grid;
+        }
+
+    }
+
+    /**
+     * An immutable capture of an indexed claim's bounds.
+     */
+    static final class Entry
+    {
+
+        final @NotNull Claim claim;
+        final @NotNull UUID worldId;
+        final int minX;
+        final int minY;
+        final int minZ;
+        final int maxX;
+        final int maxY;
+        final int maxZ;
+        final int area;
+        final boolean is3D;
+        final boolean topLevel;
+        // All subdivisions, followed by the same subdivisions split into regular and 3D.
+        final Entry[] children;
+        final Entry[] flatChildren;
+        final @Nullable SubdivisionTree subdivisions3D;
+
+        private Entry(@NotNull Claim claim)
+        {
+            this(claim, true);
+        }
+
+        private Entry(@NotNull Claim claim, boolean withChildren)
+        {
+            Location lesser = claim.lesserBoundaryCorner;
+            Location greater = claim.greaterBoundaryCorner;
+            this.claim = claim;
+            this.worldId = lesser.getWorld().getUID();
+            this.minX = Math.min(lesser.getBlockX(), greater.getBlockX());
+            this.minY = Math.min(lesser.getBlockY(), greater.getBlockY());
+            this.minZ = Math.min(lesser.getBlockZ(), greater.getBlockZ());
+            this.maxX = Math.max(lesser.getBlockX(), greater.getBlockX());
+            this.maxY = Math.max(lesser.getBlockY(), greater.getBlockY());
+            this.maxZ = Math.max(lesser.getBlockZ(), greater.getBlockZ());
+            this.area = claim.getArea();
+            this.is3D = claim.is3D();
+            this.topLevel = claim.parent == null;
+
+            if (withChildren && this.topLevel && !claim.children.isEmpty())
+            {
+                List<Claim> claimChildren = claim.children;
+                Entry[] childEntries = new Entry[claimChildren.size()];
+                int count3D = 0;
+                for (int i = 0; i < childEntries.length; i++)
+                {
+                    childEntries[i] = new Entry(claimChildren.get(i), false);
+                    if (childEntries[i].is3D) count3D++;
+                }
+                this.children = childEntries;
+
+                Entry[] flat = new Entry[childEntries.length - count3D];
+                Entry[] stacked = new Entry[count3D];
+                int[] stackedIndices = new int[count3D];
+                int flatCount = 0;
+                int stackedCount = 0;
+                for (int i = 0; i < childEntries.length; i++)
+                {
+                    if (childEntries[i].is3D)
+                    {
+                        stackedIndices[stackedCount] = i;
+                        stacked[stackedCount++] = childEntries[i];
+                    }
+                    else
+                    {
+                        flat[flatCount++] = childEntries[i];
+                    }
+                }
+                this.flatChildren = flat;
+                this.subdivisions3D = count3D == 0 ? null : new SubdivisionTree(stacked, stackedIndices);
+            }
+            else
+            {
+                this.children = NO_ENTRIES;
+                this.flatChildren = NO_ENTRIES;
+                this.subdivisions3D = null;
+            }
+        }
+
+        /**
+         * Check whether the captured bounds contain a block. Mirrors
+         * {@link Claim#contains(Location, boolean, boolean)}.
+         *
+         * @param world the world of the block
+         * @param x the block X coordinate
+         * @param y the block Y coordinate
+         * @param z the block Z coordinate
+         * @param ignoreHeight whether to skip vertical containment checks
+         * @param excludeSubdivisions whether a block inside a subdivision is excluded
+         * @return true if the block is contained
+         */
+        boolean contains(@NotNull World world, int x, int y, int z, boolean ignoreHeight, boolean excludeSubdivisions)
+        {
+            if (!containsColumn(x, z)) return false;
+
+            if (!ignoreHeight)
+            {
+                if (this.is3D)
+                {
+                    if (!containsY(y)) return false;
+                }
+                // Only top-level claims span full height
+                else if (this.topLevel && (y < world.getMinHeight() || y > world.getMaxHeight()))
+                {
+                    return false;
+                }
+            }
+
+            if (excludeSubdivisions)
+            {
+                for (Entry child : this.flatChildren)
+                {
+                    if (child.contains(world, x, y, z, ignoreHeight, false)) return false;
+                }
+
+                // For 3D subdivisions, always check height boundaries
+                if (this.subdivisions3D != null && this.subdivisions3D.anyContains(x, y, z)) return false;
+            }
+
+            return true;
+        }
+
+        /**
+         * Check whether the captured bounds contain a column, ignoring height.
+         *
+         * @param x the block X coordinate
+         * @param z the block Z coordinate
+         * @return true if the column is contained
+         */
+        boolean containsColumn(int x, int z)
+        {
+            return x >= this.minX && x <= this.maxX && z >= this.minZ && z <= this.maxZ;
+        }
+
+        /**
+         * Check whether a Y coordinate is within the captured bounds. Non-3D claims accept any Y.
+         *
+         * @param y the Y coordinate
+         * @return true if the Y coordinate is contained
+         */
+        boolean containsY(int y)
+        {
+            return !this.is3D || (y >= this.minY && y <= this.maxY);
+        }
+
+        int getYRange()
+        {
+            return this.maxY - this.minY;
+        }
+
+    }
+
+}
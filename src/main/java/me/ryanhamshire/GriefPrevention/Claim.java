@@ -19,7 +19,6 @@
  package me.ryanhamshire.GriefPrevention;
 
  import me.ryanhamshire.GriefPrevention.events.ClaimPermissionCheckEvent;
- import me.ryanhamshire.GriefPrevention.util.BoundingBox;
  import org.bukkit.Bukkit;
  import org.bukkit.Chunk;
  import org.bukkit.Location;
@@ -38,7 +37,6 @@
  import java.util.ArrayList;
  import java.util.Calendar;
  import java.util.Date;
- import java.util.HashMap;
  import java.util.List;
  import java.util.Map;
  import java.util.Objects;
@@ -56,6 +54,12 @@
      //for subdivisions, if is3D is true, the Y boundaries are respected
      Location lesserBoundaryCorner;
      Location greaterBoundaryCorner;
+
+     //primitive copy of the boundaries above, so hot paths don't read or copy Locations
+     //refreshed by refreshBounds() whenever the corners change
+     private World boundsWorld;
+     private int minX, minY, minZ, maxX, maxY, maxZ;
+     private int area;
      
      //whether this claim respects Y boundaries (for 3D subdivisions)
      private boolean is3D = false;
@@ -74,7 +78,10 @@
      public ArrayList<String> managers = new ArrayList<>();
  
      //permissions for this claim, see ClaimPermission class
-     private HashMap<String, ClaimPermission> playerIDToClaimPermissionMap = new HashMap<>();
+     private ClaimPermissionTable permissionTable = new ClaimPermissionTable();
+
+     //recent permission decisions, so repeated actions don't rerun the trust checks
+     private final PermissionDecisionCache permissionDecisions = new PermissionDecisionCache();
  
      //whether or not this claim is in the data store
      //if a claim instance isn't in the data store, it isn't "active" - players can't interract with it
@@ -163,6 +170,7 @@
         if (!this.is3D) {
             this.lesserBoundaryCorner.setY(Math.min(this.lesserBoundaryCorner.getBlockY(), this.greaterBoundaryCorner.getBlockY()));
         }
+        this.refreshBounds();
 
         //owner
         this.ownerID = ownerID;
@@ -204,10 +212,11 @@
          this.modifiedDate = claim.modifiedDate;
          this.lesserBoundaryCorner = claim.lesserBoundaryCorner.clone();
          this.greaterBoundaryCorner = claim.greaterBoundaryCorner.clone();
+         this.refreshBounds();
          this.id = claim.id;
          this.ownerID = claim.ownerID;
          this.managers = new ArrayList<>(claim.managers);
-         this.playerIDToClaimPermissionMap = new HashMap<>(claim.playerIDToClaimPermissionMap);
+         this.permissionTable = new ClaimPermissionTable(claim.permissionTable);
          this.inDataStore = false; //since it's a copy of a claim, not in datastore!
          this.areExplosivesAllowed = claim.areExplosivesAllowed;
          this.parent = claim.parent;
@@ -217,30 +226,84 @@
          this.is3D = claim.is3D;
      }
  
-     //measurements.  all measurements are in blocks
-     public int getArea()
+     //recaptures the primitive boundaries after the corners change
+     //must be called whenever either corner is replaced or moved
+     void refreshBounds()
      {
+         Location lesser = this.lesserBoundaryCorner;
+         Location greater = this.greaterBoundaryCorner;
+         this.boundsWorld = lesser.getWorld();
+         this.minX = Math.min(lesser.getBlockX(), greater.getBlockX());
+         this.minY = Math.min(lesser.getBlockY(), greater.getBlockY());
+         this.minZ = Math.min(lesser.getBlockZ(), greater.getBlockZ());
+         this.maxX = Math.max(lesser.getBlockX(), greater.getBlockX());
+         this.maxY = Math.max(lesser.getBlockY(), greater.getBlockY());
+         this.maxZ = Math.max(lesser.getBlockZ(), greater.getBlockZ());
+
          try
          {
-             int dX = Math.addExact(Math.subtractExact(greaterBoundaryCorner.getBlockX(), lesserBoundaryCorner.getBlockX()), 1);
-             int dZ = Math.addExact(Math.subtractExact(greaterBoundaryCorner.getBlockZ(), lesserBoundaryCorner.getBlockZ()), 1);
-             return Math.multiplyExact(dX, dZ);
+             int dX = Math.addExact(Math.subtractExact(greater.getBlockX(), lesser.getBlockX()), 1);
+             int dZ = Math.addExact(Math.subtractExact(greater.getBlockZ(), lesser.getBlockZ()), 1);
+             this.area = Math.multiplyExact(dX, dZ);
          }
          catch (ArithmeticException e)
          {
-             // If a claim's area exceeds the max value an int can hold, return max value.
-             return Integer.MAX_VALUE;
+             // If a claim's area exceeds the max value an int can hold, use max value.
+             this.area = Integer.MAX_VALUE;
          }
      }
+
+     //the world the claim is in
+     public @Nullable World getWorld()
+     {
+         return this.boundsWorld;
+     }
+
+     //boundaries in block coordinates, inclusive
+     public int getMinX()
+     {
+         return this.minX;
+     }
+
+     public int getMinY()
+     {
+         return this.minY;
+     }
+
+     public int getMinZ()
+     {
+         return this.minZ;
+     }
+
+     public int getMaxX()
+     {
+         return this.maxX;
+     }
+
+     public int getMaxY()
+     {
+         return this.maxY;
+     }
+
+     public int getMaxZ()
+     {
+         return this.maxZ;
+     }
+
+     //measurements.  all measurements are in blocks
+     public int getArea()
+     {
+         return this.area;
+     }
  
      public int getWidth()
      {
-         return this.greaterBoundaryCorner.getBlockX() - this.lesserBoundaryCorner.getBlockX() + 1;
+         return this.maxX - this.minX + 1;
      }
  
      public int getHeight()
      {
-         return this.greaterBoundaryCorner.getBlockZ() - this.lesserBoundaryCorner.getBlockZ() + 1;
+         return this.maxZ - this.minZ + 1;
      }
  
      public boolean getSubclaimRestrictions()
@@ -251,6 +314,7 @@
      public void setSubclaimRestrictions(boolean inheritNothing)
      {
          this.inheritNothing = inheritNothing;
+         PermissionDecisionCache.invalidateAll();
      }
  
      //distance check for claims, distance in this case is a band around the outside of the claim rather then euclidean distance
@@ -342,7 +406,7 @@
  
          if (level == ClaimPermission.Manage) return this.managers.contains(uuid.toString());
  
-         return level.isGrantedBy(this.playerIDToClaimPermissionMap.get(uuid.toString()));
+         return level.isGrantedBy(this.permissionTable.get(uuid));
      }
  
      public boolean hasExplicitPermission(@NotNull Player player, @NotNull ClaimPermission level)
@@ -364,7 +428,7 @@
          }
  
          // Check permission-based ClaimPermission
-         for (Map.Entry<String, ClaimPermission> stringToPermission : this.playerIDToClaimPermissionMap.entrySet())
+         for (Map.Entry<String, ClaimPermission> stringToPermission : this.permissionTable.otherEntries())
          {
              String node = stringToPermission.getKey();
              // Ensure valid permission format for permissions - [permission.node]
@@ -459,7 +523,7 @@
              @Nullable Supplier<String> denialOverride)
      {
          // Set denial message (if any) using default behavior.
-         Supplier<String> defaultDenial = getDefaultDenial(event.getCheckedPlayer(), event.getCheckedUUID(),
+         Supplier<String> defaultDenial = getCachedDefaultDenial(event.getCheckedPlayer(), event.getCheckedUUID(),
                  event.getRequiredPermission(), event.getTriggeringEvent());
          
          // If permission is denied and a clarifying override is provided, use override.
@@ -472,6 +536,43 @@
          return event.getDenialReason();
      }
  
+     /**
+      * Get the default reason for denial of a ClaimPermission, answering grants from the claim's own data from
+      * {@link PermissionDecisionCache} where possible.
+      *
+      * @param player the Player being checked for permissions
+      * @param uuid the UUID being checked for permissions
+      * @param permission the ClaimPermission required
+      * @param event the Event triggering the permission check
+      * @return the denial reason or null if permission is granted
+      */
+     private @Nullable Supplier<String> getCachedDefaultDenial(
+             @Nullable Player player,
+             @NotNull UUID uuid,
+             @NotNull ClaimPermission permission,
+             @Nullable Event event)
+     {
+         // Farming exceptions depend on the block involved, not just the player.
+         if (permission == ClaimPermission.Build && isFarmingEvent(event))
+             return getDefaultDenial(player, uuid, permission, event);
+
+         Boolean granted = this.permissionDecisions.get(uuid, permission);
+         if (granted == null)
+         {
+             // Without a Player only the claim's data is consulted, and anything it grants the full check grants too.
+             long epoch = PermissionDecisionCache.currentEpoch();
+             Supplier<String> claimDenial = getDefaultDenial(null, uuid, permission, event);
+             this.permissionDecisions.put(uuid, permission, claimDenial == null, epoch);
+             if (claimDenial == null || player == null) return claimDenial;
+         }
+         else if (granted)
+         {
+             return null;
+         }
+
+         return getDefaultDenial(player, uuid, permission, event);
+     }
+
      /**
       * Get the default reason for denial of a ClaimPermission.
       *
@@ -493,11 +594,11 @@
              // Admin claims need adminclaims permission only.
              if (this.isAdminClaim())
              {
-                 if (player.hasPermission("griefprevention.adminclaims")) return null;
+                 if (CachedPermission.AdminClaims.isGrantedTo(player)) return null;
              }
 
              // Anyone with deleteclaims permission can edit non-admin claims at any time.
-             else if (permission == ClaimPermission.Edit && player.hasPermission("griefprevention.deleteclaims"))
+             else if (permission == ClaimPermission.Edit && CachedPermission.DeleteClaims.isGrantedTo(player))
                  return null;
          }
 
@@ -518,7 +619,7 @@
          }
 
          // Check for public permission.
-         if (permission.isGrantedBy(this.playerIDToClaimPermissionMap.get("public"))) return null;
+         if (permission.isGrantedBy(this.permissionTable.getPublic())) return null;
 
          // Special building-only rules.
          if (permission == ClaimPermission.Build)
@@ -531,11 +632,7 @@
              }
 
              // Allow farming crops with container trust.
-             Material material = null;
-             if (event instanceof BlockBreakEvent || event instanceof BlockPlaceEvent)
-                 material = ((BlockEvent) event).getBlock().getType();
-
-             if (material != null && placeableForFarming(material)
+             if (isFarmingEvent(event)
                      && this.getDefaultDenial(player, uuid, ClaimPermission.Inventory, event) == null)
                  return null;
          }
@@ -563,6 +660,13 @@
          };
      }
 
+     //whether the event breaks or places a block that container trust is enough to farm
+     private static boolean isFarmingEvent(@Nullable Event event)
+     {
+         if (!(event instanceof BlockBreakEvent) && !(event instanceof BlockPlaceEvent)) return false;
+         return placeableForFarming(((BlockEvent) event).getBlock().getType());
+     }
+
      /**
       * Check if the {@link Player} has bypass permissions for a {@link ClaimPermission}. Owner-exclusive edit actions
       * require {@code griefprevention.deleteclaims}. All other actions require {@code griefprevention.ignoreclaims}.
@@ -576,9 +680,9 @@
      {
          if (player == null) return false;
 
-         if (permission == ClaimPermission.Edit) return player.hasPermission("griefprevention.deleteclaims");
+         if (permission == ClaimPermission.Edit) return CachedPermission.DeleteClaims.isGrantedTo(player);
 
-         return player.hasPermission("griefprevention.ignoreclaims");
+         return CachedPermission.IgnoreClaims.isGrantedTo(player);
      }
 
      /**
@@ -634,7 +738,7 @@
      {
          if (playerID == null || playerID.isEmpty()) return null;
 
-         return this.playerIDToClaimPermissionMap.get(playerID.toLowerCase());
+         return this.permissionTable.get(playerID.toLowerCase());
      }
 
      //grants a permission for a player or the public
@@ -649,15 +753,18 @@
          else if (permissionLevel == ClaimPermission.Manage)
              this.managers.add(playerID.toLowerCase());
          else
-             this.playerIDToClaimPermissionMap.put(playerID.toLowerCase(), permissionLevel);
+             this.permissionTable.put(playerID.toLowerCase(), permissionLevel);
+
+         this.trustChanged();
      }
 
      //revokes a permission for a player or the public
      public void dropPermission(@NotNull String playerID)
      {
          playerID = playerID.toLowerCase();
-         this.playerIDToClaimPermissionMap.remove(playerID);
+         this.permissionTable.remove(playerID);
          this.managers.remove(playerID);
+         this.trustChanged();
 
          for (Claim child : this.children)
          {
@@ -668,8 +775,9 @@
      //clears all permissions (except owner of course)
      public void clearPermissions()
      {
-         this.playerIDToClaimPermissionMap.clear();
+         this.permissionTable.clear();
          this.managers.clear();
+         this.trustChanged();
 
          for (Claim child : this.children)
          {
@@ -677,27 +785,37 @@
          }
      }
 
+     //keeps cached permission decisions and the data store's reverse trust index in step with claims it manages
+     private void trustChanged()
+     {
+         PermissionDecisionCache.invalidateAll();
+         GriefPrevention plugin = GriefPrevention.instance;
+         if (this.inDataStore && plugin != null && plugin.dataStore != null)
+         {
+             plugin.dataStore.reindexTrust(this);
+         }
+     }
+
      //gets ALL permissions
      //useful for  making copies of permissions during a claim resize and listing all permissions in a claim
      public void getPermissions(ArrayList<String> builders, ArrayList<String> containers, ArrayList<String> accessors, ArrayList<String> managers)
      {
-         //loop through all the entries in the hash map
-         for (Map.Entry<String, ClaimPermission> entry : this.playerIDToClaimPermissionMap.entrySet())
+         //build up a list for each permission level
+         this.permissionTable.forEach((identifier, permission) ->
          {
-             //build up a list for each permission level
-             if (entry.getValue() == ClaimPermission.Build)
+             if (permission == ClaimPermission.Build)
              {
-                 builders.add(entry.getKey());
+                 builders.add(identifier);
              }
-             else if (entry.getValue() == ClaimPermission.Inventory)
+             else if (permission == ClaimPermission.Inventory)
              {
-                 containers.add(entry.getKey());
+                 containers.add(identifier);
              }
              else
              {
-                 accessors.add(entry.getKey());
+                 accessors.add(identifier);
              }
-         }
+         });
 
          //managers are handled a little differently
          managers.addAll(this.managers);
@@ -737,7 +855,8 @@
          return this.ownerID;
      }
      public boolean contains(Location location, boolean ignoreHeight, boolean excludeSubdivisions) {
-         if (!Objects.equals(location.getWorld(), this.lesserBoundaryCorner.getWorld())) {
+         World world = location.getWorld();
+         if (world != this.boundsWorld && !Objects.equals(world, this.boundsWorld)) {
              return false;
          }
 
@@ -745,25 +864,18 @@
          int y = location.getBlockY();
          int z = location.getBlockZ();
 
-         int minX = Math.min(lesserBoundaryCorner.getBlockX(), greaterBoundaryCorner.getBlockX());
-         int maxX = Math.max(lesserBoundaryCorner.getBlockX(), greaterBoundaryCorner.getBlockX());
-         int minZ = Math.min(lesserBoundaryCorner.getBlockZ(), greaterBoundaryCorner.getBlockZ());
-         int maxZ = Math.max(lesserBoundaryCorner.getBlockZ(), greaterBoundaryCorner.getBlockZ());
-
-         if (x < minX || x > maxX || z < minZ || z > maxZ) {
+         if (x < this.minX || x > this.maxX || z < this.minZ || z > this.maxZ) {
              return false;
          }
 
          if (!ignoreHeight) {
              if (this.is3D) {
-                 int minY = Math.min(lesserBoundaryCorner.getBlockY(), greaterBoundaryCorner.getBlockY());
-                 int maxY = Math.max(lesserBoundaryCorner.getBlockY(), greaterBoundaryCorner.getBlockY());
-                 if (y < minY || y > maxY) {
+                 if (y < this.minY || y > this.maxY) {
                      return false;
                  }
              } else if (this.parent == null) { // Only top-level claims span full height
-                 int worldMinY = location.getWorld().getMinHeight();
-                 int worldMaxY = location.getWorld().getMaxHeight();
+                 int worldMinY = world.getMinHeight();
+                 int worldMaxY = world.getMaxHeight();
                  if (y < worldMinY || y > worldMaxY) {
                      return false;
                  }
@@ -791,22 +903,29 @@
             // For non-3D claims, Y boundaries are not enforced, so always return true.
             return true;
         }
-        int minY = Math.min(this.lesserBoundaryCorner.getBlockY(), this.greaterBoundaryCorner.getBlockY());
-        int maxY = Math.max(this.lesserBoundaryCorner.getBlockY(), this.greaterBoundaryCorner.getBlockY());
-        return y >= minY && y <= maxY;
+        return y >= this.minY && y <= this.maxY;
     }
 
     //whether or not two claims overlap
     //used internally to prevent overlaps when creating claims
     boolean overlaps(Claim otherClaim)
     {
-        if (!Objects.equals(this.lesserBoundaryCorner.getWorld(), otherClaim.getLesserBoundaryCorner().getWorld())) return false;
+        if (this.boundsWorld != otherClaim.boundsWorld && !Objects.equals(this.boundsWorld, otherClaim.boundsWorld)) return false;
+
+        if (this.minX > otherClaim.maxX || this.maxX < otherClaim.minX
+                || this.minZ > otherClaim.maxZ || this.maxZ < otherClaim.minZ)
+        {
+            return false;
+        }
 
         // For 3D subclaims, check all axes including Y
         // For 2D claims, ignore Y (only check X/Z)
         // For mixed 2D/3D claims, we need to check Y boundaries properly
-        boolean ignoreY = !this.is3D() && !otherClaim.is3D();
-        return new BoundingBox(this).intersects(new BoundingBox(otherClaim), ignoreY);
+        // 2D claims extend from their lower boundary to the top of the world, as in BoundingBox(Claim)
+        if (!this.is3D() && !otherClaim.is3D()) return true;
+        int thisMaxY = this.is3D() ? this.maxY : this.boundsWorld.getMaxHeight();
+        int otherMaxY = otherClaim.is3D() ? otherClaim.maxY : otherClaim.boundsWorld.getMaxHeight();
+        return this.minY <= otherMaxY && thisMaxY >= otherClaim.minY;
     }
 
      @Deprecated(since = "17.0.0", forRemoval = true)
@@ -0,0 +1,134 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A precomputed 16x16 map from each column of a chunk to its most specific 2D claim.
+ *
+ * <p>Columns are palette-compressed: most chunks are covered by one or two claims, so each column stores a
+ * single byte index into a short list of distinct resolutions. Columns touched by a 3D subdivision cannot be
+ * resolved without a Y coordinate and are marked so lookups fall back to scanning the chunk's entries.
+ */
+final class ClaimColumnGrid
+{
+
+    private final Column[] palette;
+    private final byte[] columns = new byte[256];
+
+    /**
+     * Build the grid for a chunk.
+     *
+     * @param originX the lowest block X coordinate in the chunk
+     * @param originZ the lowest block Z coordinate in the chunk
+     * @param entries the entries overlapping the chunk
+     */
+    ClaimColumnGrid(int originX, int originZ, ChunkClaimIndex.Entry[] entries)
+    {
+        List<Column> palette = new ArrayList<>();
+        Map<Column, Integer> paletteIndices = new HashMap<>();
+        for (int localZ = 0; localZ < 16; localZ++)
+        {
+            for (int localX = 0; localX < 16; localX++)
+            {
+                Column column = resolve(originX + localX, originZ + localZ, entries);
+                Integer index = paletteIndices.get(column);
+                if (index == null)
+                {
+                    index = palette.size();
+                    palette.add(column);
+                    paletteIndices.put(column, index);
+                }
+                this.columns[(localZ << 4) | localX] = index.byteValue();
+            }
+        }
+        this.palette = palette.toArray(new Column[0]);
+    }
+
+    /**
+     * Get the resolution for a column.
+     *
+     * @param x the block X coordinate
+     * @param z the block Z coordinate
+     * @return the column's resolution
+     */
+    @NotNull Column get(int x, int z)
+    {
+        return this.palette[this.columns[((z & 15) << 4) | (x & 15)] & 0xFF];
+    }
+
+    /**
+     * Resolve a column the same way {@link DataStore#getClaimAt} would without any 3D subdivisions present.
+     */
+    private static @NotNull Column resolve(int x, int z, ChunkClaimIndex.Entry[] entries)
+    {
+        ChunkClaimIndex.Entry smallest = null;
+        ChunkClaimIndex.Entry smallestUncovered = null;
+
+        for (ChunkClaimIndex.Entry entry : entries)
+        {
+            if (!entry.containsColumn(x, z)) continue;
+
+            // Only 3D subdivisions are marked 3D, and their Y range decides the result.
+            if (entry.is3D) return Column.HAS_3D;
+
+            boolean covered = false;
+            for (ChunkClaimIndex.Entry child : entry.children)
+            {
+                if (!child.containsColumn(x, z)) continue;
+                if (child.is3D) return Column.HAS_3D;
+                covered = true;
+            }
+
+            if (smallest == null || entry.area < smallest.area)
+            {
+                smallest = entry;
+            }
+            if (!covered && (smallestUncovered == null || entry.area < smallestUncovered.area))
+            {
+                smallestUncovered = entry;
+            }
+        }
+
+        ChunkClaimIndex.Entry mostSpecific = smallest;
+        if (smallest != null)
+        {
+            ChunkClaimIndex.Entry bestChild = null;
+            for (ChunkClaimIndex.Entry child : smallest.children)
+            {
+                if (!child.containsColumn(x, z)) continue;
+                if (bestChild == null || child.area < bestChild.area)
+                {
+                    bestChild = child;
+                }
+            }
+            if (bestChild != null)
+            {
+                mostSpecific = bestChild;
+            }
+        }
+
+        if (mostSpecific == null && smallestUncovered == null) return Column.UNCLAIMED;
+        return new Column(false, mostSpecific, smallestUncovered);
+    }
+
+    /**
+     * The resolution of a single column.
+     *
+     * @param has3D whether a 3D subdivision overlaps the column, in which case the other values are unset
+     * @param claim the most specific claim including 2D subdivisions, or null if unclaimed
+     * @param claimExcludingSubdivisions the smallest top level claim with no subdivision in the column, or null
+     */
+    record Column(boolean has3D, ChunkClaimIndex.Entry claim, ChunkClaimIndex.Entry claimExcludingSubdivisions)
+    {
+
+        static final Column HAS_3D = new Column(true, null, null);
+        static final Column UNCLAIMED = new Column(false, null, null);
+
+    }
+
+}
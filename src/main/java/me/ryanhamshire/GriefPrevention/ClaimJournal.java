@@ -0,0 +1,386 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of claim changes for a {@link FlatFileDataStore}, so a change costs one small sequential
+ * write instead of rewriting the claim's YAML file.
+ *
+ * <p>Every change to a claim, whether it is created, resized, trusted, transferred or deleted, reaches storage
+ * as a save or delete of the whole claim, so each record carries the claim's complete state. That keeps replay
+ * trivially exact: the last record for a claim ID is its state. Records are framed by their length and a CRC32
+ * of their contents. Appends are buffered until {@link #sync()}, which writes and forces them to disk as one
+ * batch.
+ *
+ * <p>{@link #compact} folds the latest state of every journaled claim into its YAML file and empties the
+ * journal. A crash can only tear the final record; {@link #replay} stops at the first record that is incomplete
+ * or fails its checksum and folds everything before it, so a journal cut at any offset recovers every change
+ * that was completely written.
+ */
+final class ClaimJournal implements Closeable
+{
+
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+    private static final int FRAME_BYTES = 8;
+
+    private static final int FLAG_OWNER = 1;
+    private static final int FLAG_INHERIT_NOTHING = 1 << 1;
+    private static final int FLAG_3D = 1 << 2;
+
+    /**
+     * The persisted state of a single claim.
+     */
+    record ClaimState(
+            long id,
+            long parentID,
+            @NotNull String world,
+            int lesserX, int lesserY, int lesserZ,
+            int greaterX, int greaterY, int greaterZ,
+            @Nullable UUID owner,
+            @NotNull List<String> builders,
+            @NotNull List<String> containers,
+            @NotNull List<String> accessors,
+            @NotNull List<String> managers,
+            boolean inheritNothing,
+            boolean is3D)
+    {
+
+        /**
+         * Capture the current state of a claim.
+         *
+         * @param claim the claim
+         * @return the claim's state
+         */
+        static @NotNull ClaimState of(@NotNull Claim claim)
+        {
+            ArrayList<String> builders = new ArrayList<>();
+            ArrayList<String> containers = new ArrayList<>();
+            ArrayList<String> accessors = new ArrayList<>();
+            ArrayList<String> managers = new ArrayList<>();
+            claim.getPermissions(builders, containers, accessors, managers);
+
+            Location lesser = claim.lesserBoundaryCorner;
+            Location greater = claim.greaterBoundaryCorner;
+            return new ClaimState(claim.id, claim.parent == null ? -1 : claim.parent.id, lesser.getWorld().getName(),
+                    lesser.getBlockX(), lesser.getBlockY(), lesser.getBlockZ(),
+                    greater.getBlockX(), greater.getBlockY(), greater.getBlockZ(),
+                    claim.ownerID, builders, containers, accessors, managers,
+                    claim.getSubclaimRestrictions(), claim.is3D());
+        }
+
+    }
+
+    /**
+     * Where journaled changes are folded to.
+     */
+    interface Target
+    {
+        void save(@NotNull ClaimState state) throws IOException;
+
+        void delete(long claimID) throws IOException;
+    }
+
+    private final @NotNull Path path;
+    private FileChannel channel;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOut = new DataOutputStream(this.pending);
+    // latest state of every claim changed since the last compaction, null once deleted
+    private final Map<Long, ClaimState> unfolded = new LinkedHashMap<>();
+    private long size = -1;
+
+    ClaimJournal(@NotNull Path path)
+    {
+        this.path = path;
+    }
+
+    /**
+     * Append the state of a saved claim.
+     *
+     * @param state the claim's state
+     */
+    synchronized void appendSave(@NotNull ClaimState state)
+    {
+        append(encodeSave(state));
+        this.unfolded.put(state.id(), state);
+    }
+
+    /**
+     * Append the deletion of a claim.
+     *
+     * @param claimID the ID of the deleted claim
+     */
+    synchronized void appendDelete(long claimID)
+    {
+        append(encodeDelete(claimID));
+        this.unfolded.put(claimID, null);
+    }
+
+    private void append(byte[] payload)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        try
+        {
+            this.pendingOut.writeInt(payload.length);
+            this.pendingOut.writeInt((int) crc.getValue());
+            this.pendingOut.write(payload);
+        }
+        catch (IOException e)
+        {
+            // Writing to memory doesn't fail.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Write all appended records and force them to disk.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    synchronized void sync() throws IOException
+    {
+        if (this.pending.size() == 0) return;
+
+        FileChannel channel = this.open();
+        ByteBuffer buffer = ByteBuffer.wrap(this.pending.toByteArray());
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        this.size += this.pending.size();
+        this.pending.reset();
+    }
+
+    /**
+     * Get the size of the journal on disk.
+     *
+     * @return the size in bytes
+     * @throws IOException if the journal cannot be opened
+     */
+    synchronized long size() throws IOException
+    {
+        this.open();
+        return this.size;
+    }
+
+    /**
+     * Fold every change since the last compaction into the target, then empty the journal.
+     *
+     * @param target where to fold changes to
+     * @throws IOException if the journal cannot be written or folded, in which case it is left as it was
+     */
+    synchronized void compact(@NotNull Target target) throws IOException
+    {
+        this.sync();
+        fold(this.unfolded, target);
+        this.unfolded.clear();
+
+        if (this.channel != null)
+        {
+            this.channel.truncate(0);
+            this.channel.force(false);
+            this.size = 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (this.channel == null) return;
+
+        this.channel.close();
+        this.channel = null;
+        this.size = -1;
+    }
+
+    private FileChannel open() throws IOException
+    {
+        if (this.channel == null)
+        {
+            this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            this.size = this.channel.size();
+        }
+        return this.channel;
+    }
+
+    /**
+     * Fold the complete records of a journal left behind by an earlier run into the target, then delete it.
+     *
+     * @param path the journal file
+     * @param target where to fold changes to
+     * @return the number of records recovered
+     * @throws IOException if the journal cannot be read or folded, in which case it is kept
+     */
+    static int replay(@NotNull Path path, @NotNull Target target) throws IOException
+    {
+        if (!Files.isRegularFile(path)) return 0;
+
+        Map<Long, ClaimState> latest = new LinkedHashMap<>();
+        int records = read(Files.readAllBytes(path), latest);
+        fold(latest, target);
+        Files.delete(path);
+        return records;
+    }
+
+    /**
+     * Read the complete records of a journal.
+     *
+     * @param journal the journal's contents
+     * @param latest receives the latest state of each claim, null if deleted
+     * @return the number of complete records
+     */
+    static int read(byte[] journal, @NotNull Map<Long, ClaimState> latest)
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(journal);
+        int records = 0;
+        while (buffer.remaining() >= FRAME_BYTES)
+        {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) break;
+
+            CRC32 crc = new CRC32();
+            crc.update(journal, buffer.position(), length);
+            if ((int) crc.getValue() != checksum) break;
+
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(journal, buffer.position(), length)))
+            {
+                byte type = in.readByte();
+                long claimID = in.readLong();
+                if (type == SAVE) latest.put(claimID, decodeState(claimID, in));
+                else if (type == DELETE) latest.put(claimID, null);
+                else break;
+            }
+            catch (IOException e)
+            {
+                // A matching checksum over a malformed record means it wasn't written by this version; stop here.
+                break;
+            }
+
+            buffer.position(buffer.position() + length);
+            records++;
+        }
+        return records;
+    }
+
+    private static void fold(Map<Long, ClaimState> latest, Target target) throws IOException
+    {
+        for (Map.Entry<Long, ClaimState> entry : latest.entrySet())
+        {
+            if (entry.getValue() == null) target.delete(entry.getKey());
+            else target.save(entry.getValue());
+        }
+    }
+
+    private static byte[] encodeSave(ClaimState state)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes))
+        {
+            int flags = (state.owner() != null ? FLAG_OWNER : 0)
+                    | (state.inheritNothing() ? FLAG_INHERIT_NOTHING : 0)
+                    | (state.is3D() ? FLAG_3D : 0);
+
+            out.writeByte(SAVE);
+            out.writeLong(state.id());
+            out.writeLong(state.parentID());
+            out.writeUTF(state.world());
+            out.writeInt(state.lesserX());
+            out.writeInt(state.lesserY());
+            out.writeInt(state.lesserZ());
+            out.writeInt(state.greaterX());
+            out.writeInt(state.greaterY());
+            out.writeInt(state.greaterZ());
+            out.writeByte(flags);
+            if (state.owner() != null)
+            {
+                out.writeLong(state.owner().getMostSignificantBits());
+                out.writeLong(state.owner().getLeastSignificantBits());
+            }
+            writeList(out, state.builders());
+            writeList(out, state.containers());
+            writeList(out, state.accessors());
+            writeList(out, state.managers());
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeDelete(long claimID)
+    {
+        return ByteBuffer.allocate(9).put(DELETE).putLong(claimID).array();
+    }
+
+    private static ClaimState decodeState(long claimID, DataInputStream in) throws IOException
+    {
+        long parentID = in.readLong();
+        String world = in.readUTF();
+        int lesserX = in.readInt();
+        int lesserY = in.readInt();
+        int lesserZ = in.readInt();
+        int greaterX = in.readInt();
+        int greaterY = in.readInt();
+        int greaterZ = in.readInt();
+        int flags = in.readByte();
+        UUID owner = (flags & FLAG_OWNER) != 0 ? new UUID(in.readLong(), in.readLong()) : null;
+        List<String> builders = readList(in);
+        List<String> containers = readList(in);
+        List<String> accessors = readList(in);
+        List<String> managers = readList(in);
+        if (in.available() != 0) throw new EOFException("Unexpected trailing bytes");
+
+        return new ClaimState(claimID, parentID, world, lesserX, lesserY, lesserZ, greaterX, greaterY, greaterZ,
+                owner, builders, containers, accessors, managers,
+                (flags & FLAG_INHERIT_NOTHING) != 0, (flags & FLAG_3D) != 0);
+    }
+
+    private static void writeList(DataOutputStream out, List<String> values) throws IOException
+    {
+        out.writeInt(values.size());
+        for (String value : values)
+        {
+            out.writeUTF(value);
+        }
+    }
+
+    private static List<String> readList(DataInputStream in) throws IOException
+    {
+        int count = in.readInt();
+        if (count < 0) throw new EOFException("Negative list size");
+
+        List<String> values = new ArrayList<>(Math.min(count, 16));
+        for (int i = 0; i < count; i++)
+        {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,260 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * The trust granted by a single claim, stored compactly.
+ *
+ * <p>Almost all trustees are players, so their UUIDs are kept unboxed in a sorted array of high/low pairs with a
+ * parallel array of {@link ClaimPermission} ordinals. Lookups by UUID are a binary search that never allocates.
+ * The public level has its own slot, and the rare remaining identifiers ({@code [permission.node]} groups and
+ * legacy names) go in a small map that is only created when needed. A claim with no trustees holds no arrays of
+ * its own.
+ *
+ * <p>Identifiers are expected to already be lower case. Like the map it replaces, this table is not thread-safe.
+ */
+final class ClaimPermissionTable
+{
+
+    private static final long[] NO_PLAYERS = new long[0];
+    private static final byte[] NO_LEVELS = new byte[0];
+    private static final ClaimPermission[] LEVELS = ClaimPermission.values();
+
+    private static final String PUBLIC = "public";
+
+    // Sorted pairs of UUID most and least significant bits.
+    private long[] players = NO_PLAYERS;
+    // Ordinal of each player's ClaimPermission.
+    private byte[] levels = NO_LEVELS;
+    private @Nullable ClaimPermission publicLevel;
+    private @Nullable Map<String, ClaimPermission> others;
+
+    ClaimPermissionTable()
+    {
+    }
+
+    /**
+     * Construct a copy of another table.
+     *
+     * @param other the table to copy
+     */
+    ClaimPermissionTable(@NotNull ClaimPermissionTable other)
+    {
+        this.players = other.players.length == 0 ? NO_PLAYERS : other.players.clone();
+        this.levels = other.levels.length == 0 ? NO_LEVELS : other.levels.clone();
+        this.publicLevel = other.publicLevel;
+        this.others = other.others == null ? null : new LinkedHashMap<>(other.others);
+    }
+
+    /**
+     * Get the level granted to a player.
+     *
+     * @param uuid the player's UUID
+     * @return the granted level or null if none
+     */
+    @Nullable ClaimPermission get(@NotNull UUID uuid)
+    {
+        int index = indexOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        return index < 0 ? null : LEVELS[this.levels[index]];
+    }
+
+    /**
+     * Get the level granted to the public.
+     *
+     * @return the granted level or null if none
+     */
+    @Nullable ClaimPermission getPublic()
+    {
+        return this.publicLevel;
+    }
+
+    /**
+     * Get the level granted to an identifier.
+     *
+     * @param identifier the lower case identifier
+     * @return the granted level or null if none
+     */
+    @Nullable ClaimPermission get(@NotNull String identifier)
+    {
+        if (identifier.equals(PUBLIC)) return this.publicLevel;
+
+        UUID uuid = parseUUID(identifier);
+        if (uuid != null) return get(uuid);
+
+        return this.others == null ? null : this.others.get(identifier);
+    }
+
+    /**
+     * Grant a level to an identifier, replacing any existing level.
+     *
+     * @param identifier the lower case identifier
+     * @param level the level
+     */
+    void put(@NotNull String identifier, @NotNull ClaimPermission level)
+    {
+        if (identifier.equals(PUBLIC))
+        {
+            this.publicLevel = level;
+            return;
+        }
+
+        UUID uuid = parseUUID(identifier);
+        if (uuid == null)
+        {
+            if (this.others == null) this.others = new LinkedHashMap<>();
+            this.others.put(identifier, level);
+            return;
+        }
+
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        int index = indexOf(most, least);
+        if (index >= 0)
+        {
+            this.levels[index] = (byte) level.ordinal();
+            return;
+        }
+
+        int insertion = -(index + 1);
+        int size = this.levels.length;
+        long[] players = new long[(size + 1) * 2];
+        byte[] levels = new byte[size + 1];
+        System.arraycopy(this.players, 0, players, 0, insertion * 2);
+        System.arraycopy(this.players, insertion * 2, players, (insertion + 1) * 2, (size - insertion) * 2);
+        System.arraycopy(this.levels, 0, levels, 0, insertion);
+        System.arraycopy(this.levels, insertion, levels, insertion + 1, size - insertion);
+        players[insertion * 2] = most;
+        players[insertion * 2 + 1] = least;
+        levels[insertion] = (byte) level.ordinal();
+        this.players = players;
+        this.levels = levels;
+    }
+
+    /**
+     * Revoke any level granted to an identifier.
+     *
+     * @param identifier the lower case identifier
+     */
+    void remove(@NotNull String identifier)
+    {
+        if (identifier.equals(PUBLIC))
+        {
+            this.publicLevel = null;
+            return;
+        }
+
+        UUID uuid = parseUUID(identifier);
+        if (uuid == null)
+        {
+            if (this.others != null)
+            {
+                this.others.remove(identifier);
+                if (this.others.isEmpty()) this.others = null;
+            }
+            return;
+        }
+
+        int index = indexOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        if (index < 0) return;
+
+        int size = this.levels.length;
+        if (size == 1)
+        {
+            this.players = NO_PLAYERS;
+            this.levels = NO_LEVELS;
+            return;
+        }
+
+        long[] players = new long[(size - 1) * 2];
+        byte[] levels = new byte[size - 1];
+        System.arraycopy(this.players, 0, players, 0, index * 2);
+        System.arraycopy(this.players, (index + 1) * 2, players, index * 2, (size - index - 1) * 2);
+        System.arraycopy(this.levels, 0, levels, 0, index);
+        System.arraycopy(this.levels, index + 1, levels, index, size - index - 1);
+        this.players = players;
+        this.levels = levels;
+    }
+
+    /**
+     * Revoke all levels.
+     */
+    void clear()
+    {
+        this.players = NO_PLAYERS;
+        this.levels = NO_LEVELS;
+        this.publicLevel = null;
+        this.others = null;
+    }
+
+    /**
+     * Get the grants to identifiers other than players and the public, i.e. {@code [permission.node]} groups.
+     *
+     * @return the grants, which must not be modified
+     */
+    @NotNull Iterable<Map.Entry<String, ClaimPermission>> otherEntries()
+    {
+        return this.others == null ? List.of() : this.others.entrySet();
+    }
+
+    /**
+     * Perform an action for every granted identifier.
+     *
+     * @param action the action to perform
+     */
+    void forEach(@NotNull BiConsumer<String, ClaimPermission> action)
+    {
+        for (int i = 0; i < this.levels.length; i++)
+        {
+            action.accept(new UUID(this.players[i * 2], this.players[i * 2 + 1]).toString(), LEVELS[this.levels[i]]);
+        }
+        if (this.publicLevel != null) action.accept(PUBLIC, this.publicLevel);
+        if (this.others != null) this.others.forEach(action);
+    }
+
+    private int indexOf(long most, long least)
+    {
+        long[] players = this.players;
+        int low = 0;
+        int high = this.levels.length - 1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            int comparison = Long.compare(players[middle * 2], most);
+            if (comparison == 0) comparison = Long.compare(players[middle * 2 + 1], least);
+
+            if (comparison < 0) low = middle + 1;
+            else if (comparison > 0) high = middle - 1;
+            else return middle;
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Parse an identifier as a UUID if it is exactly the lower case form {@link UUID#toString()} produces, so
+     * that identifiers round-trip unchanged.
+     */
+    private static @Nullable UUID parseUUID(@NotNull String identifier)
+    {
+        if (identifier.length() != 36
+                || identifier.charAt(8) != '-' || identifier.charAt(13) != '-'
+                || identifier.charAt(18) != '-' || identifier.charAt(23) != '-')
+            return null;
+
+        for (int i = 0; i < 36; i++)
+        {
+            char character = identifier.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) continue;
+            if ((character < '0' || character > '9') && (character < 'a' || character > 'f')) return null;
+        }
+
+        return UUID.fromString(identifier);
+    }
+
+}
@@ -0,0 +1,385 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.ToLongFunction;
+import java.util.zip.CRC32;
+
+/**
+ * A single binary file holding every claim of a {@link FlatFileDataStore}, so startup can skip parsing one YAML
+ * file per claim when nothing changed since the last clean shutdown.
+ *
+ * <p>The file starts with a fixed header carrying a format version, the fingerprint of the claim folder the
+ * snapshot was taken from and a checksum of the rest of the file. It is followed by a table of distinct strings
+ * (world names and trustee identifiers), a table of owner UUIDs, one fixed-width record per claim and the
+ * permission grants the records point into. Top level claims precede their subdivisions, so claims can be added
+ * to the data store in file order.
+ *
+ * <p>A snapshot is only used when its version, fingerprint and checksum all match and every world it references
+ * is loaded. Otherwise {@link #read} returns null and the caller falls back to the YAML files.
+ */
+final class ClaimSnapshot
+{
+
+    private static final int MAGIC = 0x47504353; // "GPCS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    private static final int CLAIM_BYTES = 72;
+    private static final int PERMISSION_BYTES = 8;
+
+    private static final int FLAG_3D = 1;
+    private static final int FLAG_INHERIT_NOTHING = 1 << 1;
+
+    private static final int LEVEL_BUILDER = 0;
+    private static final int LEVEL_CONTAINER = 1;
+    private static final int LEVEL_ACCESSOR = 2;
+    private static final int LEVEL_MANAGER = 3;
+
+    private ClaimSnapshot()
+    {
+    }
+
+    /**
+     * A claim read from a snapshot, not yet added to the data store.
+     *
+     * @param claim the claim
+     * @param parentID the ID of the parent claim, or -1 for top level claims
+     */
+    record Entry(@NotNull Claim claim, long parentID) { }
+
+    /**
+     * Calculate the fingerprint of a claim folder from the name, size and modification time of every claim file.
+     * Any claim file being written, added or removed changes the fingerprint.
+     *
+     * @param files the contents of the claim folder
+     * @return the fingerprint
+     */
+    static long fingerprint(@Nullable File[] files)
+    {
+        if (files == null) return 0;
+
+        long fingerprint = 0;
+        int count = 0;
+        for (File file : files)
+        {
+            String name = file.getName();
+            if (name.startsWith("_") || !name.endsWith(".yml") || !file.isFile()) continue;
+
+            // Summed so the order files are listed in doesn't matter.
+            long hash = name.hashCode();
+            hash = hash * 31 + file.length();
+            hash = hash * 31 + file.lastModified();
+            fingerprint += mix(hash);
+            count++;
+        }
+        return mix(fingerprint + count);
+    }
+
+    private static long mix(long value)
+    {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * Write a snapshot, replacing any existing one once it is complete.
+     *
+     * @param path the snapshot file
+     * @param fingerprint the fingerprint of the claim folder the claims are stored in
+     * @param topLevelClaims the top level claims, whose subdivisions are included
+     * @param lastModified the modification time to store for each claim
+     * @throws IOException if the snapshot cannot be written
+     */
+    static void write(
+            @NotNull Path path,
+            long fingerprint,
+            @NotNull Collection<Claim> topLevelClaims,
+            @NotNull ToLongFunction<Claim> lastModified) throws IOException
+    {
+        List<Claim> claims = new ArrayList<>();
+        for (Claim claim : topLevelClaims)
+        {
+            if (claim.id == null) continue;
+            claims.add(claim);
+        }
+        for (Claim claim : topLevelClaims)
+        {
+            if (claim.id == null) continue;
+            for (Claim child : claim.children)
+            {
+                if (child.id != null && child.inDataStore) claims.add(child);
+            }
+        }
+
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> stringTable = new ArrayList<>();
+        Map<UUID, Integer> owners = new HashMap<>();
+        List<UUID> ownerTable = new ArrayList<>();
+
+        ByteArrayOutputStream claimBytes = new ByteArrayOutputStream(claims.size() * CLAIM_BYTES);
+        DataOutputStream claimOut = new DataOutputStream(claimBytes);
+        ByteArrayOutputStream permissionBytes = new ByteArrayOutputStream();
+        DataOutputStream permissionOut = new DataOutputStream(permissionBytes);
+        int permissionCount = 0;
+
+        ArrayList<String> builders = new ArrayList<>();
+        ArrayList<String> containers = new ArrayList<>();
+        ArrayList<String> accessors = new ArrayList<>();
+        ArrayList<String> managers = new ArrayList<>();
+        for (Claim claim : claims)
+        {
+            builders.clear();
+            containers.clear();
+            accessors.clear();
+            managers.clear();
+            claim.getPermissions(builders, containers, accessors, managers);
+
+            int firstPermission = permissionCount;
+            permissionCount += writePermissions(permissionOut, builders, LEVEL_BUILDER, strings, stringTable);
+            permissionCount += writePermissions(permissionOut, containers, LEVEL_CONTAINER, strings, stringTable);
+            permissionCount += writePermissions(permissionOut, accessors, LEVEL_ACCESSOR, strings, stringTable);
+            permissionCount += writePermissions(permissionOut, managers, LEVEL_MANAGER, strings, stringTable);
+
+            Location lesser = claim.lesserBoundaryCorner;
+            Location greater = claim.greaterBoundaryCorner;
+            int owner = -1;
+            if (claim.ownerID != null)
+            {
+                owner = owners.computeIfAbsent(claim.ownerID, ownerID ->
+                {
+                    ownerTable.add(ownerID);
+                    return ownerTable.size() - 1;
+                });
+            }
+            int flags = (claim.is3D() ? FLAG_3D : 0) | (claim.getSubclaimRestrictions() ? FLAG_INHERIT_NOTHING : 0);
+
+            claimOut.writeLong(claim.id);
+            claimOut.writeLong(claim.parent == null ? -1 : claim.parent.id);
+            claimOut.writeLong(lastModified.applyAsLong(claim));
+            claimOut.writeInt(intern(lesser.getWorld().getName(), strings, stringTable));
+            claimOut.writeInt(lesser.getBlockX());
+            claimOut.writeInt(lesser.getBlockY());
+            claimOut.writeInt(lesser.getBlockZ());
+            claimOut.writeInt(greater.getBlockX());
+            claimOut.writeInt(greater.getBlockY());
+            claimOut.writeInt(greater.getBlockZ());
+            claimOut.writeInt(owner);
+            claimOut.writeInt(flags);
+            claimOut.writeInt(firstPermission);
+            claimOut.writeInt(permissionCount - firstPermission);
+        }
+
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        for (String string : stringTable)
+        {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            payload.writeInt(bytes.length);
+            payload.write(bytes);
+        }
+        for (UUID ownerID : ownerTable)
+        {
+            payload.writeLong(ownerID.getMostSignificantBits());
+            payload.writeLong(ownerID.getLeastSignificantBits());
+        }
+        claimBytes.writeTo(payload);
+        permissionBytes.writeTo(payload);
+        payload.flush();
+        byte[] payloadArray = payloadBytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(payloadArray);
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(temporary));
+             DataOutputStream out = new DataOutputStream(fileOut))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(stringTable.size());
+            out.writeInt(ownerTable.size());
+            out.writeInt(claims.size());
+            out.writeInt(permissionCount);
+            out.writeLong(crc.getValue());
+            out.write(payloadArray);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int writePermissions(
+            DataOutputStream out,
+            List<String> identifiers,
+            int level,
+            Map<String, Integer> strings,
+            List<String> stringTable) throws IOException
+    {
+        for (String identifier : identifiers)
+        {
+            out.writeInt(intern(identifier, strings, stringTable));
+            out.writeInt(level);
+        }
+        return identifiers.size();
+    }
+
+    private static int intern(String string, Map<String, Integer> strings, List<String> stringTable)
+    {
+        return strings.computeIfAbsent(string, key ->
+        {
+            stringTable.add(key);
+            return stringTable.size() - 1;
+        });
+    }
+
+    /**
+     * Read a snapshot if it is current.
+     *
+     * @param path the snapshot file
+     * @param fingerprint the fingerprint of the claim folder as it is now
+     * @param validWorlds the loaded worlds
+     * @return the claims in the order they must be added, or null if the snapshot is missing, stale or damaged
+     * @throws IOException if the snapshot cannot be read
+     */
+    static @Nullable List<Entry> read(@NotNull Path path, long fingerprint, @NotNull List<World> validWorlds)
+            throws IOException
+    {
+        if (!Files.isRegularFile(path) || Files.size(path) < HEADER_BYTES) return null;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != fingerprint) return null;
+
+            int stringCount = buffer.getInt();
+            int ownerCount = buffer.getInt();
+            int claimCount = buffer.getInt();
+            int permissionCount = buffer.getInt();
+            long checksum = buffer.getLong();
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if (crc.getValue() != checksum) return null;
+
+            try
+            {
+                return readPayload(buffer, stringCount, ownerCount, claimCount, permissionCount, validWorlds);
+            }
+            catch (RuntimeException e)
+            {
+                // Matching checksums make this unlikely, but a damaged snapshot must never prevent loading.
+                return null;
+            }
+        }
+    }
+
+    private static @Nullable List<Entry> readPayload(
+            ByteBuffer buffer,
+            int stringCount,
+            int ownerCount,
+            int claimCount,
+            int permissionCount,
+            List<World> validWorlds)
+    {
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++)
+        {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        UUID[] owners = new UUID[ownerCount];
+        for (int i = 0; i < ownerCount; i++)
+        {
+            owners[i] = new UUID(buffer.getLong(), buffer.getLong());
+        }
+
+        int claimsStart = buffer.position();
+        int permissionsStart = claimsStart + claimCount * CLAIM_BYTES;
+        if (buffer.limit() != permissionsStart + permissionCount * PERMISSION_BYTES) return null;
+
+        Map<String, World> worlds = new HashMap<>();
+        List<Entry> entries = new ArrayList<>(claimCount);
+        for (int i = 0; i < claimCount; i++)
+        {
+            int offset = claimsStart + i * CLAIM_BYTES;
+            long id = buffer.getLong(offset);
+            long parentID = buffer.getLong(offset + 8);
+            long lastModified = buffer.getLong(offset + 16);
+            String worldName = strings[buffer.getInt(offset + 24)];
+            int owner = buffer.getInt(offset + 52);
+            int flags = buffer.getInt(offset + 56);
+            int firstPermission = buffer.getInt(offset + 60);
+            int claimPermissions = buffer.getInt(offset + 64);
+
+            // Claims in unloaded worlds are reported by the YAML loader, so leave them to it.
+            World world = worlds.computeIfAbsent(worldName, name -> findWorld(name, validWorlds));
+            if (world == null) return null;
+
+            Location lesser = new Location(world, buffer.getInt(offset + 28), buffer.getInt(offset + 32), buffer.getInt(offset + 36));
+            Location greater = new Location(world, buffer.getInt(offset + 40), buffer.getInt(offset + 44), buffer.getInt(offset + 48));
+
+            List<String> builders = new ArrayList<>();
+            List<String> containers = new ArrayList<>();
+            List<String> accessors = new ArrayList<>();
+            List<String> managers = new ArrayList<>();
+            for (int j = 0; j < claimPermissions; j++)
+            {
+                int permissionOffset = permissionsStart + (firstPermission + j) * PERMISSION_BYTES;
+                String identifier = strings[buffer.getInt(permissionOffset)];
+                switch (buffer.getInt(permissionOffset + 4))
+                {
+                    case LEVEL_BUILDER -> builders.add(identifier);
+                    case LEVEL_CONTAINER -> containers.add(identifier);
+                    case LEVEL_ACCESSOR -> accessors.add(identifier);
+                    case LEVEL_MANAGER -> managers.add(identifier);
+                    default -> { return null; }
+                }
+            }
+
+            Claim claim = new Claim(lesser, greater, owner < 0 ? null : owners[owner], builders, containers, accessors,
+                    managers, (flags & FLAG_INHERIT_NOTHING) != 0, id, (flags & FLAG_3D) != 0);
+            claim.modifiedDate = new Date(lastModified);
+            entries.add(new Entry(claim, parentID));
+        }
+        return entries;
+    }
+
+    private static @Nullable World findWorld(String name, List<World> validWorlds)
+    {
+        for (World world : validWorlds)
+        {
+            if (world.getName().equalsIgnoreCase(name)) return world;
+        }
+        return null;
+    }
+
+}
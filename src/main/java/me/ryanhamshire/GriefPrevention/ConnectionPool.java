@@ -0,0 +1,397 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A small pool of JDBC connections for {@link DatabaseDataStore}, so loads, saves and deletes don't all queue up
+ * behind a single connection.
+ *
+ * <p>At most a fixed number of connections are open; once all of them are in use, borrowers wait for one to be
+ * returned. A connection is only validated when it has been idle long enough that the server may have dropped it,
+ * rather than before every statement. Each connection caches the statements prepared on it. A connection held for
+ * longer than the leak threshold is reported once, along with the thread that borrowed it. Where it was borrowed is
+ * only recorded if borrows are traced, since filling in a stack trace on every borrow is costly.
+ *
+ * <p>Borrowing is reentrant: a thread already holding a connection gets the same one back, so storage methods may
+ * call each other without exhausting the pool. Connections must be returned by the thread that borrowed them.
+ */
+final class ConnectionPool implements AutoCloseable
+{
+
+    /**
+     * Opens new physical connections.
+     */
+    interface ConnectionFactory
+    {
+        @NotNull Connection open() throws SQLException;
+    }
+
+    private final @NotNull ConnectionFactory factory;
+    private final int maxSize;
+    private final long validateAfterIdleMillis;
+    private final long leakThresholdMillis;
+    private final long borrowTimeoutMillis;
+    private final boolean traceBorrows;
+    private final @NotNull Consumer<String> warnings;
+
+    private final Object lock = new Object();
+    // most recently returned first, so the pool keeps using warm connections and lets the rest go idle
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> leased = new HashSet<>();
+    private final ThreadLocal<PooledConnection> held = new ThreadLocal<>();
+    private int size;
+    private boolean closed;
+
+    /**
+     * Construct a new pool. No connections are opened until one is borrowed.
+     *
+     * @param factory opens new connections
+     * @param maxSize the most connections open at once
+     * @param validateAfterIdleMillis how long a connection may sit idle before it is validated on its next use
+     * @param leakThresholdMillis how long a connection may be held before it is reported as possibly leaked
+     * @param borrowTimeoutMillis how long to wait for a connection when all are in use
+     * @param traceBorrows whether to record where each connection is borrowed, for leak reports
+     * @param warnings receives leak reports
+     */
+    ConnectionPool(
+            @NotNull ConnectionFactory factory,
+            int maxSize,
+            long validateAfterIdleMillis,
+            long leakThresholdMillis,
+            long borrowTimeoutMillis,
+            boolean traceBorrows,
+            @NotNull Consumer<String> warnings)
+    {
+        if (maxSize < 1) throw new IllegalArgumentException("Pool size must be at least 1!");
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.traceBorrows = traceBorrows;
+        this.warnings = warnings;
+    }
+
+    /**
+     * Borrow a connection, waiting if all are in use. Close the returned connection to give it back.
+     *
+     * @return the connection
+     * @throws SQLException if no connection could be opened or none was returned in time
+     */
+    @NotNull PooledConnection borrow() throws SQLException
+    {
+        PooledConnection current = this.held.get();
+        if (current != null)
+        {
+            current.depth++;
+            return current;
+        }
+
+        PooledConnection connection = this.acquire();
+        connection.depth = 1;
+        connection.borrowedAt = System.currentTimeMillis();
+        connection.borrowedOn = Thread.currentThread().getName();
+        connection.borrowedBy = this.traceBorrows ? new Throwable("Connection borrowed here") : null;
+        connection.leakReported = false;
+        this.held.set(connection);
+        return connection;
+    }
+
+    private PooledConnection acquire() throws SQLException
+    {
+        long deadline = System.currentTimeMillis() + this.borrowTimeoutMillis;
+        while (true)
+        {
+            PooledConnection candidate;
+            synchronized (this.lock)
+            {
+                this.reportLeaks();
+                if (this.closed) throw new SQLException("The connection pool is closed.");
+
+                candidate = this.idle.pollFirst();
+                if (candidate == null)
+                {
+                    if (this.size >= this.maxSize)
+                    {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0)
+                        {
+                            throw new SQLException("Timed out waiting for a database connection, all " + this.maxSize + " are in use.");
+                        }
+                        try
+                        {
+                            this.lock.wait(remaining);
+                        }
+                        catch (InterruptedException e)
+                        {
+                            Thread.currentThread().interrupt();
+                            throw new SQLException("Interrupted while waiting for a database connection.", e);
+                        }
+                        continue;
+                    }
+
+                    //reserve a slot before opening outside the lock
+                    this.size++;
+                }
+            }
+
+            if (candidate == null)
+            {
+                try
+                {
+                    candidate = new PooledConnection(this, this.factory.open());
+                }
+                catch (SQLException | RuntimeException e)
+                {
+                    this.discard(null);
+                    throw e;
+                }
+            }
+            else if (!candidate.isUsable(this.validateAfterIdleMillis))
+            {
+                this.discard(candidate);
+                continue;
+            }
+
+            synchronized (this.lock)
+            {
+                this.leased.add(candidate);
+            }
+            return candidate;
+        }
+    }
+
+    private void release(PooledConnection connection)
+    {
+        this.held.remove();
+
+        boolean keep = connection.reset();
+        synchronized (this.lock)
+        {
+            this.leased.remove(connection);
+            if (keep && !this.closed)
+            {
+                connection.returnedAt = System.currentTimeMillis();
+                this.idle.addFirst(connection);
+                this.lock.notifyAll();
+                return;
+            }
+        }
+        this.discard(connection);
+    }
+
+    private void discard(PooledConnection connection)
+    {
+        if (connection != null) connection.closePhysical();
+        synchronized (this.lock)
+        {
+            this.size--;
+            this.lock.notifyAll();
+        }
+    }
+
+    //must be called holding the lock
+    private void reportLeaks()
+    {
+        long now = System.currentTimeMillis();
+        for (PooledConnection connection : this.leased)
+        {
+            if (connection.leakReported || now - connection.borrowedAt < this.leakThresholdMillis) continue;
+
+            connection.leakReported = true;
+            String borrowed = "It was borrowed on thread " + connection.borrowedOn + ".";
+            if (connection.borrowedBy != null)
+            {
+                StringWriter trace = new StringWriter();
+                connection.borrowedBy.printStackTrace(new PrintWriter(trace));
+                borrowed += "  " + trace;
+            }
+            this.warnings.accept("A database connection has been in use for " + (now - connection.borrowedAt) / 1000
+                    + " seconds and may have been leaked.  " + borrowed);
+        }
+    }
+
+    /**
+     * Get the number of open connections, in use or idle.
+     *
+     * @return the number of open connections
+     */
+    int getSize()
+    {
+        synchronized (this.lock)
+        {
+            return this.size;
+        }
+    }
+
+    /**
+     * Get the number of connections currently borrowed.
+     *
+     * @return the number of connections in use
+     */
+    int getActiveCount()
+    {
+        synchronized (this.lock)
+        {
+            return this.leased.size();
+        }
+    }
+
+    /**
+     * Close all idle connections and refuse further borrowing. Connections still in use are closed when returned.
+     */
+    @Override
+    public void close()
+    {
+        List<PooledConnection> toClose;
+        synchronized (this.lock)
+        {
+            this.closed = true;
+            toClose = new ArrayList<>(this.idle);
+            this.idle.clear();
+            this.size -= toClose.size();
+            this.lock.notifyAll();
+        }
+
+        for (PooledConnection connection : toClose)
+        {
+            connection.closePhysical();
+        }
+    }
+
+    /**
+     * A borrowed connection. Statements prepared through it stay open for reuse, so callers must not close them.
+     */
+    static final class PooledConnection implements AutoCloseable
+    {
+
+        private final ConnectionPool pool;
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        private int depth;
+        private long borrowedAt;
+        private String borrowedOn;
+        private Throwable borrowedBy;
+        private boolean leakReported;
+        private long returnedAt = System.currentTimeMillis();
+
+        private PooledConnection(ConnectionPool pool, Connection connection)
+        {
+            this.pool = pool;
+            this.connection = connection;
+        }
+
+        /**
+         * Get the underlying connection, i.e. to create plain statements. It must not be closed.
+         *
+         * @return the connection
+         */
+        @NotNull Connection connection()
+        {
+            return this.connection;
+        }
+
+        /**
+         * Get a prepared statement for some SQL, reusing the one prepared earlier on this connection if any.
+         * Its parameters and any unsent batch are cleared. It must not be closed.
+         *
+         * <p>Nested borrows share the connection and so its statements: while a statement is in use, i.e. holding a
+         * batch not yet executed, nothing called on the same thread may prepare the same SQL.
+         *
+         * @param sql the SQL
+         * @return the prepared statement
+         * @throws SQLException if the statement cannot be prepared
+         */
+        @NotNull PreparedStatement prepare(@NotNull String sql) throws SQLException
+        {
+            PreparedStatement statement = this.statements.get(sql);
+            if (statement != null && !statement.isClosed())
+            {
+                statement.clearParameters();
+                statement.clearBatch();
+                return statement;
+            }
+
+            statement = this.connection.prepareStatement(sql);
+            this.statements.put(sql, statement);
+            return statement;
+        }
+
+        /**
+         * Return the connection to the pool once the outermost borrow is done with it.
+         */
+        @Override
+        public void close()
+        {
+            if (--this.depth == 0) this.pool.release(this);
+        }
+
+        private boolean isUsable(long validateAfterIdleMillis)
+        {
+            try
+            {
+                if (this.connection.isClosed()) return false;
+                if (System.currentTimeMillis() - this.returnedAt < validateAfterIdleMillis) return true;
+                return this.connection.isValid(3);
+            }
+            catch (SQLException e)
+            {
+                return false;
+            }
+        }
+
+        //undoes anything a borrower left behind, returning false if the connection can't be reused
+        private boolean reset()
+        {
+            try
+            {
+                if (this.connection.isClosed()) return false;
+                if (!this.connection.getAutoCommit())
+                {
+                    this.connection.rollback();
+                    this.connection.setAutoCommit(true);
+                }
+                return true;
+            }
+            catch (SQLException e)
+            {
+                return false;
+            }
+        }
+
+        private void closePhysical()
+        {
+            for (PreparedStatement statement : this.statements.values())
+            {
+                try
+                {
+                    statement.close();
+                }
+                catch (SQLException ignored) { }
+            }
+            this.statements.clear();
+
+            try
+            {
+                this.connection.close();
+            }
+            catch (SQLException ignored) { }
+        }
+
+    }
+
+}
@@ -19,6 +19,7 @@
 package me.ryanhamshire.GriefPrevention;
 
 import com.google.common.io.Files;
+import com.griefprevention.util.CoalescingWriteQueue;
 import com.griefprevention.visualization.BoundaryVisualization;
 import com.griefprevention.visualization.VisualizationType;
 import me.ryanhamshire.GriefPrevention.events.ClaimCreatedEvent;
@@ -36,6 +37,7 @@ import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
@@ -47,8 +49,9 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -64,15 +67,34 @@ public abstract class DataStore
 
     //in-memory cache for player data
     protected ConcurrentHashMap<UUID, PlayerData> playerNameToPlayerDataMap = new ConcurrentHashMap<>();
+    //player data loaded ahead of a login, claimed by getPlayerData once the player joins; unclaimed entries expire
+    private final ConcurrentHashMap<UUID, PrefetchedPlayerData> prefetchedPlayerData = new ConcurrentHashMap<>();
+    private static final long PLAYER_DATA_PREFETCH_EXPIRY_MILLIS = 60 * 1000;
 
     //in-memory cache for group (permission-based) data
     protected ConcurrentHashMap<String, Integer> permissionToBonusBlocksMap = new ConcurrentHashMap<>();
+    private volatile long groupBonusVersion = 0;
 
     //in-memory cache for claim data
     ArrayList<Claim> claims = new ArrayList<>();
     // claim id to claim cache
     public final Map<Long, Claim> claimIDMap = new ConcurrentHashMap<>();
-    ConcurrentHashMap<Long, ArrayList<Claim>> chunksToClaimsMap = new ConcurrentHashMap<>();
+    final ChunkClaimIndex chunkClaimIndex = new ChunkClaimIndex();
+    // owner id to top level claims, admin claims under null; guarded by this
+    private final Map<UUID, Set<Claim>> claimsByOwner = new HashMap<>();
+    // reverse trust index from trustee (player UUID, "public" or "[permission]") to claim ids,
+    // plus each claim's indexed trustees for diffing; guarded by trustIndexLock
+    private final Object trustIndexLock = new Object();
+    private final Map<String, Set<Long>> trusteeToClaimIDs = new HashMap<>();
+    private final Map<Long, Set<String>> claimIDToTrustees = new HashMap<>();
+    // claim writes and deletions prepared on the calling thread, performed in the background, latest per claim id
+    private final CoalescingWriteQueue<Long, Runnable> claimWriteQueue = new CoalescingWriteQueue<>(
+            "GriefPrevention Claim Writer", (claimID, write) -> write.run(), this::claimWritesCompleted,
+            GriefPrevention.instance == null ? 0 : GriefPrevention.instance.config_advanced_claimWriteDelayMilliseconds);
+    // player data saves waiting for the background writer, at most one per player; the latest state is read at write time
+    private final CoalescingWriteQueue<UUID, PlayerData> playerDataSaveQueue = new CoalescingWriteQueue<>(
+            "GriefPrevention Player Data Writer", this::writeQueuedPlayerData, this::playerDataWritesCompleted,
+            GriefPrevention.instance == null ? 0 : GriefPrevention.instance.config_advanced_playerDataWriteDelayMilliseconds);
 
     //in-memory cache for messages
     private String[] messages;
@@ -94,6 +116,12 @@ public abstract class DataStore
     //the latest version of the data schema implemented here
     protected static final int latestSchemaVersion = 3;
 
+    //the latest schema version of this data store, which may be ahead of the shared format above
+    int getLatestSchemaVersion()
+    {
+        return latestSchemaVersion;
+    }
+
     //reading and writing the schema version to the data store
     abstract int getSchemaVersionFromStorage();
 
@@ -134,6 +162,22 @@ public abstract class DataStore
     {
         GriefPrevention.AddLogEntry(this.claims.size() + " total claims loaded.");
 
+        //loaders may attach subdivisions directly, so index everything from scratch in a single version
+        synchronized (this)
+        {
+            this.chunkClaimIndex.rebuild(this.claims);
+
+            //likewise make sure every subdivision can be found by ID and by its trustees
+            for (Claim claim : this.claims)
+            {
+                for (Claim child : claim.children)
+                {
+                    if (child.id != null) this.claimIDMap.put(child.id, child);
+                    this.reindexTrust(child);
+                }
+            }
+        }
+
         //RoboMWM: ensure the nextClaimID is greater than any other claim ID. If not, data corruption occurred (out of storage space, usually).
         for (Claim claim : this.claims)
         {
@@ -158,7 +202,7 @@ public abstract class DataStore
         GriefPrevention.AddLogEntry("Customizable messages loaded.");
 
         //if converting up from an earlier schema version, write all claims back to storage using the latest format
-        if (this.getSchemaVersion() < latestSchemaVersion)
+        if (this.getSchemaVersion() < this.getLatestSchemaVersion())
         {
             GriefPrevention.AddLogEntry("Please wait.  Updating data format.");
 
@@ -186,7 +230,7 @@ public abstract class DataStore
         this.loadSoftMutes();
 
         //make a note of the data store schema version
-        this.setSchemaVersion(latestSchemaVersion);
+        this.setSchemaVersion(this.getLatestSchemaVersion());
 
     }
 
@@ -334,12 +378,24 @@ public abstract class DataStore
     //gets the number of bonus blocks a player has from his permissions
     //Bukkit doesn't allow for checking permissions of an offline player.
     //this will return 0 when he's offline, and the correct number when online.
-    synchronized public int getGroupBonusBlocks(UUID playerID)
+    public int getGroupBonusBlocks(UUID playerID)
     {
         Player player = GriefPrevention.instance.getServer().getPlayer(playerID);
 
         if (player == null) return 0;
 
+        return this.getPlayerData(playerID).getGroupBonusBlocks(player);
+    }
+
+    //version of the group bonus map, advanced whenever a group's bonus changes so cached per-player sums are redone
+    long getGroupBonusVersion()
+    {
+        return this.groupBonusVersion;
+    }
+
+    //sums the bonus blocks of every group the player is a member of
+    int calculateGroupBonusBlocks(Player player)
+    {
         int bonusBlocks = 0;
 
         for (Map.Entry<String, Integer> groupEntry : this.permissionToBonusBlocksMap.entrySet())
@@ -361,6 +417,7 @@ public abstract class DataStore
 
         currentValue += amount;
         this.permissionToBonusBlocksMap.put(groupName, currentValue);
+        this.groupBonusVersion++;
 
         //write changes to storage to ensure they don't get lost
         this.saveGroupBonusBlocks(groupName, currentValue);
@@ -413,7 +470,10 @@ public abstract class DataStore
         }
 
         //transfer
+        this.removeFromOwnerIndex(claim);
         claim.ownerID = event.getNewOwner();
+        PermissionDecisionCache.invalidateAll();
+        this.addToOwnerIndex(claim);
         this.saveClaim(claim);
 
         //adjust blocks and other records
@@ -439,22 +499,26 @@ public abstract class DataStore
                 newClaim.parent.children.add(newClaim);
             }
             
-            // 3D subdivisions need to be added to chunk claims map so getClaimAt can find them
-            if (newClaim.is3D())
-            {
-                addToChunkClaimMap(newClaim);
-            }
+            // 3D subdivisions need to be added to chunk claims map so getClaimAt can find them,
+            // and the parent's entry must pick up the new child
+            addToChunkClaimMap(newClaim);
             
             newClaim.inDataStore = true;
+            this.reindexTrust(newClaim);
             if (writeToStorage)
             {
                 this.saveClaim(newClaim);
             }
+            if (newClaim.id != null)
+            {
+                this.claimIDMap.put(newClaim.id, newClaim);
+            }
             return;
         }
 
         //add it and mark it as added
         this.claims.add(newClaim);
+        this.addToOwnerIndex(newClaim);
         this.claimIDMap.put(newClaim.id, newClaim);
         for (Claim child : newClaim.children)
         {
@@ -463,6 +527,11 @@ public abstract class DataStore
         addToChunkClaimMap(newClaim);
 
         newClaim.inDataStore = true;
+        this.reindexTrust(newClaim);
+        for (Claim child : newClaim.children)
+        {
+            if (child.inDataStore) this.reindexTrust(child);
+        }
 
         //except for administrative claims (which have no owner), update the owner's playerData with the new claim
         if (!newClaim.isAdminClaim() && writeToStorage)
@@ -487,48 +556,42 @@ public abstract class DataStore
 
     private void addToChunkClaimMap(Claim claim)
     {
-        // Regular subclaims should not be added to chunk claim map, but 3D subdivisions should be
-        // because they need to be independently discoverable by getClaimAt for trust commands
-        if (claim.parent != null && !claim.is3D()) return;
-
-        ArrayList<Long> chunkHashes = claim.getChunkHashes();
-        for (Long chunkHash : chunkHashes)
+        this.chunkClaimIndex.beginBatch();
+        try
         {
-            ArrayList<Claim> claimsInChunk = this.chunksToClaimsMap.get(chunkHash);
-            if (claimsInChunk == null)
+            // Subdivisions are captured in their parent's index entry, so the parent is republished with them.
+            // Regular subdivisions are not indexed on their own, but 3D subdivisions are
+            // because they need to be independently discoverable by getClaimAt for trust commands
+            if (claim.parent != null)
             {
-                this.chunksToClaimsMap.put(chunkHash, claimsInChunk = new ArrayList<>());
+                this.chunkClaimIndex.refresh(claim.parent);
+                if (!claim.is3D()) return;
             }
 
-            claimsInChunk.add(claim);
+            this.chunkClaimIndex.add(claim);
+        }
+        finally
+        {
+            this.chunkClaimIndex.endBatch();
         }
     }
 
     private void removeFromChunkClaimMap(Claim claim)
     {
-        // Only remove claims that were added to the chunk map (regular claims and 3D subdivisions)
-        if (claim.parent != null && !claim.is3D()) return;
-        
-        ArrayList<Long> chunkHashes = claim.getChunkHashes();
-        for (Long chunkHash : chunkHashes)
+        this.chunkClaimIndex.beginBatch();
+        try
         {
-            ArrayList<Claim> claimsInChunk = this.chunksToClaimsMap.get(chunkHash);
-            if (claimsInChunk != null)
+            if (claim.parent != null)
             {
-                for (Iterator<Claim> it = claimsInChunk.iterator(); it.hasNext(); )
-                {
-                    Claim c = it.next();
-                    if (c.id.equals(claim.id))
-                    {
-                        it.remove();
-                        break;
-                    }
-                }
-                if (claimsInChunk.isEmpty())
-                { // if nothing's left, remove this chunk's cache
-                    this.chunksToClaimsMap.remove(chunkHash);
-                }
+                this.chunkClaimIndex.refresh(claim.parent);
             }
+
+            // Only claims that were indexed on their own (regular claims and 3D subdivisions) are removed
+            this.chunkClaimIndex.remove(claim);
+        }
+        finally
+        {
+            this.chunkClaimIndex.endBatch();
         }
     }
 
@@ -594,7 +657,10 @@ public abstract class DataStore
     {
         assignClaimID(claim);
 
-        this.writeClaimToStorage(claim);
+        //pick up any grants made by editing the claim's lists directly
+        this.reindexTrust(claim);
+
+        this.claimWriteQueue.submit(claim.id, this.prepareClaimWrite(claim));
     }
 
     private void assignClaimID(Claim claim)
@@ -609,27 +675,126 @@ public abstract class DataStore
 
     abstract void writeClaimToStorage(Claim claim);
 
+    /**
+     * Capture everything needed to write a claim so that the write can happen later on another thread.
+     * Called while the claim is consistent; the returned task must not read the claim again.
+     *
+     * @param claim the claim to write
+     * @return the task that writes the claim to storage
+     */
+    @NotNull Runnable prepareClaimWrite(@NotNull Claim claim)
+    {
+        return () -> this.writeClaimToStorage(claim);
+    }
+
+    /**
+     * Capture everything needed to delete a claim from storage so that it can happen later on another thread.
+     *
+     * @param claim the claim to delete
+     * @return the task that deletes the claim from storage
+     */
+    @NotNull Runnable prepareClaimDeletion(@NotNull Claim claim)
+    {
+        return () -> this.deleteClaimFromSecondaryStorage(claim);
+    }
+
+    /**
+     * Called on the claim writer's thread after each batch of claim writes, i.e. to sync them together.
+     */
+    void claimWritesCompleted()
+    {
+    }
+
+    /**
+     * Get the queue of claim changes waiting to be written, i.e. to monitor its depth and write latency.
+     *
+     * @return the claim write queue
+     */
+    public @NotNull CoalescingWriteQueue<Long, ?> getClaimWriteQueue()
+    {
+        return this.claimWriteQueue;
+    }
+
+    /**
+     * Write all queued claim changes now and wait for them to finish.
+     * Must not be called while holding the data store's lock, which storage may need to write.
+     */
+    void flushClaimWrites()
+    {
+        this.claimWriteQueue.flush();
+    }
+
     //increments the claim ID and updates secondary storage to be sure it's saved
     abstract void incrementNextClaimID();
 
     //retrieves player data from memory or secondary storage, as necessary
     //if the player has never been on the server before, this will return a fresh player data with default values
-    synchronized public PlayerData getPlayerData(UUID playerID)
+    public PlayerData getPlayerData(UUID playerID)
     {
         //first, look in memory
-        PlayerData playerData = this.playerNameToPlayerDataMap.get(playerID);
-
         //if not there, build a fresh instance with some blanks for what may be in secondary storage
+        //and shove that new player data into the hash map cache
+        return this.playerNameToPlayerDataMap.computeIfAbsent(playerID, id ->
+        {
+            //use anything loaded ahead of time while the player was logging in
+            PrefetchedPlayerData prefetched = this.prefetchedPlayerData.remove(id);
+            if (prefetched != null) return prefetched.playerData();
+
+            PlayerData playerData = new PlayerData();
+            playerData.playerID = id;
+            return playerData;
+        });
+    }
+
+    private record PrefetchedPlayerData(PlayerData playerData, long loadedAt) { }
+
+    /**
+     * Load a player's stored data and ignore list before they log in, so the login and join handlers on the
+     * main thread only read memory. Called from {@link org.bukkit.event.player.AsyncPlayerPreLoginEvent}.
+     *
+     * <p>Data for players whose login doesn't complete is discarded after a minute.
+     *
+     * @param playerID the UUID of the player logging in
+     */
+    void prefetchPlayerData(@NotNull UUID playerID)
+    {
+        long now = System.currentTimeMillis();
+        this.prefetchedPlayerData.values().removeIf(prefetched -> now - prefetched.loadedAt() > PLAYER_DATA_PREFETCH_EXPIRY_MILLIS);
+
+        PlayerData playerData = this.playerNameToPlayerDataMap.get(playerID);
         if (playerData == null)
         {
-            playerData = new PlayerData();
-            playerData.playerID = playerID;
+            playerData = this.prefetchedPlayerData.computeIfAbsent(playerID, id ->
+            {
+                PlayerData newData = new PlayerData();
+                newData.playerID = id;
+                return new PrefetchedPlayerData(newData, now);
+            }).playerData();
+        }
+
+        //finish any save still queued from a previous session first, here where no locks are held
+        this.playerDataSaveQueue.flush(playerID);
+
+        //claim block counts are loaded together, owned claims come from the in-memory owner index when needed
+        playerData.getAccruedClaimBlocks();
 
-            //shove that new player data into the hash map cache
-            this.playerNameToPlayerDataMap.put(playerID, playerData);
+        if (!playerData.ignoreListLoaded)
+        {
+            //already off the main thread, so load in place rather than starting another thread
+            new IgnoreLoaderThread(playerID, playerData.ignoredPlayers).run();
+            playerData.ignoreListLoaded = true;
         }
+    }
 
-        return playerData;
+    //reads a player's stored data for an in-memory player data that hasn't loaded it yet
+    //callers may hold locks the player data writer needs, so this never waits on the writer
+    PlayerData readPlayerData(PlayerData playerData)
+    {
+        //a save still queued for another copy of this player's data is newer than storage
+        PlayerData queued = this.playerDataSaveQueue.peek(playerData.playerID);
+        if (queued != null && queued != playerData && queued.isStorageDataLoaded()) return queued;
+
+        return this.getPlayerDataFromStorage(playerData.playerID);
     }
 
     abstract PlayerData getPlayerDataFromStorage(UUID playerID);
@@ -649,6 +814,160 @@ public abstract class DataStore
         this.deleteClaim(claim, true, false);
     }
 
+    private void addToOwnerIndex(Claim claim)
+    {
+        if (this.claimsByOwner.computeIfAbsent(claim.ownerID, ownerID -> new LinkedHashSet<>()).add(claim))
+        {
+            this.adjustClaimedArea(claim.ownerID, claim.getArea());
+        }
+    }
+
+    private void removeFromOwnerIndex(Claim claim)
+    {
+        Set<Claim> owned = this.claimsByOwner.get(claim.ownerID);
+        if (owned != null && owned.remove(claim))
+        {
+            this.adjustClaimedArea(claim.ownerID, -claim.getArea());
+            if (owned.isEmpty()) this.claimsByOwner.remove(claim.ownerID);
+        }
+    }
+
+    //keeps the running claimed area of loaded player data in step with the owner index
+    private void adjustClaimedArea(UUID ownerID, long delta)
+    {
+        if (ownerID == null || delta == 0) return;
+
+        PlayerData playerData = this.playerNameToPlayerDataMap.get(ownerID);
+        if (playerData != null && playerData.claimedArea >= 0)
+        {
+            playerData.claimedArea += delta;
+        }
+    }
+
+    /**
+     * Get the total area of a player's top level claims, calculating it from the owner index the first time it
+     * is needed. Afterwards the total is kept up to date as claims are added, removed, resized and transferred.
+     *
+     * @param playerData the player's data
+     * @return the total claimed area
+     */
+    synchronized long initializeClaimedArea(PlayerData playerData)
+    {
+        if (playerData.claimedArea < 0)
+        {
+            long area = 0;
+            Set<Claim> owned = this.claimsByOwner.get(playerData.playerID);
+            if (owned != null)
+            {
+                for (Claim claim : owned)
+                {
+                    if (claim.inDataStore) area += claim.getArea();
+                }
+            }
+            playerData.claimedArea = area;
+        }
+        return playerData.claimedArea;
+    }
+
+    /**
+     * Bring the reverse trust index up to date with a claim's current grants. Claims which are not in the
+     * data store are removed from the index.
+     *
+     * @param claim the claim
+     */
+    void reindexTrust(@NotNull Claim claim)
+    {
+        Long claimID = claim.getID();
+        if (claimID == null) return;
+
+        Set<String> trustees = new HashSet<>();
+        if (claim.inDataStore)
+        {
+            ArrayList<String> identifiers = new ArrayList<>();
+            // Every permission level lands in the same list; only the identifiers matter here.
+            claim.getPermissions(identifiers, identifiers, identifiers, identifiers);
+            for (String identifier : identifiers)
+            {
+                trustees.add(identifier.toLowerCase());
+            }
+        }
+
+        synchronized (this.trustIndexLock)
+        {
+            Set<String> previous = trustees.isEmpty()
+                    ? this.claimIDToTrustees.remove(claimID)
+                    : this.claimIDToTrustees.put(claimID, trustees);
+
+            if (previous != null)
+            {
+                for (String trustee : previous)
+                {
+                    if (trustees.contains(trustee)) continue;
+                    Set<Long> claimIDs = this.trusteeToClaimIDs.get(trustee);
+                    if (claimIDs != null && claimIDs.remove(claimID) && claimIDs.isEmpty())
+                    {
+                        this.trusteeToClaimIDs.remove(trustee);
+                    }
+                }
+            }
+
+            for (String trustee : trustees)
+            {
+                if (previous != null && previous.contains(trustee)) continue;
+                this.trusteeToClaimIDs.computeIfAbsent(trustee, key -> new HashSet<>()).add(claimID);
+            }
+        }
+    }
+
+    /**
+     * Get the claims and subdivisions granting any permission to a trustee.
+     *
+     * @param identifier the trustee: a player UUID, "public" or a bracketed permission
+     * @return a snapshot of the claims trusting the identifier
+     */
+    public @NotNull List<Claim> getClaimsTrusting(@NotNull String identifier)
+    {
+        Long[] claimIDs;
+        synchronized (this.trustIndexLock)
+        {
+            Set<Long> indexed = this.trusteeToClaimIDs.get(identifier.toLowerCase());
+            if (indexed == null) return new ArrayList<>();
+            claimIDs = indexed.toArray(new Long[0]);
+        }
+
+        List<Claim> claims = new ArrayList<>(claimIDs.length);
+        for (Long claimID : claimIDs)
+        {
+            Claim claim = this.claimIDMap.get(claimID);
+            if (claim != null && claim.inDataStore) claims.add(claim);
+        }
+        return claims;
+    }
+
+    /**
+     * Get the top level claims owned by a player.
+     *
+     * @param ownerID the owner's UUID, or {@code null} for administrative claims
+     * @return a snapshot of the owned claims in the order they were added
+     */
+    synchronized @NotNull List<Claim> getClaimsOwnedBy(@Nullable UUID ownerID)
+    {
+        Set<Claim> owned = this.claimsByOwner.get(ownerID);
+        return owned == null ? new ArrayList<>() : new ArrayList<>(owned);
+    }
+
+    /**
+     * Get the UUIDs of all players owning at least one top level claim.
+     *
+     * @return a snapshot of the claim owners' UUIDs
+     */
+    synchronized @NotNull List<UUID> getClaimOwnerIDs()
+    {
+        List<UUID> ownerIDs = new ArrayList<>(this.claimsByOwner.keySet());
+        ownerIDs.remove(null);
+        return ownerIDs;
+    }
+
     synchronized void deleteClaim(Claim claim, boolean fireEvent, boolean ignored)
     {
         // delete any children (iterate over a snapshot to avoid skipping due to parent list mutation)
@@ -670,6 +989,7 @@ public abstract class DataStore
 
         //mark as deleted so any references elsewhere can be ignored
         claim.inDataStore = false;
+        this.reindexTrust(claim);
 
         //remove from memory
         for (int i = 0; i < this.claims.size(); i++)
@@ -680,6 +1000,10 @@ public abstract class DataStore
                 break;
             }
         }
+        if (claim.parent == null)
+        {
+            this.removeFromOwnerIndex(claim);
+        }
 
         claimIDMap.remove(claim.id);
         for (Claim child : claim.children)
@@ -690,7 +1014,7 @@ public abstract class DataStore
         removeFromChunkClaimMap(claim);
 
         //remove from secondary storage
-        this.deleteClaimFromSecondaryStorage(claim);
+        this.claimWriteQueue.submit(claim.id, this.prepareClaimDeletion(claim));
 
         //update player data
         if (claim.ownerID != null)
@@ -738,245 +1062,294 @@ public abstract class DataStore
     //gets the claim at a specific location
     //ignoreHeight = TRUE means that a location UNDER an existing claim will return the claim
     //cachedClaim can be NULL, but will help performance if you have a reasonable guess about which claim the location is in
-    synchronized public Claim getClaimAt(Location location, boolean ignoreHeight, Claim cachedClaim)
+    public Claim getClaimAt(Location location, boolean ignoreHeight, Claim cachedClaim)
     {
         return getClaimAt(location, ignoreHeight, false, cachedClaim);
     }
 
+    /**
+     * Get the claim at a specific location on behalf of a player.
+     *
+     * <p>The player's previous lookup is reused without searching the claim index if it was made in the same chunk,
+     * no claim overlapping the chunk has been added, removed or resized since, and its claim is still the most
+     * specific one at the location. Otherwise the player's last claim is used as the cached claim.
+     *
+     * @param location the location
+     * @param ignoreHeight whether or not to check containment vertically
+     * @param playerData the data of the player the lookup is made for
+     * @return the claim containing the location or null if no claim exists there
+     */
+    public Claim getClaimAtFor(Location location, boolean ignoreHeight, @NotNull PlayerData playerData)
+    {
+        World world = location.getWorld();
+        if (world == null) return null;
+
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        ChunkClaimIndex.Bucket bucket = this.chunkClaimIndex.getBucket(world, x >> 4, z >> 4);
+        long chunkEpoch = bucket == null ? 0 : bucket.epoch;
+
+        PlayerData.ClaimLookup previous = playerData.lastLookup;
+        if (previous != null && previous.answers(world, x, y, z, ignoreHeight, chunkEpoch))
+        {
+            return previous.claim();
+        }
+
+        // The bucket was read first, so a concurrent change can only make this entry stale, never wrong.
+        Claim claim = getClaimAt(location, ignoreHeight, false, playerData.lastClaim);
+        PlayerData.ClaimLookup lookup = PlayerData.ClaimLookup.capture(world, x, z, ignoreHeight, bucket, claim);
+        if (lookup != null) playerData.lastLookup = lookup;
+        return claim;
+    }
+
+    /**
+     * Get the current claim mutation epoch. The epoch changes whenever a claim is added, removed or resized,
+     * so anything derived from claim bounds can be cached against it.
+     *
+     * @return the current epoch
+     */
+    public long getClaimMutationEpoch()
+    {
+        return this.chunkClaimIndex.getEpoch();
+    }
+
     /**
      * Get the claim at a specific location.
      *
      * <p>The cached claim may be null, but will increase performance if you have a reasonable idea
      * of which claim is correct.
      *
+     * <p>Lookups are served from the published {@link ChunkClaimIndex} version and never block on writers.
+     * Claim bounds are read from the index's immutable entries, so a concurrent resize is observed either
+     * entirely or not at all.
+     *
      * @param location the location
      * @param ignoreHeight whether or not to check containment vertically
      * @param ignoreSubclaims whether or not subclaims should be returned over claims
      * @param cachedClaim the cached claim, if any
      * @return the claim containing the location or null if no claim exists there
      */
-    synchronized public Claim getClaimAt(Location location, boolean ignoreHeight, boolean ignoreSubclaims, Claim cachedClaim)
+    public Claim getClaimAt(Location location, boolean ignoreHeight, boolean ignoreSubclaims, Claim cachedClaim)
     {
+        World world = location.getWorld();
+        if (world == null) return null;
+
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+
+        // Check all claims in the same chunk as the location
+        ChunkClaimIndex.Bucket bucket = this.chunkClaimIndex.getBucket(world, x >> 4, z >> 4);
+        if (bucket == null) return null;
+
+        // Columns without 3D subdivisions are answered by the chunk's precomputed grid.
+        // A cached subdivision may legitimately win over the grid's answer, so it takes the full path below.
+        if (GriefPrevention.instance.config_advanced_claimColumnGrid && (cachedClaim == null || cachedClaim.parent == null))
+        {
+            ClaimColumnGrid.Column column = bucket.getColumnGrid().get(x, z);
+            if (!column.has3D())
+            {
+                // Top level claims only span the world's height
+                if (!ignoreHeight && (y < world.getMinHeight() || y > world.getMaxHeight())) return null;
+
+                ChunkClaimIndex.Entry resolved = ignoreSubclaims ? column.claimExcludingSubdivisions() : column.claim();
+                if (resolved == null) return null;
+                // A claim being deleted may still be indexed for a moment; let the full search skip it.
+                if (resolved.claim.inDataStore) return resolved.claim;
+            }
+        }
+
+        ChunkClaimIndex.Entry[] claimsInChunk = bucket.entries;
+
         // Check cached claim first, but don't prematurely return a non-3D claim if a more specific 3D subclaim exists.
-        if (cachedClaim != null && cachedClaim.inDataStore && cachedClaim.contains(location, ignoreHeight, ignoreSubclaims))
+        ChunkClaimIndex.Entry cached = cachedClaim != null && cachedClaim.inDataStore ? findEntry(claimsInChunk, cachedClaim) : null;
+        if (cached != null && cached.contains(world, x, y, z, ignoreHeight, ignoreSubclaims))
         {
-            final boolean cachedAcceptsY = !cachedClaim.is3D() || cachedClaim.containsY(location.getBlockY());
-            if (cachedAcceptsY)
+            if (cached.containsY(y))
             {
                 if (!ignoreSubclaims)
                 {
-                    // Look for a more specific 3D claim within the same chunks that contains this location including Y.
-                    Set<Claim> claimsInChunks = this.getChunkClaims(location.getWorld(), new BoundingBox(location.getBlock()));
-                    Claim better3D = null;
-                    for (Claim claim : claimsInChunks)
-                    {
-                        if (!claim.contains(location, false /* respect height */, false)) continue;
-                        if (!claim.is3D()) continue;
-                        // Prefer smallest Y-range, then area
-                        if (better3D == null)
-                        {
-                            better3D = claim;
-                        }
-                        else
-                        {
-                            int currentYRange = claim.getGreaterBoundaryCorner().getBlockY() - claim.getLesserBoundaryCorner().getBlockY();
-                            int bestYRange = better3D.getGreaterBoundaryCorner().getBlockY() - better3D.getLesserBoundaryCorner().getBlockY();
-                            
-                            // Prefer the claim with smaller Y-range (more specific), or smaller area if Y-ranges are equal
-                            if (currentYRange < bestYRange || 
-                                (currentYRange == bestYRange && claim.getArea() < better3D.getArea()))
-                            {
-                                better3D = claim;
-                            }
-                        }
-                    }
+                    // Look for a more specific 3D claim within the same chunk that contains this location including Y.
+                    ChunkClaimIndex.Entry better3D = findMostSpecific3D(bucket.topLevelEntries, x, y, z);
                     if (better3D != null)
                     {
-                        return better3D;
+                        return better3D.claim;
                     }
 
                     // Prefer a matching child (handles 2D subdivisions) when cached claim is a parent
-                    if (cachedClaim.parent == null && !cachedClaim.children.isEmpty())
+                    ChunkClaimIndex.Entry bestChild = findBestChild(cached, world, x, y, z);
+                    if (bestChild != null)
                     {
-                        Claim bestChild = null;
-                        for (Claim child : cachedClaim.children)
-                        {
-                            if (!child.inDataStore) continue;
-                            // For child.contains: for 2D children, height is effectively ignored;
-                            // for 3D children, Y is enforced because ignoreHeight=false
-                            if (!child.contains(location, false /* respect height where applicable */, false)) continue;
-
-                            if (bestChild == null)
-                            {
-                                bestChild = child;
-                            }
-                            else
-                            {
-                                boolean bestIs3D = bestChild.is3D();
-                                boolean currIs3D = child.is3D();
-
-                                if (bestIs3D && currIs3D)
-                                {
-                                    int bestYRange = bestChild.getGreaterBoundaryCorner().getBlockY() - bestChild.getLesserBoundaryCorner().getBlockY();
-                                    int currYRange = child.getGreaterBoundaryCorner().getBlockY() - child.getLesserBoundaryCorner().getBlockY();
-                                    if (currYRange < bestYRange || (currYRange == bestYRange && child.getArea() < bestChild.getArea()))
-                                    {
-                                        bestChild = child;
-                                    }
-                                }
-                                else if (!bestIs3D && currIs3D)
-                                {
-                                    bestChild = child; // prefer 3D over 2D if both match
-                                }
-                                else if (!bestIs3D && !currIs3D)
-                                {
-                                    if (child.getArea() < bestChild.getArea())
-                                    {
-                                        bestChild = child;
-                                    }
-                                }
-                            }
-                        }
-                        if (bestChild != null)
-                        {
-                            return bestChild;
-                        }
+                        return bestChild.claim;
                     }
                 }
-                // No better claim found; return cached or matching child from above.
+                // No better claim found; return cached.
                 return cachedClaim;
             }
             // If cached is 3D but doesn't accept Y, continue to full search below.
         }
 
-        // Check all claims in the same chunks as the location
-        Set<Claim> claimsInChunks = this.getChunkClaims(location.getWorld(), new BoundingBox(location.getBlock()));
-        if (claimsInChunks.isEmpty()) return null;
-
         // Find the smallest claim that contains the location
-        Claim smallestClaim = null;
-        Claim smallest3DClaim = null;
-        
-        for (Claim claim : claimsInChunks)
+        ChunkClaimIndex.Entry smallestClaim = null;
+        ChunkClaimIndex.Entry smallest3DClaim = null;
+
+        for (ChunkClaimIndex.Entry entry : bucket.topLevelEntries)
         {
-            // Skip if the claim doesn't contain the location
-            if (!claim.contains(location, ignoreHeight, ignoreSubclaims)) continue;
+            if (!entry.containsColumn(x, z)) continue;
 
-            // For 3D claims, verify Y coordinate
-            if (claim.is3D())
+            // 3D subdivisions are reached through their parent's tree instead of being scanned one by one.
+            if (entry.subdivisions3D != null)
             {
-                if (claim.containsY(location.getBlockY()))
+                if (ignoreHeight)
                 {
-                    // If we don't have a 3D claim yet, or this one is more specific (smaller Y-range), take it
-                    if (smallest3DClaim == null)
-                    {
-                        smallest3DClaim = claim;
-                    }
-                    else
+                    List<ChunkClaimIndex.Entry> stacked = new ArrayList<>();
+                    entry.subdivisions3D.forEachIntersecting(x, Integer.MIN_VALUE, z, x, Integer.MAX_VALUE, z, stacked::add);
+                    for (ChunkClaimIndex.Entry subdivision : stacked)
                     {
-                        // Calculate Y-range for both claims
-                        int currentYRange = claim.getGreaterBoundaryCorner().getBlockY() - claim.getLesserBoundaryCorner().getBlockY();
-                        int smallestYRange = smallest3DClaim.getGreaterBoundaryCorner().getBlockY() - smallest3DClaim.getLesserBoundaryCorner().getBlockY();
-                        
-                        // Prefer the claim with smaller Y-range (more specific), or smaller area if Y-ranges are equal
-                        if (currentYRange < smallestYRange || 
-                            (currentYRange == smallestYRange && claim.getArea() < smallest3DClaim.getArea()))
+                        if (!subdivision.claim.inDataStore) continue;
+                        if (subdivision.containsY(y))
                         {
-                            smallest3DClaim = claim;
+                            if (smallest3DClaim == null || isMoreSpecific3D(subdivision, smallest3DClaim))
+                            {
+                                smallest3DClaim = subdivision;
+                            }
+                        }
+                        else if (smallestClaim == null || subdivision.area < smallestClaim.area)
+                        {
+                            smallestClaim = subdivision;
                         }
                     }
                 }
                 else
                 {
-                    // 3D claim doesn't contain Y coordinate, treat it as a regular claim fallback
-                    if (smallestClaim == null || claim.getArea() < smallestClaim.getArea())
+                    ChunkClaimIndex.Entry subdivision = entry.subdivisions3D.findMostSpecific(x, y, z);
+                    if (subdivision != null && (smallest3DClaim == null || isMoreSpecific3D(subdivision, smallest3DClaim)))
                     {
-                        smallestClaim = claim;
+                        smallest3DClaim = subdivision;
                     }
                 }
             }
-            else
+
+            if (!entry.claim.inDataStore) continue;
+
+            // Skip if the claim doesn't contain the location
+            if (!entry.contains(world, x, y, z, ignoreHeight, ignoreSubclaims)) continue;
+
+            // For 3D claims, verify Y coordinate
+            if (entry.is3D && entry.containsY(y))
             {
-                // For non-3D claims, find the smallest one
-                if (smallestClaim == null || claim.getArea() < smallestClaim.getArea())
+                // Prefer the claim with smaller Y-range (more specific), or smaller area if Y-ranges are equal
+                if (smallest3DClaim == null || isMoreSpecific3D(entry, smallest3DClaim))
                 {
-                    smallestClaim = claim;
+                    smallest3DClaim = entry;
                 }
             }
+            // Non-3D claims, and 3D claims that don't contain the Y coordinate, fall back to the smallest area
+            else if (smallestClaim == null || entry.area < smallestClaim.area)
+            {
+                smallestClaim = entry;
+            }
         }
 
         // Return 3D claim if found, otherwise return smallest non-3D claim
-        Claim result = smallest3DClaim != null ? smallest3DClaim : smallestClaim;
+        ChunkClaimIndex.Entry result = smallest3DClaim != null ? smallest3DClaim : smallestClaim;
+        if (result == null) return null;
 
-        // If we have both a 3D and 2D claim, but the 3D claim doesn't contain the Y coordinate,
-        // we should still prefer the 2D claim over the 3D one if the 3D claim's Y range doesn't match
-        if (smallest3DClaim != null && smallestClaim != null && smallest3DClaim != smallestClaim) {
-            if (!smallest3DClaim.containsY(location.getBlockY())) {
-                // If the 3D claim doesn't contain the Y coordinate, prefer the 2D claim
-                result = smallestClaim;
+        // If subclaims are allowed and a parent claim was selected, prefer a matching child (handles 2D subdivisions)
+        if (!ignoreSubclaims)
+        {
+            ChunkClaimIndex.Entry bestChild = findBestChild(result, world, x, y, z);
+            if (bestChild != null)
+            {
+                result = bestChild;
             }
         }
 
-        // If subclaims are allowed and a parent claim was selected, prefer a matching child (handles 2D subdivisions)
-        if (!ignoreSubclaims && result != null && result.parent == null && !result.children.isEmpty())
+        // Return the most specific claim found at this location
+        return result.claim;
+    }
+
+    private static ChunkClaimIndex.Entry findEntry(ChunkClaimIndex.Entry[] claimsInChunk, Claim claim)
+    {
+        for (ChunkClaimIndex.Entry entry : claimsInChunk)
         {
-            Claim bestChild = null;
+            if (entry.claim == claim) return entry;
 
-            for (Claim child : result.children)
+            // Regular subdivisions are only reachable through their parent
+            if (entry.claim == claim.parent)
             {
-                if (!child.inDataStore) continue;
-                // For child.contains: for 2D children, height is effectively ignored;
-                // for 3D children, Y is enforced because ignoreHeight=false
-                if (!child.contains(location, false /* respect height where applicable */, false)) continue;
-
-                if (bestChild == null)
-                {
-                    bestChild = child;
-                }
-                else
+                for (ChunkClaimIndex.Entry child : entry.children)
                 {
-                    // Prefer more specific child:
-                    // - If both 3D, choose smaller Y-range; tie-breaker by smaller area
-                    // - If one is 3D and the other is not, prefer 3D (more specific)
-                    // - If both non-3D, choose smaller area
-                    boolean bestIs3D = bestChild.is3D();
-                    boolean currIs3D = child.is3D();
-
-                    if (bestIs3D && currIs3D)
-                    {
-                        int bestYRange = bestChild.getGreaterBoundaryCorner().getBlockY() - bestChild.getLesserBoundaryCorner().getBlockY();
-                        int currYRange = child.getGreaterBoundaryCorner().getBlockY() - child.getLesserBoundaryCorner().getBlockY();
-                        if (currYRange < bestYRange || (currYRange == bestYRange && child.getArea() < bestChild.getArea()))
-                        {
-                            bestChild = child;
-                        }
-                    }
-                    else if (!bestIs3D && currIs3D)
-                    {
-                        bestChild = child; // prefer 3D over 2D if both match
-                    }
-                    else if (!bestIs3D && !currIs3D)
-                    {
-                        if (child.getArea() < bestChild.getArea())
-                        {
-                            bestChild = child;
-                        }
-                    }
+                    if (child.claim == claim) return child;
                 }
             }
+        }
+        return null;
+    }
 
-            if (bestChild != null)
+    private static ChunkClaimIndex.Entry findMostSpecific3D(ChunkClaimIndex.Entry[] topLevelEntries, int x, int y, int z)
+    {
+        ChunkClaimIndex.Entry best = null;
+
+        for (ChunkClaimIndex.Entry entry : topLevelEntries)
+        {
+            if (!entry.containsColumn(x, z)) continue;
+
+            if (entry.is3D && entry.claim.inDataStore && entry.containsY(y)
+                    && (best == null || isMoreSpecific3D(entry, best)))
             {
-                result = bestChild;
+                best = entry;
+            }
+
+            if (entry.subdivisions3D == null) continue;
+            ChunkClaimIndex.Entry subdivision = entry.subdivisions3D.findMostSpecific(x, y, z);
+            // Prefer smallest Y-range, then area
+            if (subdivision != null && (best == null || isMoreSpecific3D(subdivision, best)))
+            {
+                best = subdivision;
             }
         }
 
-        // Return the most specific claim found at this location
-        return result;
+        return best;
+    }
+
+    private static ChunkClaimIndex.Entry findBestChild(ChunkClaimIndex.Entry parent, World world, int x, int y, int z)
+    {
+        // A 3D child containing the location including Y is always more specific than a 2D child.
+        // Among 3D children the smaller Y-range wins, with area as the tie-breaker.
+        if (parent.subdivisions3D != null)
+        {
+            ChunkClaimIndex.Entry stacked = parent.subdivisions3D.findMostSpecific(x, y, z);
+            if (stacked != null) return stacked;
+        }
+
+        ChunkClaimIndex.Entry bestChild = null;
+
+        for (ChunkClaimIndex.Entry child : parent.flatChildren)
+        {
+            if (!child.claim.inDataStore) continue;
+            if (!child.contains(world, x, y, z, false, false)) continue;
+
+            // If both non-3D, choose smaller area
+            if (bestChild == null || child.area < bestChild.area)
+            {
+                bestChild = child;
+            }
+        }
+
+        return bestChild;
+    }
+
+    private static boolean isMoreSpecific3D(ChunkClaimIndex.Entry candidate, ChunkClaimIndex.Entry best)
+    {
+        int candidateYRange = candidate.getYRange();
+        int bestYRange = best.getYRange();
+        return candidateYRange < bestYRange || (candidateYRange == bestYRange && candidate.area < best.area);
     }
 
     //finds a claim by ID
-    public synchronized Claim getClaim(long id)
+    public Claim getClaim(long id)
     {
         return this.claimIDMap.get(id);
     }
@@ -989,17 +1362,16 @@ public abstract class DataStore
         return Collections.unmodifiableCollection(this.claims);
     }
 
+    //returns claims overlapping the chunk coordinates in any world
     public Collection<Claim> getClaims(int chunkx, int chunkz)
     {
-        ArrayList<Claim> chunkClaims = this.chunksToClaimsMap.get(getChunkHash(chunkx, chunkz));
-        if (chunkClaims != null)
-        {
-            return Collections.unmodifiableCollection(chunkClaims);
-        }
-        else
-        {
-            return Collections.unmodifiableCollection(new ArrayList<>());
-        }
+        return Collections.unmodifiableCollection(this.chunkClaimIndex.getClaimsInAllWorlds(chunkx, chunkz));
+    }
+
+    //returns claims overlapping a specific chunk
+    public Collection<Claim> getClaims(@NotNull World world, int chunkx, int chunkz)
+    {
+        return Collections.unmodifiableCollection(this.chunkClaimIndex.getClaims(world, chunkx, chunkz));
     }
 
     public @NotNull Set<Claim> getChunkClaims(@NotNull World world, @NotNull BoundingBox boundingBox)
@@ -1012,14 +1384,14 @@ public abstract class DataStore
         {
             for (int chunkZ = boundingBox.getMinZ() >> 4; chunkZ <= chunkZMax; ++chunkZ)
             {
-                ArrayList<Claim> chunkClaims = this.chunksToClaimsMap.get(getChunkHash(chunkX, chunkZ));
+                ChunkClaimIndex.Entry[] chunkClaims = this.chunkClaimIndex.get(world, chunkX, chunkZ);
                 if (chunkClaims == null) continue;
 
-                for (Claim claim : chunkClaims)
+                for (ChunkClaimIndex.Entry entry : chunkClaims)
                 {
-                    if (claim.inDataStore && world.equals(claim.getLesserBoundaryCorner().getWorld()))
+                    if (entry.claim.inDataStore)
                     {
-                        claims.add(claim);
+                        claims.add(entry.claim);
                     }
                 }
             }
@@ -1028,6 +1400,139 @@ public abstract class DataStore
         return claims;
     }
 
+    /**
+     * Get the subdivisions of a top level claim that may intersect a box. Regular subdivisions are matched by
+     * column, 3D subdivisions by their full bounds, so callers must still apply their own precise checks.
+     *
+     * @param parent the top level claim
+     * @param boundingBox the area that may intersect a subdivision
+     * @return the candidate subdivisions, active or not
+     */
+    @NotNull List<Claim> getSubdivisionsIntersecting(@NotNull Claim parent, @NotNull BoundingBox boundingBox)
+    {
+        ChunkClaimIndex.Entry entry = parent.parent == null ? this.chunkClaimIndex.find(parent) : null;
+
+        // Fall back to the live list if the parent isn't published yet or its subdivisions changed since.
+        if (entry == null || entry.children.length != parent.children.size())
+        {
+            return new ArrayList<>(parent.children);
+        }
+
+        List<Claim> candidates = new ArrayList<>();
+        for (ChunkClaimIndex.Entry child : entry.flatChildren)
+        {
+            if (child.minX <= boundingBox.getMaxX() && child.maxX >= boundingBox.getMinX()
+                    && child.minZ <= boundingBox.getMaxZ() && child.maxZ >= boundingBox.getMinZ())
+            {
+                candidates.add(child.claim);
+            }
+        }
+
+        if (entry.subdivisions3D != null)
+        {
+            entry.subdivisions3D.forEachIntersecting(
+                    boundingBox.getMinX(), boundingBox.getMinY(), boundingBox.getMinZ(),
+                    boundingBox.getMaxX(), boundingBox.getMaxY(), boundingBox.getMaxZ(),
+                    child -> candidates.add(child.claim));
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Find the 3D subdivision corner closest to the origin of a ray. Only the chunks the ray crosses and their
+     * neighbors are visited, so corners just off the ray's path are still found.
+     *
+     * @param world the world
+     * @param originX the ray origin X coordinate
+     * @param originY the ray origin Y coordinate
+     * @param originZ the ray origin Z coordinate
+     * @param directionX the normalized ray direction X component
+     * @param directionY the normalized ray direction Y component
+     * @param directionZ the normalized ray direction Z component
+     * @param maxDistance the maximum distance along the ray
+     * @param threshold the maximum distance between the ray and a corner
+     * @return the corner or {@code null} if none is close enough to the ray
+     */
+    @Nullable Location find3DSubdivisionCorner(@NotNull World world,
+            double originX, double originY, double originZ,
+            double directionX, double directionY, double directionZ,
+            double maxDistance, double threshold)
+    {
+        double thresholdSquared = threshold * threshold;
+        boolean found = false;
+        int bestX = 0, bestY = 0, bestZ = 0;
+        double bestT = Double.POSITIVE_INFINITY;
+
+        // Step through chunk columns in the order the ray enters them.
+        int chunkX = (int) Math.floor(originX) >> 4;
+        int chunkZ = (int) Math.floor(originZ) >> 4;
+        int stepX = directionX > 0 ? 1 : -1;
+        int stepZ = directionZ > 0 ? 1 : -1;
+        double tDeltaX = directionX == 0 ? Double.POSITIVE_INFINITY : 16 / Math.abs(directionX);
+        double tDeltaZ = directionZ == 0 ? Double.POSITIVE_INFINITY : 16 / Math.abs(directionZ);
+        double tMaxX = directionX == 0 ? Double.POSITIVE_INFINITY : (((directionX > 0 ? chunkX + 1 : chunkX) << 4) - originX) / directionX;
+        double tMaxZ = directionZ == 0 ? Double.POSITIVE_INFINITY : (((directionZ > 0 ? chunkZ + 1 : chunkZ) << 4) - originZ) / directionZ;
+
+        Set<Long> visited = new HashSet<>();
+        while (true)
+        {
+            for (int neighborX = chunkX - 1; neighborX <= chunkX + 1; neighborX++)
+            {
+                for (int neighborZ = chunkZ - 1; neighborZ <= chunkZ + 1; neighborZ++)
+                {
+                    if (!visited.add(ChunkClaimIndex.chunkKey(neighborX, neighborZ))) continue;
+
+                    ChunkClaimIndex.Entry[] entries = this.chunkClaimIndex.get(world, neighborX, neighborZ);
+                    if (entries == null) continue;
+
+                    for (ChunkClaimIndex.Entry entry : entries)
+                    {
+                        if (!entry.is3D || !entry.claim.inDataStore) continue;
+
+                        for (int corner = 0; corner < 8; corner++)
+                        {
+                            int x = (corner & 1) == 0 ? entry.minX : entry.maxX;
+                            int y = (corner & 2) == 0 ? entry.minY : entry.maxY;
+                            int z = (corner & 4) == 0 ? entry.minZ : entry.maxZ;
+
+                            // Project the corner onto the ray
+                            double offsetX = x - originX;
+                            double offsetY = y - originY;
+                            double offsetZ = z - originZ;
+                            double t = offsetX * directionX + offsetY * directionY + offsetZ * directionZ;
+                            if (t < 0 || t > maxDistance || t >= bestT) continue; // behind, too far or not closer
+
+                            double distanceSquared = offsetX * offsetX + offsetY * offsetY + offsetZ * offsetZ - t * t;
+                            if (distanceSquared <= thresholdSquared)
+                            {
+                                found = true;
+                                bestX = x;
+                                bestY = y;
+                                bestZ = z;
+                                bestT = t;
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (Math.min(tMaxX, tMaxZ) > maxDistance) break;
+            if (tMaxX < tMaxZ)
+            {
+                chunkX += stepX;
+                tMaxX += tDeltaX;
+            }
+            else
+            {
+                chunkZ += stepZ;
+                tMaxZ += tDeltaZ;
+            }
+        }
+
+        return found ? new Location(world, bestX, bestY, bestZ) : null;
+    }
+
     //gets an almost-unique, persistent identifier for a chunk
     public static Long getChunkHash(long chunkx, long chunkz)
     {
@@ -1181,14 +1686,18 @@ public abstract class DataStore
         newClaim.parent = parent;
 
         //ensure this new claim won't overlap any existing claims
-        ArrayList<Claim> claimsToCheck;
+        List<Claim> claimsToCheck;
         if (newClaim.parent != null)
         {
-            claimsToCheck = newClaim.parent.children;
+            // Only siblings near the new subdivision can overlap it
+            claimsToCheck = this.getSubdivisionsIntersecting(newClaim.parent, new BoundingBox(newClaim));
         }
         else
         {
-            claimsToCheck = this.claims;
+            // Only top level claims sharing a chunk with the new claim can overlap it
+            claimsToCheck = this.chunkClaimIndex.getTopLevelClaimsIntersecting(world,
+                    newClaim.getLesserBoundaryCorner().getBlockX(), newClaim.getLesserBoundaryCorner().getBlockZ(),
+                    newClaim.getGreaterBoundaryCorner().getBlockX(), newClaim.getGreaterBoundaryCorner().getBlockZ());
         }
 
         for (Claim otherClaim : claimsToCheck)
@@ -1297,7 +1806,37 @@ public abstract class DataStore
     //saves changes to player data to secondary storage.  MUST be called after you're done making changes, otherwise a reload will lose them
     public void savePlayerData(UUID playerID, PlayerData playerData)
     {
-        new SavePlayerDataThread(playerID, playerData).start();
+        if (playerID == null) return;
+
+        this.playerDataSaveQueue.submit(playerID, playerData);
+    }
+
+    /**
+     * Get the queue of player data saves waiting to be written, i.e. to monitor its depth and write latency.
+     *
+     * @return the player data save queue
+     */
+    public @NotNull CoalescingWriteQueue<UUID, ?> getPlayerDataSaveQueue()
+    {
+        return this.playerDataSaveQueue;
+    }
+
+    /**
+     * Write a queued player data save. Called by the player data writer, one batch at a time.
+     *
+     * @param playerID the player's UUID
+     * @param playerData the player's data
+     */
+    void writeQueuedPlayerData(@NotNull UUID playerID, @NotNull PlayerData playerData)
+    {
+        this.savePlayerDataSync(playerID, playerData);
+    }
+
+    /**
+     * Called on the player data writer's thread after each batch of player data saves, i.e. to write them together.
+     */
+    void playerDataWritesCompleted()
+    {
     }
 
     public void asyncSavePlayerData(UUID playerID, PlayerData playerData)
@@ -1305,7 +1844,12 @@ public abstract class DataStore
         //save everything except the ignore list
         this.overrideSavePlayerData(playerID, playerData);
 
-        //save the ignore list
+        this.saveIgnoreList(playerID, playerData);
+    }
+
+    //saves a player's ignore list, if it changed, to its own file
+    void saveIgnoreList(UUID playerID, PlayerData playerData)
+    {
         if (playerData.ignoreListChanged)
         {
             StringBuilder fileContent = new StringBuilder();
@@ -1408,8 +1952,10 @@ public abstract class DataStore
         ).forEach(localClaim -> {
             localClaim.lesserBoundaryCorner.setY(depth);
             localClaim.greaterBoundaryCorner.setY(Math.max(localClaim.greaterBoundaryCorner.getBlockY(), depth));
+            localClaim.refreshBounds();
             this.saveClaim(localClaim);
         });
+        this.chunkClaimIndex.refresh(claim);
     }
 
     //deletes all claims owned by a player
@@ -1445,20 +1991,35 @@ public abstract class DataStore
         //if succeeded
         if (result.succeeded)
         {
-            removeFromChunkClaimMap(claim); // remove the old boundary from the chunk cache
-            // copy the boundary from the claim created in the dry run of createClaim() to our existing claim
-            claim.lesserBoundaryCorner = result.claim.lesserBoundaryCorner;
-            claim.greaterBoundaryCorner = result.claim.greaterBoundaryCorner;
-            // Sanitize claim depth for non-3D claims only. For 3D subdivisions, do not adjust
-            // parent/child depths as they have explicit Y bounds and should NOT extend to claim bottom.
-            if (!claim.is3D())
+            // publish the old and new boundary to the chunk cache as a single change so readers never see a partial resize
+            this.chunkClaimIndex.beginBatch();
+            try
             {
-                // Expands parent down to the lowest non-3D subdivision and subdivisions down to parent.
-                // Also saves affected claims.
-                setNewDepth(claim, claim.getLesserBoundaryCorner().getBlockY());
+                removeFromChunkClaimMap(claim); // remove the old boundary from the chunk cache
+                // copy the boundary from the claim created in the dry run of createClaim() to our existing claim
+                int oldArea = claim.getArea();
+                claim.lesserBoundaryCorner = result.claim.lesserBoundaryCorner;
+                claim.greaterBoundaryCorner = result.claim.greaterBoundaryCorner;
+                claim.refreshBounds();
+                if (claim.parent == null && claim.inDataStore)
+                {
+                    this.adjustClaimedArea(claim.ownerID, claim.getArea() - oldArea);
+                }
+                // Sanitize claim depth for non-3D claims only. For 3D subdivisions, do not adjust
+                // parent/child depths as they have explicit Y bounds and should NOT extend to claim bottom.
+                if (!claim.is3D())
+                {
+                    // Expands parent down to the lowest non-3D subdivision and subdivisions down to parent.
+                    // Also saves affected claims.
+                    setNewDepth(claim, claim.getLesserBoundaryCorner().getBlockY());
+                }
+                result.claim = claim;
+                addToChunkClaimMap(claim); // add the new boundary to the chunk cache
+            }
+            finally
+            {
+                this.chunkClaimIndex.endBatch();
             }
-            result.claim = claim;
-            addToChunkClaimMap(claim); // add the new boundary to the chunk cache
         }
 
         return result;
@@ -1539,6 +2100,7 @@ public abstract class DataStore
         World world = newClaim.getLesserBoundaryCorner().getWorld();
         newClaim.lesserBoundaryCorner = new Location(world, newx1, newy1, newz1);
         newClaim.greaterBoundaryCorner = new Location(world, newx2, newy2, newz2);
+        newClaim.refreshBounds();
 
         // Check if the new boundaries would intersect with any existing subdivisions
         if (playerData.claimResizing.children != null && !playerData.claimResizing.children.isEmpty()) {
@@ -1775,28 +2337,16 @@ public abstract class DataStore
         return resultNames;
     }
 
-    abstract void close();
-
-    private class SavePlayerDataThread extends Thread
+    //writes any queued claim and player data changes, then releases storage
+    void close()
     {
-        private final UUID playerID;
-        private final PlayerData playerData;
-
-        SavePlayerDataThread(UUID playerID, PlayerData playerData)
-        {
-            this.playerID = playerID;
-            this.playerData = playerData;
-        }
-
-        public void run()
-        {
-            //ensure player data is already read from file before trying to save
-            playerData.getAccruedClaimBlocks();
-            playerData.getClaims();
-            asyncSavePlayerData(this.playerID, this.playerData);
-        }
+        this.claimWriteQueue.close();
+        this.playerDataSaveQueue.close();
+        this.closeStorage();
     }
 
+    abstract void closeStorage();
+
     //gets all the claims "near" a location
     Set<Claim> getNearbyClaims(Location location)
     {
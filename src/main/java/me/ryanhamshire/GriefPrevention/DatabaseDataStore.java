@@ -23,6 +23,7 @@ import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.World;
 
+import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.sql.Connection;
@@ -31,14 +32,22 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 //manages data stored in the file system
 public class DatabaseDataStore extends DataStore
@@ -46,10 +55,20 @@ public class DatabaseDataStore extends DataStore
 
     private static final String SQL_UPDATE_NAME =
             "UPDATE griefprevention_playerdata SET name = ? WHERE name = ?";
+    private static final String[] PLAYER_COLUMNS =
+            {"name", "lastlogin", "accruedblocks", "bonusblocks"};
+    private static final String[] CLAIM_COLUMNS =
+            {"id", "parentid", "owner", "world", "lesserx", "lessery", "lesserz", "greaterx", "greatery", "greaterz", "inheritnothing", "is3d"};
     private static final String SQL_INSERT_CLAIM =
-            "INSERT INTO griefprevention_claimdata (id, owner, lessercorner, greatercorner, builders, containers, accessors, managers, inheritnothing, parentid) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            "INSERT INTO griefprevention_claims (id, parentid, owner, world, lesserx, lessery, lesserz, greaterx, greatery, greaterz, inheritnothing, is3d) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
     private static final String SQL_DELETE_CLAIM =
-            "DELETE FROM griefprevention_claimdata WHERE id = ?";
+            "DELETE FROM griefprevention_claims WHERE id = ?";
+    private static final String SQL_INSERT_TRUST =
+            "INSERT INTO griefprevention_claim_trust (claimid, trustee, level) VALUES (?, ?, ?)";
+    private static final String SQL_DELETE_TRUST =
+            "DELETE FROM griefprevention_claim_trust WHERE claimid = ? AND trustee = ? AND level = ?";
+    private static final String SQL_DELETE_CLAIM_TRUST =
+            "DELETE FROM griefprevention_claim_trust WHERE claimid = ?";
     private static final String SQL_SELECT_PLAYER_DATA =
             "SELECT * FROM griefprevention_playerdata WHERE name = ?";
     private static final String SQL_DELETE_PLAYER_DATA =
@@ -58,8 +77,6 @@ public class DatabaseDataStore extends DataStore
             "INSERT INTO griefprevention_playerdata (name, lastlogin, accruedblocks, bonusblocks) VALUES (?, ?, ?, ?)";
     private static final String SQL_SET_NEXT_CLAIM_ID =
             "INSERT INTO griefprevention_nextclaimid VALUES (?)";
-    private static final String SQL_DELETE_GROUP_DATA =
-            "DELETE FROM griefprevention_playerdata WHERE name = ?";
     private static final String SQL_INSERT_SCHEMA_VERSION =
             "INSERT INTO griefprevention_schemaversion VALUES (?)";
     private static final String SQL_DELETE_NEXT_CLAIM_ID =
@@ -69,17 +86,45 @@ public class DatabaseDataStore extends DataStore
     private static final String SQL_SELECT_SCHEMA_VERSION =
             "SELECT * FROM griefprevention_schemaversion";
 
-    private Connection databaseConnection = null;
+    //schema 4 moves claims to numeric, indexed columns and trust to a table of individual grants
+    //the file format has no such change, so only this data store is at version 4
+    private static final int DATABASE_SCHEMA_VERSION = 4;
+
+    //the single file holding all data when the embedded database is used instead of a database server
+    static final String embeddedDatabaseFilePath = dataLayerFolderPath + File.separator + "GriefPreventionData.db";
+
+    //rows fetched per round trip while loading, and claims built per task
+    private static final int CLAIM_LOAD_FETCH_SIZE = 1000;
+    private static final int CLAIM_LOAD_CHUNK_SIZE = 1024;
+
+    private ConnectionPool connectionPool;
+    private final SqlDialect dialect;
+    //inserts or updates a claim row in one statement, null if the dialect can't
+    private final String claimUpsertSql;
+    //the same for player rows, null if the dialect can't or player names couldn't be made unique
+    private String playerUpsertSql;
+
+    //the trust grants last written for each claim, so trust changes are written grant by grant; guarded by itself
+    private final Map<Long, Set<TrustGrant>> storedTrust = new HashMap<>();
+
+    //rows captured by the background writers, written together in one transaction after each batch; null rows are deletions
+    private final Map<Long, ClaimRow> pendingClaimRows = new LinkedHashMap<>();
+    private final Map<String, PlayerRow> pendingPlayerRows = new LinkedHashMap<>();
 
     private final String databaseUrl;
     private final String userName;
     private final String password;
+    private final int poolSize;
 
-    DatabaseDataStore(String url, String userName, String password) throws Exception
+    DatabaseDataStore(String url, String userName, String password, int poolSize) throws Exception
     {
         this.databaseUrl = url;
         this.userName = userName;
         this.password = password;
+        this.poolSize = poolSize;
+        this.dialect = SqlDialect.of(url);
+        this.claimUpsertSql = this.dialect.upsert("griefprevention_claims", "id", CLAIM_COLUMNS);
+        this.playerUpsertSql = this.dialect.upsert("griefprevention_playerdata", "name", PLAYER_COLUMNS);
 
         this.initialize();
     }
@@ -87,9 +132,22 @@ public class DatabaseDataStore extends DataStore
     @Override
     void initialize() throws Exception
     {
+        this.loadStorage();
+        super.initialize();
+    }
+
+    //connects and loads everything from the database, before the setup shared by all data stores
+    void loadStorage() throws Exception
+    {
+        //idle connections are validated after 30 seconds, held connections are reported after a minute
+        //where each connection was borrowed is only traced with debug logging on
+        this.connectionPool = new ConnectionPool(this::openConnection, this.poolSize, 30 * 1000, 60 * 1000, 30 * 1000,
+                GriefPrevention.instance.config_logs_debugEnabled, GriefPrevention::AddLogEntry);
+
+        ConnectionPool.PooledConnection connection;
         try
         {
-            this.refreshDataConnection();
+            connection = this.connectionPool.borrow();
         }
         catch (Exception e2)
         {
@@ -97,32 +155,58 @@ public class DatabaseDataStore extends DataStore
             throw e2;
         }
 
+        //storage calls made while loading reuse this connection
+        try
+        {
+            this.loadData(connection.connection());
+        }
+        finally
+        {
+            connection.close();
+        }
+    }
+
+    private void loadData(Connection databaseConnection) throws Exception
+    {
         try (Statement statement = databaseConnection.createStatement())
         {
             //ensure the data tables exist
             statement.execute("CREATE TABLE IF NOT EXISTS griefprevention_nextclaimid (nextid INTEGER)");
-            statement.execute("CREATE TABLE IF NOT EXISTS griefprevention_claimdata (id INTEGER, owner VARCHAR(50), lessercorner VARCHAR(100), greatercorner VARCHAR(100), builders TEXT, containers TEXT, accessors TEXT, managers TEXT, inheritnothing BOOLEAN, parentid INTEGER)");
             statement.execute("CREATE TABLE IF NOT EXISTS griefprevention_playerdata (name VARCHAR(50), lastlogin DATETIME, accruedblocks INTEGER, bonusblocks INTEGER)");
             statement.execute("CREATE TABLE IF NOT EXISTS griefprevention_schemaversion (version INTEGER)");
 
-            // By making this run only for MySQL, we technically support SQLite too, as this is the only invalid
-            // SQL we use that SQLite does not support. Seeing as its only use is to update VERY old, existing, MySQL
-            // databases, this is of no concern.
-            if (databaseUrl.startsWith("jdbc:mysql://"))
-            {
-                statement.execute("ALTER TABLE griefprevention_claimdata MODIFY builders TEXT");
-                statement.execute("ALTER TABLE griefprevention_claimdata MODIFY containers TEXT");
-                statement.execute("ALTER TABLE griefprevention_claimdata MODIFY accessors TEXT");
-                statement.execute("ALTER TABLE griefprevention_claimdata MODIFY managers TEXT");
-            }
-
             //if the next claim id table is empty, this is a brand new database which will write using the latest schema
             //otherwise, schema version is determined by schemaversion table (or =0 if table is empty, see getSchemaVersion())
             ResultSet results = statement.executeQuery("SELECT * FROM griefprevention_nextclaimid");
             if (!results.next())
             {
-                this.setSchemaVersion(latestSchemaVersion);
+                this.setSchemaVersion(this.getLatestSchemaVersion());
+            }
+
+            //claims are still in the old table until they're migrated below
+            if (this.getSchemaVersion() < DATABASE_SCHEMA_VERSION)
+            {
+                statement.execute("CREATE TABLE IF NOT EXISTS griefprevention_claimdata (id INTEGER, owner VARCHAR(50), lessercorner VARCHAR(100), greatercorner VARCHAR(100), builders TEXT, containers TEXT, accessors TEXT, managers TEXT, inheritnothing BOOLEAN, parentid INTEGER)");
+
+                // By making this run only for MySQL, we technically support SQLite too, as this is the only invalid
+                // SQL we use that SQLite does not support. Seeing as its only use is to update VERY old, existing, MySQL
+                // databases, this is of no concern.
+                if (databaseUrl.startsWith("jdbc:mysql://"))
+                {
+                    statement.execute("ALTER TABLE griefprevention_claimdata MODIFY builders TEXT");
+                    statement.execute("ALTER TABLE griefprevention_claimdata MODIFY containers TEXT");
+                    statement.execute("ALTER TABLE griefprevention_claimdata MODIFY accessors TEXT");
+                    statement.execute("ALTER TABLE griefprevention_claimdata MODIFY managers TEXT");
+                }
             }
+
+            statement.execute("CREATE TABLE IF NOT EXISTS griefprevention_claims (id BIGINT NOT NULL PRIMARY KEY, parentid BIGINT NOT NULL, owner VARCHAR(36), world VARCHAR(100) NOT NULL, lesserx INTEGER NOT NULL, lessery INTEGER NOT NULL, lesserz INTEGER NOT NULL, greaterx INTEGER NOT NULL, greatery INTEGER NOT NULL, greaterz INTEGER NOT NULL, inheritnothing BOOLEAN NOT NULL, is3d BOOLEAN NOT NULL)");
+            statement.execute("CREATE TABLE IF NOT EXISTS griefprevention_claim_trust (claimid BIGINT NOT NULL, trustee VARCHAR(255) NOT NULL, level VARCHAR(16) NOT NULL, PRIMARY KEY (claimid, trustee, level))");
+            this.createIndex(databaseConnection, "griefprevention_claims", "griefprevention_claims_owner", "owner");
+            this.createIndex(databaseConnection, "griefprevention_claims", "griefprevention_claims_parentid", "parentid");
+            this.createIndex(databaseConnection, "griefprevention_claims", "griefprevention_claims_location", "world, lesserx, greaterx, lesserz, greaterz");
+            this.createIndex(databaseConnection, "griefprevention_claim_trust", "griefprevention_claim_trust_trustee", "trustee");
+            this.createPlayerNameIndex(databaseConnection);
         }
         catch (Exception e3)
         {
@@ -132,17 +216,14 @@ public class DatabaseDataStore extends DataStore
             throw e3;
         }
 
-        //load group data into memory
+        //load group data into memory.  all group names start with a dollar sign, so only those rows are read
         Statement statement = databaseConnection.createStatement();
-        ResultSet results = statement.executeQuery("SELECT * FROM griefprevention_playerdata");
+        ResultSet results = statement.executeQuery("SELECT name, bonusblocks FROM griefprevention_playerdata WHERE name LIKE '$%'");
 
         while (results.next())
         {
             String name = results.getString("name");
 
-            //ignore non-groups.  all group names start with a dollar sign.
-            if (!name.startsWith("$")) continue;
-
             String groupName = name.substring(1);
             if (groupName == null || groupName.isEmpty()) continue;  //defensive coding, avoid unlikely cases
 
@@ -171,10 +252,8 @@ public class DatabaseDataStore extends DataStore
         {
             try
             {
-                this.refreshDataConnection();
-
                 //pull ALL player data from the database
-                statement = this.databaseConnection.createStatement();
+                statement = databaseConnection.createStatement();
                 results = statement.executeQuery("SELECT * FROM griefprevention_playerdata");
 
                 //make a list of changes to be made
@@ -226,12 +305,9 @@ public class DatabaseDataStore extends DataStore
                     catch (Exception ex) { }
                 }
 
-                //refresh data connection in case data migration took a long time
-                this.refreshDataConnection();
-
                 for (String name : changes.keySet())
                 {
-                    try (PreparedStatement updateStmnt = this.databaseConnection.prepareStatement(SQL_UPDATE_NAME))
+                    try (PreparedStatement updateStmnt = databaseConnection.prepareStatement(SQL_UPDATE_NAME))
                     {
                         updateStmnt.setString(1, changes.get(name).toString());
                         updateStmnt.setString(2, name);
@@ -252,185 +328,671 @@ public class DatabaseDataStore extends DataStore
             }
         }
 
+        //load claims data into memory
+        ArrayList<Claim> claimsToRemove = new ArrayList<>();
+        //subdivisions by the ID of their parent, which is loaded first
+        Map<Claim, Long> subdivisionsToLoad = new LinkedHashMap<>();
+        List<World> validWorlds = Bukkit.getServer().getWorlds();
+
+        //publish the top level claims to the chunk index as a single version instead of once per claim
+        this.chunkClaimIndex.beginBatch();
+        if (this.getSchemaVersion() >= DATABASE_SCHEMA_VERSION)
+        {
+            this.loadClaims(databaseConnection, validWorlds, subdivisionsToLoad);
+        }
+        else
+        {
+            if (this.getSchemaVersion() <= 2)
+            {
+                statement = databaseConnection.createStatement();
+                statement.execute("ALTER TABLE griefprevention_claimdata ADD inheritNothing BOOLEAN DEFAULT 0 AFTER managers");
+            }
+
+            this.loadLegacyClaims(databaseConnection, validWorlds, claimsToRemove, subdivisionsToLoad);
+        }
+        this.chunkClaimIndex.endBatch();
+
+        //add subdivisions to their parent claims, republishing each parent once
+        this.chunkClaimIndex.beginBatch();
+        try
+        {
+            for (Map.Entry<Claim, Long> subdivision : subdivisionsToLoad.entrySet())
+            {
+                //find top level claim parent, by location if an old row's parent is unknown
+                Claim childClaim = subdivision.getKey();
+                Claim topLevelClaim = this.getClaim(subdivision.getValue());
+                if (topLevelClaim == null && this.getSchemaVersion() < DATABASE_SCHEMA_VERSION)
+                {
+                    topLevelClaim = this.getClaimAt(childClaim.getLesserBoundaryCorner(), true, null);
+                }
+
+                if (topLevelClaim == null)
+                {
+                    claimsToRemove.add(childClaim);
+                    GriefPrevention.AddLogEntry("Removing orphaned claim subdivision: " + childClaim.getLesserBoundaryCorner().toString());
+                    continue;
+                }
+
+                //add this claim to the list of children of the current top level claim, and to the ID and trust indexes
+                childClaim.parent = topLevelClaim;
+                this.addClaim(childClaim, false);
+            }
+        }
+        finally
+        {
+            this.chunkClaimIndex.endBatch();
+        }
+
+        for (Claim claim : claimsToRemove)
+        {
+            this.deleteClaimFromSecondaryStorage(claim);
+        }
+
         if (this.getSchemaVersion() <= 2)
         {
-            statement = this.databaseConnection.createStatement();
-            statement.execute("ALTER TABLE griefprevention_claimdata ADD inheritNothing BOOLEAN DEFAULT 0 AFTER managers");
+            statement = databaseConnection.createStatement();
+            statement.execute("DELETE FROM griefprevention_claimdata WHERE id = '-1'");
         }
 
-        //load claims data into memory
+        if (this.getSchemaVersion() < DATABASE_SCHEMA_VERSION)
+        {
+            this.migrateClaims(databaseConnection);
+        }
+    }
 
-        results = statement.executeQuery("SELECT * FROM griefprevention_claimdata");
+    @Override
+    int getLatestSchemaVersion()
+    {
+        return DATABASE_SCHEMA_VERSION;
+    }
 
-        ArrayList<Claim> claimsToRemove = new ArrayList<>();
-        ArrayList<Claim> subdivisionsToLoad = new ArrayList<>();
-        List<World> validWorlds = Bukkit.getServer().getWorlds();
+    //creates an index unless it already exists, which not every database can check for in the statement itself
+    private void createIndex(Connection databaseConnection, String table, String name, String columns) throws SQLException
+    {
+        if (this.hasIndex(databaseConnection, table, name)) return;
 
-        Long claimID = null;
-        while (results.next())
+        try (Statement statement = databaseConnection.createStatement())
         {
-            try
+            statement.execute("CREATE INDEX " + name + " ON " + table + " (" + columns + ")");
+        }
+    }
+
+    private boolean hasIndex(Connection databaseConnection, String table, String name) throws SQLException
+    {
+        try (ResultSet indexes = databaseConnection.getMetaData().getIndexInfo(null, null, table, false, true))
+        {
+            while (indexes.next())
             {
-                //problematic claims will be removed from secondary storage, and never added to in-memory data store
-                boolean removeClaim = false;
-
-                long parentId = results.getLong("parentid");
-                claimID = results.getLong("id");
-                boolean inheritNothing = results.getBoolean("inheritNothing");
-                Location lesserBoundaryCorner = null;
-                Location greaterBoundaryCorner = null;
-                String lesserCornerString = "(location not available)";
-                try
+                if (name.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) return true;
+            }
+        }
+        return false;
+    }
+
+    //player rows are upserted by name, which needs the name to be unique
+    //older databases have a plain index instead, and may have saved a name more than once
+    private void createPlayerNameIndex(Connection databaseConnection)
+    {
+        try
+        {
+            if (!this.hasIndex(databaseConnection, "griefprevention_playerdata", "griefprevention_playerdata_unique_name"))
+            {
+                this.removeDuplicatePlayerRows(databaseConnection);
+                try (Statement statement = databaseConnection.createStatement())
                 {
-                    lesserCornerString = results.getString("lessercorner");
-                    lesserBoundaryCorner = this.locationFromString(lesserCornerString, validWorlds);
-                    String greaterCornerString = results.getString("greatercorner");
-                    greaterBoundaryCorner = this.locationFromString(greaterCornerString, validWorlds);
+                    statement.execute("CREATE UNIQUE INDEX griefprevention_playerdata_unique_name ON griefprevention_playerdata (name)");
                 }
-                catch (Exception e)
+            }
+
+            if (this.hasIndex(databaseConnection, "griefprevention_playerdata", "griefprevention_playerdata_name"))
+            {
+                try (Statement statement = databaseConnection.createStatement())
                 {
-                    if (e.getMessage() != null && e.getMessage().contains("World not found"))
-                    {
-                        GriefPrevention.AddLogEntry("Failed to load a claim (ID:" + claimID.toString() + ") because its world isn't loaded (yet?).  Please delete the claim or contact the GriefPrevention developer with information about which plugin(s) you're using to load or create worlds.  " + lesserCornerString);
-                        continue;
-                    }
-                    else
-                    {
-                        throw e;
-                    }
+                    statement.execute(this.dialect == SqlDialect.MYSQL
+                            ? "DROP INDEX griefprevention_playerdata_name ON griefprevention_playerdata"
+                            : "DROP INDEX griefprevention_playerdata_name");
                 }
+            }
+        }
+        catch (SQLException e)
+        {
+            //not fatal, player rows are replaced instead of upserted
+            this.playerUpsertSql = null;
+            GriefPrevention.AddLogEntry("Unable to index player data by unique name, saving it the slower way.  Details:");
+            GriefPrevention.AddLogEntry(e.getMessage());
+        }
+    }
 
-                String ownerName = results.getString("owner");
-                UUID ownerID = null;
-                if (ownerName.isEmpty() || ownerName.startsWith("--"))
+    //keeps only the most recently seen row for each player or group saved more than once
+    private void removeDuplicatePlayerRows(Connection databaseConnection) throws SQLException
+    {
+        List<String> duplicatedNames = new ArrayList<>();
+        try (Statement statement = databaseConnection.createStatement();
+             ResultSet results = statement.executeQuery("SELECT name FROM griefprevention_playerdata WHERE name IS NOT NULL GROUP BY name HAVING COUNT(*) > 1"))
+        {
+            while (results.next())
+            {
+                duplicatedNames.add(results.getString("name"));
+            }
+        }
+
+        for (String name : duplicatedNames)
+        {
+            PlayerRow row;
+            try (PreparedStatement selectStmnt = databaseConnection.prepareStatement("SELECT * FROM griefprevention_playerdata WHERE name = ? ORDER BY lastlogin DESC"))
+            {
+                selectStmnt.setString(1, name);
+                try (ResultSet results = selectStmnt.executeQuery())
                 {
-                    ownerID = null;  //administrative land claim or subdivision
+                    if (!results.next()) continue;
+                    row = new PlayerRow(name, results.getString("lastlogin"), results.getInt("accruedblocks"), results.getInt("bonusblocks"));
                 }
-                else if (this.getSchemaVersion() < 1)
+            }
+
+            try (PreparedStatement deleteStmnt = databaseConnection.prepareStatement(SQL_DELETE_PLAYER_DATA);
+                 PreparedStatement insertStmnt = databaseConnection.prepareStatement(SQL_INSERT_PLAYER_DATA))
+            {
+                deleteStmnt.setString(1, name);
+                deleteStmnt.executeUpdate();
+                this.setPlayerParameters(insertStmnt, row);
+                insertStmnt.executeUpdate();
+            }
+        }
+
+        if (!duplicatedNames.isEmpty())
+        {
+            GriefPrevention.AddLogEntry("Removed older copies of player data saved more than once for " + duplicatedNames.size() + " players or groups.");
+        }
+    }
+
+    //loads claims from the schema 4 tables
+    //rows are streamed and handed to a pool sized by GriefPrevention.Advanced.ClaimLoadThreads in chunks, so claims
+    //are built while later rows are still arriving; they're added to the data store in order on this thread
+    private void loadClaims(Connection databaseConnection, List<World> validWorlds, Map<Claim, Long> subdivisionsToLoad) throws Exception
+    {
+        //PostgreSQL only honours the fetch size inside a transaction
+        boolean autoCommit = databaseConnection.getAutoCommit();
+        if (this.dialect == SqlDialect.POSTGRESQL) databaseConnection.setAutoCommit(false);
+
+        int threads = GriefPrevention.instance.config_advanced_claimLoadThreads;
+        if (threads <= 0) threads = Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<ForkJoinTask<List<LoadedClaim>>> tasks = new ArrayList<>();
+        Map<Long, Set<TrustGrant>> trust = new HashMap<>();
+        try
+        {
+            //trust grants first, so each claim is built with its lists
+            try (Statement statement = this.createStreamingStatement(databaseConnection);
+                 ResultSet results = statement.executeQuery("SELECT claimid, trustee, level FROM griefprevention_claim_trust"))
+            {
+                while (results.next())
                 {
-                    try
-                    {
-                        ownerID = UUIDFetcher.getUUIDOf(ownerName);
-                    }
-                    catch (Exception ex)
+                    trust.computeIfAbsent(results.getLong("claimid"), id -> new LinkedHashSet<>())
+                            .add(new TrustGrant(results.getString("trustee"), results.getString("level")));
+                }
+            }
+
+            try (Statement statement = this.createStreamingStatement(databaseConnection);
+                 ResultSet results = statement.executeQuery("SELECT * FROM griefprevention_claims"))
+            {
+                List<ClaimRow> chunk = new ArrayList<>(CLAIM_LOAD_CHUNK_SIZE);
+                while (results.next())
+                {
+                    long claimID = results.getLong("id");
+                    chunk.add(new ClaimRow(claimID, results.getLong("parentid"), results.getString("owner"), results.getString("world"),
+                            results.getInt("lesserx"), results.getInt("lessery"), results.getInt("lesserz"),
+                            results.getInt("greaterx"), results.getInt("greatery"), results.getInt("greaterz"),
+                            results.getBoolean("inheritnothing"), results.getBoolean("is3d"), trust.getOrDefault(claimID, Set.of())));
+
+                    if (chunk.size() == CLAIM_LOAD_CHUNK_SIZE)
                     {
-                        GriefPrevention.AddLogEntry("This owner name did not convert to a UUID: " + ownerName + ".");
-                        GriefPrevention.AddLogEntry("  Converted land claim to administrative @ " + lesserBoundaryCorner.toString());
+                        List<ClaimRow> rows = chunk;
+                        tasks.add(pool.submit(() -> this.buildClaims(rows, validWorlds)));
+                        chunk = new ArrayList<>(CLAIM_LOAD_CHUNK_SIZE);
                     }
                 }
-                else
+
+                List<ClaimRow> rows = chunk;
+                tasks.add(pool.submit(() -> this.buildClaims(rows, validWorlds)));
+            }
+
+            for (ForkJoinTask<List<LoadedClaim>> task : tasks)
+            {
+                for (LoadedClaim loadedClaim : task.get())
                 {
-                    try
+                    if (loadedClaim.error() != null)
                     {
-                        ownerID = UUID.fromString(ownerName);
+                        GriefPrevention.AddLogEntry(loadedClaim.error());
                     }
-                    catch (Exception ex)
+                    else if (loadedClaim.parentId() == -1)
                     {
-                        GriefPrevention.AddLogEntry("This owner entry is not a UUID: " + ownerName + ".");
-                        GriefPrevention.AddLogEntry("  Converted land claim to administrative @ " + lesserBoundaryCorner.toString());
+                        //top level claim
+                        this.addClaim(loadedClaim.claim(), false);
+                    }
+                    else
+                    {
+                        //subdivision
+                        subdivisionsToLoad.put(loadedClaim.claim(), loadedClaim.parentId());
                     }
                 }
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+            databaseConnection.setAutoCommit(autoCommit);
+        }
 
-                String buildersString = results.getString("builders");
-                List<String> builderNames = Arrays.asList(buildersString.split(";"));
-                builderNames = this.convertNameListToUUIDList(builderNames);
+        synchronized (this.storedTrust)
+        {
+            this.storedTrust.putAll(trust);
+        }
+    }
 
-                String containersString = results.getString("containers");
-                List<String> containerNames = Arrays.asList(containersString.split(";"));
-                containerNames = this.convertNameListToUUIDList(containerNames);
+    //a statement whose results are fetched in pages or streamed, rather than read into memory all at once
+    private Statement createStreamingStatement(Connection databaseConnection) throws SQLException
+    {
+        Statement statement = databaseConnection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
 
-                String accessorsString = results.getString("accessors");
-                List<String> accessorNames = Arrays.asList(accessorsString.split(";"));
-                accessorNames = this.convertNameListToUUIDList(accessorNames);
+        //the MySQL driver only streams rows for this special value; the connection can't be used for anything else until they're read
+        statement.setFetchSize(this.dialect == SqlDialect.MYSQL ? Integer.MIN_VALUE : CLAIM_LOAD_FETCH_SIZE);
+        return statement;
+    }
 
-                String managersString = results.getString("managers");
-                List<String> managerNames = Arrays.asList(managersString.split(";"));
-                managerNames = this.convertNameListToUUIDList(managerNames);
-                Claim claim = new Claim(lesserBoundaryCorner, greaterBoundaryCorner, ownerID, builderNames, containerNames, accessorNames, managerNames, inheritNothing, claimID, false);
+    //the outcome of building a claim from its row: either a claim not yet added to the data store, or a problem to log
+    private record LoadedClaim(Claim claim, long parentId, String error) { }
 
-                if (removeClaim)
+    //builds claims from their rows, off the thread reading them
+    private List<LoadedClaim> buildClaims(List<ClaimRow> rows, List<World> validWorlds)
+    {
+        List<LoadedClaim> loadedClaims = new ArrayList<>(rows.size());
+        for (ClaimRow row : rows)
+        {
+            World world = null;
+            for (World w : validWorlds)
+            {
+                if (w.getName().equalsIgnoreCase(row.world()))
                 {
-                    claimsToRemove.add(claim);
+                    world = w;
+                    break;
                 }
-                else if (parentId == -1)
+            }
+
+            if (world == null)
+            {
+                loadedClaims.add(new LoadedClaim(null, row.parentId(), "Failed to load a claim (ID:" + row.id() + ") because its world isn't loaded (yet?).  Please delete the claim or contact the GriefPrevention developer with information about which plugin(s) you're using to load or create worlds.  " + row.world()));
+                continue;
+            }
+
+            Location lesserBoundaryCorner = new Location(world, row.lesserX(), row.lesserY(), row.lesserZ());
+            Location greaterBoundaryCorner = new Location(world, row.greaterX(), row.greaterY(), row.greaterZ());
+
+            UUID ownerID = null;
+            if (row.owner() != null)
+            {
+                try
                 {
-                    //top level claim
-                    this.addClaim(claim, false);
+                    ownerID = UUID.fromString(row.owner());
                 }
-                else
+                catch (IllegalArgumentException ex)
                 {
-                    //subdivision
-                    subdivisionsToLoad.add(claim);
+                    //not fatal, the claim loads as an administrative claim
+                    loadedClaims.add(new LoadedClaim(null, row.parentId(), "This owner entry is not a UUID: " + row.owner() + ".  Converted land claim to administrative @ " + lesserBoundaryCorner));
                 }
             }
-            catch (SQLException e)
+
+            ArrayList<String> builders = new ArrayList<>();
+            ArrayList<String> containers = new ArrayList<>();
+            ArrayList<String> accessors = new ArrayList<>();
+            ArrayList<String> managers = new ArrayList<>();
+            for (TrustGrant grant : row.trust())
             {
-                GriefPrevention.AddLogEntry("Unable to load a claim.  Details: " + e.getMessage() + " ... " + results.toString());
-                e.printStackTrace();
+                switch (grant.level())
+                {
+                    case "Build" -> builders.add(grant.trustee());
+                    case "Inventory" -> containers.add(grant.trustee());
+                    case "Access" -> accessors.add(grant.trustee());
+                    case "Manage" -> managers.add(grant.trustee());
+                    default -> loadedClaims.add(new LoadedClaim(null, row.parentId(), "Ignoring unknown trust level " + grant.level() + " in claim " + row.id() + "."));
+                }
             }
+
+            Claim claim = new Claim(lesserBoundaryCorner, greaterBoundaryCorner, ownerID, builders, containers, accessors, managers,
+                    row.inheritNothing(), row.id(), row.is3D());
+            loadedClaims.add(new LoadedClaim(claim, row.parentId(), null));
         }
+        return loadedClaims;
+    }
 
-        //add subdivisions to their parent claims
-        for (Claim childClaim : subdivisionsToLoad)
+    //loads claims from the delimited strings of the schema 3 table
+    private void loadLegacyClaims(Connection databaseConnection, List<World> validWorlds, ArrayList<Claim> claimsToRemove, Map<Claim, Long> subdivisionsToLoad) throws Exception
+    {
+        //closed when done, a streamed result holds on to the connection until then
+        try (Statement statement = this.createStreamingStatement(databaseConnection);
+             ResultSet results = statement.executeQuery("SELECT * FROM griefprevention_claimdata"))
         {
-            //find top level claim parent
-            Claim topLevelClaim = this.getClaimAt(childClaim.getLesserBoundaryCorner(), true, null);
+            Long claimID = null;
 
-            if (topLevelClaim == null)
+            while (results.next())
             {
-                claimsToRemove.add(childClaim);
-                GriefPrevention.AddLogEntry("Removing orphaned claim subdivision: " + childClaim.getLesserBoundaryCorner().toString());
-                continue;
+                try
+                {
+                    //problematic claims will be removed from secondary storage, and never added to in-memory data store
+                    boolean removeClaim = false;
+
+                    long parentId = results.getLong("parentid");
+                    claimID = results.getLong("id");
+                    boolean inheritNothing = results.getBoolean("inheritNothing");
+                    Location lesserBoundaryCorner = null;
+                    Location greaterBoundaryCorner = null;
+                    String lesserCornerString = "(location not available)";
+                    try
+                    {
+                        lesserCornerString = results.getString("lessercorner");
+                        lesserBoundaryCorner = this.locationFromString(lesserCornerString, validWorlds);
+                        String greaterCornerString = results.getString("greatercorner");
+                        greaterBoundaryCorner = this.locationFromString(greaterCornerString, validWorlds);
+                    }
+                    catch (Exception e)
+                    {
+                        if (e.getMessage() != null && e.getMessage().contains("World not found"))
+                        {
+                            GriefPrevention.AddLogEntry("Failed to load a claim (ID:" + claimID.toString() + ") because its world isn't loaded (yet?).  Please delete the claim or contact the GriefPrevention developer with information about which plugin(s) you're using to load or create worlds.  " + lesserCornerString);
+                            continue;
+                        }
+                        else
+                        {
+                            throw e;
+                        }
+                    }
+
+                    String ownerName = results.getString("owner");
+                    UUID ownerID = null;
+                    if (ownerName.isEmpty() || ownerName.startsWith("--"))
+                    {
+                        ownerID = null;  //administrative land claim or subdivision
+                    }
+                    else if (this.getSchemaVersion() < 1)
+                    {
+                        try
+                        {
+                            ownerID = UUIDFetcher.getUUIDOf(ownerName);
+                        }
+                        catch (Exception ex)
+                        {
+                            GriefPrevention.AddLogEntry("This owner name did not convert to a UUID: " + ownerName + ".");
+                            GriefPrevention.AddLogEntry("  Converted land claim to administrative @ " + lesserBoundaryCorner.toString());
+                        }
+                    }
+                    else
+                    {
+                        try
+                        {
+                            ownerID = UUID.fromString(ownerName);
+                        }
+                        catch (Exception ex)
+                        {
+                            GriefPrevention.AddLogEntry("This owner entry is not a UUID: " + ownerName + ".");
+                            GriefPrevention.AddLogEntry("  Converted land claim to administrative @ " + lesserBoundaryCorner.toString());
+                        }
+                    }
+
+                    String buildersString = results.getString("builders");
+                    List<String> builderNames = Arrays.asList(buildersString.split(";"));
+                    builderNames = this.convertNameListToUUIDList(builderNames);
+
+                    String containersString = results.getString("containers");
+                    List<String> containerNames = Arrays.asList(containersString.split(";"));
+                    containerNames = this.convertNameListToUUIDList(containerNames);
+
+                    String accessorsString = results.getString("accessors");
+                    List<String> accessorNames = Arrays.asList(accessorsString.split(";"));
+                    accessorNames = this.convertNameListToUUIDList(accessorNames);
+
+                    String managersString = results.getString("managers");
+                    List<String> managerNames = Arrays.asList(managersString.split(";"));
+                    managerNames = this.convertNameListToUUIDList(managerNames);
+                    Claim claim = new Claim(lesserBoundaryCorner, greaterBoundaryCorner, ownerID, builderNames, containerNames, accessorNames, managerNames, inheritNothing, claimID, false);
+
+                    if (removeClaim)
+                    {
+                        claimsToRemove.add(claim);
+                    }
+                    else if (parentId == -1)
+                    {
+                        //top level claim
+                        this.addClaim(claim, false);
+                    }
+                    else
+                    {
+                        //subdivision
+                        subdivisionsToLoad.put(claim, parentId);
+                    }
+                }
+                catch (SQLException e)
+                {
+                    GriefPrevention.AddLogEntry("Unable to load a claim.  Details: " + e.getMessage() + " ... " + results.toString());
+                    e.printStackTrace();
+                }
             }
+        }
+    }
 
-            //add this claim to the list of children of the current top level claim
-            childClaim.parent = topLevelClaim;
-            topLevelClaim.children.add(childClaim);
-            childClaim.inDataStore = true;
+    //copies the claims loaded from the schema 3 table into the schema 4 tables, keeping the old table as a backup
+    private void migrateClaims(Connection databaseConnection) throws SQLException
+    {
+        GriefPrevention.AddLogEntry("Please wait.  Moving claims to the new database tables.");
+
+        //start over if an earlier migration was interrupted; the schema version is only updated once every claim is copied
+        try (Statement statement = databaseConnection.createStatement())
+        {
+            statement.execute("DELETE FROM griefprevention_claim_trust");
+            statement.execute("DELETE FROM griefprevention_claims");
         }
 
-        for (Claim claim : claimsToRemove)
+        Map<Long, ClaimRow> rows = new LinkedHashMap<>();
+        for (Claim claim : this.claims)
         {
-            this.deleteClaimFromSecondaryStorage(claim);
+            rows.put(claim.id, this.getClaimRow(claim));
+            for (Claim child : claim.children)
+            {
+                rows.put(child.id, this.getClaimRow(child));
+            }
         }
+        this.writeClaimRows(rows, true);
+        this.setSchemaVersion(DATABASE_SCHEMA_VERSION);
 
-        if (this.getSchemaVersion() <= 2)
+        try (Statement statement = databaseConnection.createStatement())
         {
-            this.refreshDataConnection();
-            statement = this.databaseConnection.createStatement();
-            statement.execute("DELETE FROM griefprevention_claimdata WHERE id = '-1'");
+            statement.execute("ALTER TABLE griefprevention_claimdata RENAME TO griefprevention_claimdata_v3");
+        }
+        catch (SQLException e)
+        {
+            GriefPrevention.AddLogEntry("Unable to rename the old claim table, it is no longer used and may be dropped.  Details: " + e.getMessage());
         }
 
-        super.initialize();
+        GriefPrevention.AddLogEntry("Moved " + rows.size() + " claims.");
     }
 
     @Override
-    synchronized void writeClaimToStorage(Claim claim)  //see datastore.cs.  this will ALWAYS be a top level claim
+    void writeClaimToStorage(Claim claim)  //see datastore.cs.  this will ALWAYS be a top level claim
     {
-        try
+        this.writeClaimRowsSeparately(Collections.singletonMap(claim.id, this.getClaimRow(claim)));
+    }
+
+    @Override
+    Runnable prepareClaimWrite(Claim claim)
+    {
+        //capture the row now so the background writer never sees the claim mid-change
+        ClaimRow row = this.getClaimRow(claim);
+        return () -> this.queueClaimRow(row.id(), row);
+    }
+
+    @Override
+    Runnable prepareClaimDeletion(Claim claim)
+    {
+        long claimID = claim.id;
+        return () -> this.queueClaimRow(claimID, null);
+    }
+
+    private void queueClaimRow(long claimID, ClaimRow row)
+    {
+        synchronized (this.pendingClaimRows)
         {
-            this.refreshDataConnection();
+            this.pendingClaimRows.put(claimID, row);
+        }
+    }
 
-            //wipe out any existing data about this claim
-            this.deleteClaimFromSecondaryStorage(claim);
+    @Override
+    void claimWritesCompleted()
+    {
+        Map<Long, ClaimRow> rows;
+        synchronized (this.pendingClaimRows)
+        {
+            if (this.pendingClaimRows.isEmpty()) return;
+            rows = new LinkedHashMap<>(this.pendingClaimRows);
+            this.pendingClaimRows.clear();
+        }
 
-            //write claim data to the database
-            this.writeClaimData(claim);
+        try
+        {
+            this.writeClaimRows(rows, false);
         }
         catch (SQLException e)
         {
-            GriefPrevention.AddLogEntry("Unable to save data for claim at " + this.locationToString(claim.lesserBoundaryCorner) + ".  Details:");
+            //the batch was rolled back, so retry one at a time to save everything that can be saved
+            GriefPrevention.AddLogEntry("Unable to save " + rows.size() + " claims in one batch, saving them one at a time.  Details:");
             GriefPrevention.AddLogEntry(e.getMessage());
+            this.writeClaimRowsSeparately(rows);
         }
     }
 
-    //actually writes claim data to the database
-    synchronized private void writeClaimData(Claim claim) throws SQLException
+    //writes each claim in its own transaction, rewriting all of its trust grants in case the stored ones are out of step
+    private void writeClaimRowsSeparately(Map<Long, ClaimRow> rows)
     {
-        String lesserCornerString = this.locationToString(claim.getLesserBoundaryCorner());
-        String greaterCornerString = this.locationToString(claim.getGreaterBoundaryCorner());
-        String owner = "";
-        if (claim.ownerID != null) owner = claim.ownerID.toString();
+        for (Map.Entry<Long, ClaimRow> entry : rows.entrySet())
+        {
+            try
+            {
+                this.writeClaimRows(Collections.singletonMap(entry.getKey(), entry.getValue()), true);
+            }
+            catch (SQLException e)
+            {
+                GriefPrevention.AddLogEntry("Unable to save data for claim " + entry.getKey() + ".  Details:");
+                GriefPrevention.AddLogEntry(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Write claims in one transaction. Only the trust grants that changed since a claim was last written are
+     * inserted or deleted, unless all of them are to be rewritten.
+     *
+     * @param rows the claims to write by ID, null for claims to delete
+     * @param rewriteTrust whether to replace each claim's trust grants rather than update them
+     * @throws SQLException if the claims could not be written, in which case nothing was
+     */
+    private void writeClaimRows(Map<Long, ClaimRow> rows, boolean rewriteTrust) throws SQLException
+    {
+        synchronized (this.storedTrust)
+        {
+            try (ConnectionPool.PooledConnection connection = this.connectionPool.borrow())
+            {
+                Connection databaseConnection = connection.connection();
+                boolean autoCommit = databaseConnection.getAutoCommit();
+                databaseConnection.setAutoCommit(false);
+                try
+                {
+                    PreparedStatement deleteClaimTrustStmnt = connection.prepare(SQL_DELETE_CLAIM_TRUST);
+                    PreparedStatement deleteTrustStmnt = connection.prepare(SQL_DELETE_TRUST);
+                    PreparedStatement deleteClaimStmnt = connection.prepare(SQL_DELETE_CLAIM);
+                    PreparedStatement writeClaimStmnt = connection.prepare(this.claimUpsertSql != null ? this.claimUpsertSql : SQL_INSERT_CLAIM);
+                    PreparedStatement insertTrustStmnt = connection.prepare(SQL_INSERT_TRUST);
+
+                    Map<Long, Set<TrustGrant>> written = new HashMap<>();
+                    for (Map.Entry<Long, ClaimRow> entry : rows.entrySet())
+                    {
+                        long claimID = entry.getKey();
+                        ClaimRow row = entry.getValue();
+                        Set<TrustGrant> stored = rewriteTrust ? Set.of() : this.storedTrust.getOrDefault(claimID, Set.of());
+
+                        if (row == null || rewriteTrust)
+                        {
+                            deleteClaimTrustStmnt.setLong(1, claimID);
+                            deleteClaimTrustStmnt.addBatch();
+                        }
+
+                        //without an upsert, replace the row instead
+                        if (row == null || this.claimUpsertSql == null)
+                        {
+                            deleteClaimStmnt.setLong(1, claimID);
+                            deleteClaimStmnt.addBatch();
+                        }
+
+                        written.put(claimID, row == null ? null : row.trust());
+                        if (row == null) continue;
+
+                        this.setClaimParameters(writeClaimStmnt, row);
+                        writeClaimStmnt.addBatch();
+
+                        for (TrustGrant grant : stored)
+                        {
+                            if (row.trust().contains(grant)) continue;
+                            this.setTrustParameters(deleteTrustStmnt, claimID, grant);
+                            deleteTrustStmnt.addBatch();
+                        }
+
+                        for (TrustGrant grant : row.trust())
+                        {
+                            if (stored.contains(grant)) continue;
+                            this.setTrustParameters(insertTrustStmnt, claimID, grant);
+                            insertTrustStmnt.addBatch();
+                        }
+                    }
+
+                    deleteClaimTrustStmnt.executeBatch();
+                    deleteTrustStmnt.executeBatch();
+                    deleteClaimStmnt.executeBatch();
+                    writeClaimStmnt.executeBatch();
+                    insertTrustStmnt.executeBatch();
+                    databaseConnection.commit();
+
+                    for (Map.Entry<Long, Set<TrustGrant>> entry : written.entrySet())
+                    {
+                        if (entry.getValue() == null) this.storedTrust.remove(entry.getKey());
+                        else this.storedTrust.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                catch (SQLException e)
+                {
+                    databaseConnection.rollback();
+                    throw e;
+                }
+                finally
+                {
+                    databaseConnection.setAutoCommit(autoCommit);
+                }
+            }
+        }
+    }
+
+    //a claim's column values and trust grants, captured when the claim is saved
+    private record ClaimRow(long id, long parentId, String owner, String world, int lesserX, int lesserY, int lesserZ,
+                            int greaterX, int greaterY, int greaterZ, boolean inheritNothing, boolean is3D,
+                            Set<TrustGrant> trust)
+    {
+    }
+
+    //a row of griefprevention_claim_trust; the level is the name of the granted ClaimPermission
+    private record TrustGrant(String trustee, String level)
+    {
+    }
+
+    private ClaimRow getClaimRow(Claim claim)
+    {
+        Location lesser = claim.getLesserBoundaryCorner();
+        Location greater = claim.getGreaterBoundaryCorner();
+        String owner = claim.ownerID == null ? null : claim.ownerID.toString();
 
         ArrayList<String> builders = new ArrayList<>();
         ArrayList<String> containers = new ArrayList<>();
@@ -439,50 +1001,57 @@ public class DatabaseDataStore extends DataStore
 
         claim.getPermissions(builders, containers, accessors, managers);
 
-        String buildersString = this.storageStringBuilder(builders);
-        String containersString = this.storageStringBuilder(containers);
-        String accessorsString = this.storageStringBuilder(accessors);
-        String managersString = this.storageStringBuilder(managers);
-        boolean inheritNothing = claim.getSubclaimRestrictions();
+        Set<TrustGrant> trust = new LinkedHashSet<>();
+        this.addTrustGrants(trust, builders, ClaimPermission.Build);
+        this.addTrustGrants(trust, containers, ClaimPermission.Inventory);
+        this.addTrustGrants(trust, accessors, ClaimPermission.Access);
+        this.addTrustGrants(trust, managers, ClaimPermission.Manage);
         long parentId = claim.parent == null ? -1 : claim.parent.id;
 
-        try (PreparedStatement insertStmt = this.databaseConnection.prepareStatement(SQL_INSERT_CLAIM))
-        {
+        return new ClaimRow(claim.id, parentId, owner, lesser.getWorld().getName(),
+                lesser.getBlockX(), lesser.getBlockY(), lesser.getBlockZ(),
+                greater.getBlockX(), greater.getBlockY(), greater.getBlockZ(),
+                claim.getSubclaimRestrictions(), claim.is3D(), trust);
+    }
 
-            insertStmt.setLong(1, claim.id);
-            insertStmt.setString(2, owner);
-            insertStmt.setString(3, lesserCornerString);
-            insertStmt.setString(4, greaterCornerString);
-            insertStmt.setString(5, buildersString);
-            insertStmt.setString(6, containersString);
-            insertStmt.setString(7, accessorsString);
-            insertStmt.setString(8, managersString);
-            insertStmt.setBoolean(9, inheritNothing);
-            insertStmt.setLong(10, parentId);
-            insertStmt.executeUpdate();
-        }
-        catch (SQLException e)
+    private void addTrustGrants(Set<TrustGrant> trust, List<String> trustees, ClaimPermission level)
+    {
+        for (String trustee : trustees)
         {
-            GriefPrevention.AddLogEntry("Unable to save data for claim at " + this.locationToString(claim.lesserBoundaryCorner) + ".  Details:");
-            GriefPrevention.AddLogEntry(e.getMessage());
+            if (trustee.isEmpty()) continue;
+            trust.add(new TrustGrant(trustee, level.name()));
         }
     }
 
+    private void setClaimParameters(PreparedStatement writeClaimStmnt, ClaimRow row) throws SQLException
+    {
+        writeClaimStmnt.setLong(1, row.id());
+        writeClaimStmnt.setLong(2, row.parentId());
+        if (row.owner() == null) writeClaimStmnt.setNull(3, Types.VARCHAR);
+        else writeClaimStmnt.setString(3, row.owner());
+        writeClaimStmnt.setString(4, row.world());
+        writeClaimStmnt.setInt(5, row.lesserX());
+        writeClaimStmnt.setInt(6, row.lesserY());
+        writeClaimStmnt.setInt(7, row.lesserZ());
+        writeClaimStmnt.setInt(8, row.greaterX());
+        writeClaimStmnt.setInt(9, row.greaterY());
+        writeClaimStmnt.setInt(10, row.greaterZ());
+        writeClaimStmnt.setBoolean(11, row.inheritNothing());
+        writeClaimStmnt.setBoolean(12, row.is3D());
+    }
+
+    private void setTrustParameters(PreparedStatement trustStmnt, long claimID, TrustGrant grant) throws SQLException
+    {
+        trustStmnt.setLong(1, claimID);
+        trustStmnt.setString(2, grant.trustee());
+        trustStmnt.setString(3, grant.level());
+    }
+
     //deletes a claim from the database
     @Override
-    synchronized void deleteClaimFromSecondaryStorage(Claim claim)
+    void deleteClaimFromSecondaryStorage(Claim claim)
     {
-        try (PreparedStatement deleteStmnt = this.databaseConnection.prepareStatement(SQL_DELETE_CLAIM))
-        {
-            deleteStmnt.setLong(1, claim.id);
-            deleteStmnt.executeUpdate();
-        }
-        catch (SQLException e)
-        {
-            GriefPrevention.AddLogEntry("Unable to delete data for claim " + claim.id + ".  Details:");
-            GriefPrevention.AddLogEntry(e.getMessage());
-            e.printStackTrace();
-        }
+        this.writeClaimRowsSeparately(Collections.singletonMap(claim.id, null));
     }
 
     @Override
@@ -491,16 +1060,18 @@ public class DatabaseDataStore extends DataStore
         PlayerData playerData = new PlayerData();
         playerData.playerID = playerID;
 
-        try (PreparedStatement selectStmnt = this.databaseConnection.prepareStatement(SQL_SELECT_PLAYER_DATA))
+        try (ConnectionPool.PooledConnection connection = this.connectionPool.borrow())
         {
+            PreparedStatement selectStmnt = connection.prepare(SQL_SELECT_PLAYER_DATA);
             selectStmnt.setString(1, playerID.toString());
-            ResultSet results = selectStmnt.executeQuery();
-
-            //if data for this player exists, use it
-            if (results.next())
+            try (ResultSet results = selectStmnt.executeQuery())
             {
-                playerData.setAccruedClaimBlocks(results.getInt("accruedblocks"));
-                playerData.setBonusClaimBlocks(results.getInt("bonusblocks"));
+                //if data for this player exists, use it
+                if (results.next())
+                {
+                    playerData.setAccruedClaimBlocks(results.getInt("accruedblocks"));
+                    playerData.setBonusClaimBlocks(results.getInt("bonusblocks"));
+                }
             }
         }
         catch (SQLException e)
@@ -520,33 +1091,125 @@ public class DatabaseDataStore extends DataStore
         //never save data for the "administrative" account.  an empty string for player name indicates administrative account
         if (playerID == null) return;
 
-        this.savePlayerData(playerID.toString(), playerData);
+        this.writePlayerRow(this.getPlayerRow(playerID, playerData));
     }
 
-    private void savePlayerData(String playerID, PlayerData playerData)
+    @Override
+    void writeQueuedPlayerData(UUID playerID, PlayerData playerData)
     {
-        try (PreparedStatement deleteStmnt = this.databaseConnection.prepareStatement(SQL_DELETE_PLAYER_DATA);
-             PreparedStatement insertStmnt = this.databaseConnection.prepareStatement(SQL_INSERT_PLAYER_DATA))
+        //ensure player data is already read before capturing it, as savePlayerDataSync does
+        playerData.getAccruedClaimBlocks();
+        playerData.getClaims();
+
+        PlayerRow row = this.getPlayerRow(playerID, playerData);
+        synchronized (this.pendingPlayerRows)
         {
-            OfflinePlayer player = Bukkit.getOfflinePlayer(UUID.fromString(playerID));
+            this.pendingPlayerRows.put(row.name(), row);
+        }
 
-            SimpleDateFormat sqlFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            String dateString = sqlFormat.format(new Date(player.getLastPlayed()));
-            deleteStmnt.setString(1, playerID);
-            deleteStmnt.executeUpdate();
+        this.saveIgnoreList(playerID, playerData);
+    }
 
-            insertStmnt.setString(1, playerID);
-            insertStmnt.setString(2, dateString);
-            insertStmnt.setInt(3, playerData.getAccruedClaimBlocks());
-            insertStmnt.setInt(4, playerData.getBonusClaimBlocks());
-            insertStmnt.executeUpdate();
+    @Override
+    void playerDataWritesCompleted()
+    {
+        Map<String, PlayerRow> rows;
+        synchronized (this.pendingPlayerRows)
+        {
+            if (this.pendingPlayerRows.isEmpty()) return;
+            rows = new LinkedHashMap<>(this.pendingPlayerRows);
+            this.pendingPlayerRows.clear();
+        }
+
+        try (ConnectionPool.PooledConnection connection = this.connectionPool.borrow())
+        {
+            connection.connection().setAutoCommit(false);
+
+            //without an upsert, replace the rows instead
+            if (this.playerUpsertSql == null)
+            {
+                PreparedStatement deleteStmnt = connection.prepare(SQL_DELETE_PLAYER_DATA);
+                for (PlayerRow row : rows.values())
+                {
+                    deleteStmnt.setString(1, row.name());
+                    deleteStmnt.addBatch();
+                }
+                deleteStmnt.executeBatch();
+            }
+
+            PreparedStatement writeStmnt = connection.prepare(this.playerUpsertSql != null ? this.playerUpsertSql : SQL_INSERT_PLAYER_DATA);
+            for (PlayerRow row : rows.values())
+            {
+                this.setPlayerParameters(writeStmnt, row);
+                writeStmnt.addBatch();
+            }
+            writeStmnt.executeBatch();
+
+            //the pool restores autocommit when the connection is returned
+            connection.connection().commit();
+        }
+        catch (SQLException e)
+        {
+            //the batch was rolled back, so retry one at a time to save everything that can be saved
+            GriefPrevention.AddLogEntry("Unable to save data for " + rows.size() + " players in one batch, saving them one at a time.  Details:");
+            GriefPrevention.AddLogEntry(e.getMessage());
+            for (PlayerRow row : rows.values())
+            {
+                this.writePlayerRow(row);
+            }
+        }
+    }
+
+    //a player's column values, captured when the player's data is saved
+    private record PlayerRow(String name, String lastLogin, int accruedBlocks, int bonusBlocks)
+    {
+    }
+
+    private PlayerRow getPlayerRow(UUID playerID, PlayerData playerData)
+    {
+        OfflinePlayer player = Bukkit.getOfflinePlayer(playerID);
+
+        SimpleDateFormat sqlFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        String dateString = sqlFormat.format(new Date(player.getLastPlayed()));
+
+        return new PlayerRow(playerID.toString(), dateString, playerData.getAccruedClaimBlocks(), playerData.getBonusClaimBlocks());
+    }
+
+    private void writePlayerRow(PlayerRow row)
+    {
+        try (ConnectionPool.PooledConnection connection = this.connectionPool.borrow())
+        {
+            this.writePlayerRow(connection, row);
         }
         catch (SQLException e)
         {
             StringWriter errors = new StringWriter();
             e.printStackTrace(new PrintWriter(errors));
-            GriefPrevention.AddLogEntry(playerID + " " + errors.toString(), CustomLogEntryTypes.Exception);
+            GriefPrevention.AddLogEntry(row.name() + " " + errors.toString(), CustomLogEntryTypes.Exception);
+        }
+    }
+
+    private void writePlayerRow(ConnectionPool.PooledConnection connection, PlayerRow row) throws SQLException
+    {
+        //without an upsert, replace the row instead
+        if (this.playerUpsertSql == null)
+        {
+            PreparedStatement deleteStmnt = connection.prepare(SQL_DELETE_PLAYER_DATA);
+            deleteStmnt.setString(1, row.name());
+            deleteStmnt.executeUpdate();
         }
+
+        PreparedStatement writeStmnt = connection.prepare(this.playerUpsertSql != null ? this.playerUpsertSql : SQL_INSERT_PLAYER_DATA);
+        this.setPlayerParameters(writeStmnt, row);
+        writeStmnt.executeUpdate();
+    }
+
+    private void setPlayerParameters(PreparedStatement insertStmnt, PlayerRow row) throws SQLException
+    {
+        insertStmnt.setString(1, row.name());
+        insertStmnt.setString(2, row.lastLogin());
+        insertStmnt.setInt(3, row.accruedBlocks());
+        insertStmnt.setInt(4, row.bonusBlocks());
     }
 
     @Override
@@ -560,9 +1223,10 @@ public class DatabaseDataStore extends DataStore
     {
         this.nextClaimID = nextID;
 
-        try (PreparedStatement deleteStmnt = this.databaseConnection.prepareStatement(SQL_DELETE_NEXT_CLAIM_ID);
-             PreparedStatement insertStmnt = this.databaseConnection.prepareStatement(SQL_SET_NEXT_CLAIM_ID))
+        try (ConnectionPool.PooledConnection connection = this.connectionPool.borrow())
         {
+            PreparedStatement deleteStmnt = connection.prepare(SQL_DELETE_NEXT_CLAIM_ID);
+            PreparedStatement insertStmnt = connection.prepare(SQL_SET_NEXT_CLAIM_ID);
             deleteStmnt.execute();
             insertStmnt.setLong(1, nextID);
             insertStmnt.executeUpdate();
@@ -576,22 +1240,14 @@ public class DatabaseDataStore extends DataStore
 
     //updates the database with a group's bonus blocks
     @Override
-    synchronized void saveGroupBonusBlocks(String groupName, int currentValue)
+    void saveGroupBonusBlocks(String groupName, int currentValue)
     {
         //group bonus blocks are stored in the player data table, with player name = $groupName
-        try (PreparedStatement deleteStmnt = this.databaseConnection.prepareStatement(SQL_DELETE_GROUP_DATA);
-             PreparedStatement insertStmnt = this.databaseConnection.prepareStatement(SQL_INSERT_PLAYER_DATA))
+        try (ConnectionPool.PooledConnection connection = this.connectionPool.borrow())
         {
             SimpleDateFormat sqlFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
             String dateString = sqlFormat.format(new Date());
-            deleteStmnt.setString(1, '$' + groupName);
-            deleteStmnt.executeUpdate();
-
-            insertStmnt.setString(1, '$' + groupName);
-            insertStmnt.setString(2, dateString);
-            insertStmnt.setInt(3, 0);
-            insertStmnt.setInt(4, currentValue);
-            insertStmnt.executeUpdate();
+            this.writePlayerRow(connection, new PlayerRow('$' + groupName, dateString, 0, currentValue));
         }
         catch (SQLException e)
         {
@@ -601,62 +1257,78 @@ public class DatabaseDataStore extends DataStore
     }
 
     @Override
-    synchronized void close()
+    synchronized void closeStorage()
     {
-        if (this.databaseConnection != null)
+        if (this.connectionPool != null)
         {
-            try
-            {
-                if (!this.databaseConnection.isClosed())
-                {
-                    this.databaseConnection.close();
-                }
-            }
-            catch (SQLException e) {}
-            ;
+            this.connectionPool.close();
         }
-
-        this.databaseConnection = null;
     }
 
-    private synchronized void refreshDataConnection() throws SQLException
+    //opens a new connection with the settings every pooled connection gets
+    Connection openConnection() throws SQLException
     {
-        if (this.databaseConnection == null || !this.databaseConnection.isValid(3))
+        //set username/pass properties
+        Properties connectionProps = new Properties();
+        connectionProps.put("user", this.userName);
+        connectionProps.put("password", this.password);
+        connectionProps.put("autoReconnect", "true");
+        connectionProps.put("maxReconnects", String.valueOf(Integer.MAX_VALUE));
+
+        //let the MySQL driver send each batch of claim and player writes as one statement
+        if (this.databaseUrl.startsWith("jdbc:mysql://"))
         {
-            if (this.databaseConnection != null && !this.databaseConnection.isClosed())
+            connectionProps.put("rewriteBatchedStatements", "true");
+        }
+
+        //establish connection
+        Connection connection = DriverManager.getConnection(this.databaseUrl, connectionProps);
+
+        if (this.dialect == SqlDialect.SQLITE)
+        {
+            //write-ahead logging lets reads carry on during a write, and each commit appends to the log instead of
+            //rewriting pages; concurrent writers wait for each other rather than failing
+            try (Statement statement = connection.createStatement())
             {
-                this.databaseConnection.close();
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=NORMAL");
+                statement.execute("PRAGMA busy_timeout=5000");
             }
+            catch (SQLException e)
+            {
+                connection.close();
+                throw e;
+            }
+        }
 
-            //set username/pass properties
-            Properties connectionProps = new Properties();
-            connectionProps.put("user", this.userName);
-            connectionProps.put("password", this.password);
-            connectionProps.put("autoReconnect", "true");
-            connectionProps.put("maxReconnects", String.valueOf(Integer.MAX_VALUE));
+        return connection;
+    }
 
-            //establish connection
-            this.databaseConnection = DriverManager.getConnection(this.databaseUrl, connectionProps);
-        }
+    //the JDBC URL of the embedded database
+    static String getEmbeddedDatabaseUrl()
+    {
+        return "jdbc:sqlite:" + embeddedDatabaseFilePath;
     }
 
     @Override
     protected int getSchemaVersionFromStorage()
     {
-        try (PreparedStatement selectStmnt = this.databaseConnection.prepareStatement(SQL_SELECT_SCHEMA_VERSION))
+        try (ConnectionPool.PooledConnection connection = this.connectionPool.borrow())
         {
-            ResultSet results = selectStmnt.executeQuery();
-
-            //if there's nothing yet, assume 0 and add it
-            if (!results.next())
-            {
-                this.setSchemaVersion(0);
-                return 0;
-            }
-            //otherwise return the value that's in the table
-            else
+            PreparedStatement selectStmnt = connection.prepare(SQL_SELECT_SCHEMA_VERSION);
+            try (ResultSet results = selectStmnt.executeQuery())
             {
-                return results.getInt("version");
+                //if there's nothing yet, assume 0 and add it
+                if (!results.next())
+                {
+                    this.setSchemaVersion(0);
+                    return 0;
+                }
+                //otherwise return the value that's in the table
+                else
+                {
+                    return results.getInt("version");
+                }
             }
         }
         catch (SQLException e)
@@ -671,9 +1343,10 @@ public class DatabaseDataStore extends DataStore
     @Override
     protected void updateSchemaVersionInStorage(int versionToSet)
     {
-        try (PreparedStatement deleteStmnt = this.databaseConnection.prepareStatement(SQL_DELETE_SCHEMA_VERSION);
-             PreparedStatement insertStmnt = this.databaseConnection.prepareStatement(SQL_INSERT_SCHEMA_VERSION))
+        try (ConnectionPool.PooledConnection connection = this.connectionPool.borrow())
         {
+            PreparedStatement deleteStmnt = connection.prepare(SQL_DELETE_SCHEMA_VERSION);
+            PreparedStatement insertStmnt = connection.prepare(SQL_INSERT_SCHEMA_VERSION);
             deleteStmnt.execute();
 
             insertStmnt.setInt(1, versionToSet);
@@ -686,20 +1359,4 @@ public class DatabaseDataStore extends DataStore
         }
     }
 
-    /**
-     * Concats an array to a string divided with the ; sign
-     *
-     * @param input Arraylist with strings to concat
-     * @return String with all values from input array
-     */
-    private String storageStringBuilder(ArrayList<String> input)
-    {
-        String output = "";
-        for (String string : input)
-        {
-            output += string + ";";
-        }
-        return output;
-    }
-
 }
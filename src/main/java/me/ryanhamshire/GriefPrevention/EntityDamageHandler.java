@@ -333,7 +333,7 @@ public class EntityDamageHandler implements Listener
         }
 
         //case 2: in a pvp safe zone
-        Claim damagedClaim = dataStore.getClaimAt(damaged.getLocation(), false, damagedData.lastClaim);
+        Claim damagedClaim = dataStore.getClaimAtFor(damaged.getLocation(), false, damagedData);
         if (damagedClaim != null)
         {
             damagedData.lastClaim = damagedClaim;
@@ -481,7 +481,7 @@ public class EntityDamageHandler implements Listener
         // Note: Internal name is not descriptive. Actual node is "GriefPrevention.PVP.ProtectPetsOutsideLandClaims"
         if (!instance.config_pvp_protectPets)
         {
-            claim = dataStore.getClaimAt(event.damaged().getLocation(), false, attackerData.lastClaim);
+            claim = dataStore.getClaimAtFor(event.damaged().getLocation(), false, attackerData);
             if (claim == null)
             {
                 // Pet is not in a claim, allow attack.
@@ -532,7 +532,7 @@ public class EntityDamageHandler implements Listener
     {
         if (playerData.inPvpCombat()) return false;
 
-        Claim claim = this.dataStore.getClaimAt(location, false, playerData.lastClaim);
+        Claim claim = this.dataStore.getClaimAtFor(location, false, playerData);
 
         if (claim == null || !instance.claimIsPvPSafeZone(claim)) return false;
 
@@ -840,6 +840,12 @@ public class EntityDamageHandler implements Listener
         PlayerData defenderData = this.dataStore.getPlayerData(defender.getUniqueId());
         PlayerData attackerData = this.dataStore.getPlayerData(attacker.getUniqueId());
 
+        // Entering combat revokes build trust that cached permission decisions may still grant.
+        if (!defenderData.inPvpCombat() || !attackerData.inPvpCombat())
+        {
+            PermissionDecisionCache.invalidateAll();
+        }
+
         long now = Calendar.getInstance().getTimeInMillis();
         defenderData.lastPvpTimestamp = now;
         defenderData.lastPvpPlayer = attacker.getName();
@@ -959,7 +965,7 @@ public class EntityDamageHandler implements Listener
             // For players, use PvP rules
             if (affected instanceof Player affectedPlayer) {
                 PlayerData playerData = this.dataStore.getPlayerData(thrower.getUniqueId());
-                Claim claim = this.dataStore.getClaimAt(affected.getLocation(), false, playerData.lastClaim);
+                Claim claim = this.dataStore.getClaimAtFor(affected.getLocation(), false, playerData);
                 if (claim != null) {
                     playerData.lastClaim = claim;
                     // Check PvP permissions
@@ -644,7 +644,7 @@ public class EntityEventHandler implements Listener
         if ((isPvPWorld && GriefPrevention.instance.config_lockDeathDropsInPvpWorlds) ||
                 (!isPvPWorld && GriefPrevention.instance.config_lockDeathDropsInNonPvpWorlds))
         {
-            Claim claim = this.dataStore.getClaimAt(player.getLocation(), false, playerData.lastClaim);
+            Claim claim = this.dataStore.getClaimAtFor(player.getLocation(), false, playerData);
             ProtectDeathDropsEvent protectionEvent = new ProtectDeathDropsEvent(claim);
             Bukkit.getPluginManager().callEvent(protectionEvent);
             if (!protectionEvent.isCancelled())
@@ -71,7 +71,7 @@ class EquipShovelProcessingTask implements Runnable
         }
 
         //if standing in a claim owned by the player, visualize it
-        Claim claim = GriefPrevention.instance.dataStore.getClaimAt(player.getLocation(), true, playerData.lastClaim);
+        Claim claim = GriefPrevention.instance.dataStore.getClaimAtFor(player.getLocation(), true, playerData);
         if (claim != null && claim.checkPermission(player, ClaimPermission.Edit, null) == null)
         {
             playerData.lastClaim = claim;
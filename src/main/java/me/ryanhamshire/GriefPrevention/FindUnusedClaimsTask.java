@@ -21,9 +21,7 @@ package me.ryanhamshire.GriefPrevention;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Objects;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import me.ryanhamshire.GriefPrevention.util.SchedulerUtil;
 
@@ -63,8 +61,7 @@ class FindUnusedClaimsTask implements Runnable
     public void refreshUUIDs()
     {
         // Fetch owner UUIDs from list of claims
-        claimOwnerUUIDs = GriefPrevention.instance.dataStore.claims.stream().map(claim -> claim.ownerID)
-                .distinct().filter(Objects::nonNull).collect(Collectors.toList());
+        claimOwnerUUIDs = GriefPrevention.instance.dataStore.getClaimOwnerIDs();
 
         if (!claimOwnerUUIDs.isEmpty())
         {
@@ -28,20 +28,26 @@ import org.bukkit.configuration.file.YamlConfiguration;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.regex.Matcher;
 
 //manages data stored in the file system
@@ -49,8 +55,21 @@ public class FlatFileDataStore extends DataStore
 {
     private final static String claimDataFolderPath = dataLayerFolderPath + File.separator + "ClaimData";
     private final static String nextClaimIdFilePath = claimDataFolderPath + File.separator + "_nextClaimID";
+    private final static String claimSnapshotFilePath = claimDataFolderPath + File.separator + "_snapshot.bin";
+    private final static String claimJournalFilePath = claimDataFolderPath + File.separator + "_journal.log";
     private final static String schemaVersionFilePath = dataLayerFolderPath + File.separator + "_schemaVersion";
 
+    //journaled claims are compacted into their files once the journal reaches this size, or is this old
+    private final static long CLAIM_JOURNAL_COMPACT_BYTES = 4L * 1024 * 1024;
+    private final static long CLAIM_JOURNAL_COMPACT_MILLIS = 10L * 60 * 1000;
+
+    //whether any claim file failed to load, in which case no claim snapshot is written
+    private boolean claimLoadFailed;
+
+    //claim changes are appended here instead of rewriting claim files when journaling is enabled, otherwise null
+    private final ClaimJournal claimJournal;
+    private long lastClaimJournalCompaction = System.currentTimeMillis();
+
     static boolean hasData()
     {
         File claimsDataFolder = new File(claimDataFolderPath);
@@ -61,6 +80,7 @@ public class FlatFileDataStore extends DataStore
     //initialization!
     FlatFileDataStore() throws Exception
     {
+        this.claimJournal = GriefPrevention.instance.config_advanced_journalClaimChanges ? new ClaimJournal(Paths.get(claimJournalFilePath)) : null;
         this.initialize();
     }
 
@@ -199,17 +219,41 @@ public class FlatFileDataStore extends DataStore
             }
         }
 
+        //fold any changes journaled by the last run into the claim files before reading them
+        try
+        {
+            int recovered = ClaimJournal.replay(Paths.get(claimJournalFilePath), this.claimFileTarget());
+            if (recovered > 0) GriefPrevention.AddLogEntry("Applied " + recovered + " claim changes from the claim journal.");
+        }
+        catch (IOException e)
+        {
+            //claims are missing their latest changes, so don't snapshot them
+            this.claimLoadFailed = true;
+            GriefPrevention.AddLogEntry("Unable to apply the claim journal: " + e.getMessage());
+        }
+
         //load claims data into memory
         //get a list of all the files in the claims data folder
         files = claimDataFolder.listFiles();
 
-        if (this.getSchemaVersion() <= 1)
+        //publish the loaded claims to the chunk index as a single version instead of once per claim
+        this.chunkClaimIndex.beginBatch();
+        try
         {
-            this.loadClaimData_Legacy(files);
+            if (this.getSchemaVersion() <= 1)
+            {
+                //legacy files are converted as they load, so only snapshot once they've been read back normally
+                this.claimLoadFailed = true;
+                this.loadClaimData_Legacy(files);
+            }
+            else if (!this.loadClaimSnapshot(files))
+            {
+                this.loadClaimData(files);
+            }
         }
-        else
+        finally
         {
-            this.loadClaimData(files);
+            this.chunkClaimIndex.endBatch();
         }
 
         super.initialize();
@@ -394,7 +438,10 @@ public class FlatFileDataStore extends DataStore
 
     void loadClaimData(File[] files) throws Exception
     {
-        ConcurrentHashMap<Claim, Long> orphans = new ConcurrentHashMap<>();
+        //first pass: pick out the claim files and their IDs
+        //renaming old files claims new IDs, so this stays sequential to hand out IDs in a stable order
+        List<File> claimFiles = new ArrayList<>();
+        List<Long> claimIDs = new ArrayList<>();
         for (int i = 0; i < files.length; i++)
         {
             if (files[i].isFile())  //avoids folders
@@ -428,41 +475,53 @@ public class FlatFileDataStore extends DataStore
                     files[i] = newFile;
                 }
 
-                try
+                claimFiles.add(files[i]);
+                claimIDs.add(claimID);
+            }
+        }
+
+        //second pass: read and parse the files in parallel
+        List<LoadedClaim> loadedClaims = this.readClaimFiles(claimFiles, claimIDs, Bukkit.getServer().getWorlds());
+
+        //final pass: merge the results into the data store in file order, so the outcome matches a sequential load
+        Map<Claim, Long> orphans = new LinkedHashMap<>();
+        for (int i = 0; i < loadedClaims.size(); i++)
+        {
+            LoadedClaim loaded = loadedClaims.get(i);
+
+            //if there's any problem with the file's content, log an error message and skip it
+            if (loaded.error() != null)
+            {
+                this.claimLoadFailed = true;
+                Exception e = loaded.error();
+                if (e.getMessage() != null && e.getMessage().contains("World not found"))
                 {
-                    ArrayList<Long> out_parentID = new ArrayList<>();  //hacky output parameter
-                    Claim claim = this.loadClaim(files[i], out_parentID, claimID);
-                    if (out_parentID.size() == 0 || out_parentID.get(0) == -1)
-                    {
-                        this.addClaim(claim, false);
-                    }
-                    else
-                    {
-                        orphans.put(claim, out_parentID.get(0));
-                    }
+                    GriefPrevention.AddLogEntry("Failed to load a claim (ID:" + claimIDs.get(i) + ") because its world isn't loaded (yet?).  If this is not expected, delete this claim.");
                 }
-
-                //if there's any problem with the file's content, log an error message and skip it
-                catch (Exception e)
+                else
                 {
-                    if (e.getMessage() != null && e.getMessage().contains("World not found"))
-                    {
-                        GriefPrevention.AddLogEntry("Failed to load a claim (ID:" + claimID + ") because its world isn't loaded (yet?).  If this is not expected, delete this claim.");
-                    }
-                    else
-                    {
-                        StringWriter errors = new StringWriter();
-                        e.printStackTrace(new PrintWriter(errors));
-                        GriefPrevention.AddLogEntry(files[i].getName() + " " + errors.toString(), CustomLogEntryTypes.Exception);
-                    }
+                    StringWriter errors = new StringWriter();
+                    e.printStackTrace(new PrintWriter(errors));
+                    GriefPrevention.AddLogEntry(claimFiles.get(i).getName() + " " + errors.toString(), CustomLogEntryTypes.Exception);
                 }
+                continue;
+            }
+
+            if (loaded.parentID() == -1)
+            {
+                this.addClaim(loaded.claim(), false);
+            }
+            else
+            {
+                orphans.put(loaded.claim(), loaded.parentID());
             }
         }
 
         //link children to parents
-        for (Claim child : orphans.keySet())
+        for (Map.Entry<Claim, Long> orphan : orphans.entrySet())
         {
-            Claim parent = this.getClaim(orphans.get(child));
+            Claim child = orphan.getKey();
+            Claim parent = this.getClaim(orphan.getValue());
             if (parent != null)
             {
                 child.parent = parent;
@@ -471,7 +530,106 @@ public class FlatFileDataStore extends DataStore
         }
     }
 
+    //loads claims from the binary snapshot written at the last clean shutdown, if no claim file changed since
+    //returns false if the snapshot can't be used and the claim files must be read instead
+    private boolean loadClaimSnapshot(File[] files)
+    {
+        List<ClaimSnapshot.Entry> entries;
+        try
+        {
+            entries = ClaimSnapshot.read(Paths.get(claimSnapshotFilePath), ClaimSnapshot.fingerprint(files), Bukkit.getServer().getWorlds());
+        }
+        catch (IOException e)
+        {
+            GriefPrevention.AddLogEntry("Unable to read the claim snapshot, loading claim files instead: " + e.getMessage());
+            return false;
+        }
+
+        if (entries == null) return false;
+
+        //top level claims come first, so every parent is loaded before its subdivisions
+        for (ClaimSnapshot.Entry entry : entries)
+        {
+            Claim claim = entry.claim();
+            if (entry.parentID() != -1)
+            {
+                Claim parent = this.getClaim(entry.parentID());
+                if (parent == null) continue;
+                claim.parent = parent;
+            }
+            this.addClaim(claim, false);
+        }
+
+        GriefPrevention.AddLogEntry("Loaded " + entries.size() + " claims from the claim snapshot.");
+        return true;
+    }
+
+    //the outcome of reading a single claim file: either a claim not yet added to the data store, or the error
+    private record LoadedClaim(Claim claim, long parentID, Exception error) { }
+
+    //reads and parses claim files on a pool sized by GriefPrevention.Advanced.ClaimLoadThreads
+    //results are returned in the same order as the files
+    private List<LoadedClaim> readClaimFiles(List<File> claimFiles, List<Long> claimIDs, List<World> validWorlds) throws Exception
+    {
+        int threads = GriefPrevention.instance.config_advanced_claimLoadThreads;
+        if (threads <= 0) threads = Runtime.getRuntime().availableProcessors();
+        threads = Math.max(1, Math.min(threads, claimFiles.size()));
+
+        List<LoadedClaim> loadedClaims = new ArrayList<>(claimFiles.size());
+        if (threads == 1)
+        {
+            for (int i = 0; i < claimFiles.size(); i++)
+            {
+                loadedClaims.add(this.readClaimFile(claimFiles.get(i), claimIDs.get(i), validWorlds));
+            }
+            return loadedClaims;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try
+        {
+            List<ForkJoinTask<LoadedClaim>> tasks = new ArrayList<>(claimFiles.size());
+            for (int i = 0; i < claimFiles.size(); i++)
+            {
+                File file = claimFiles.get(i);
+                long claimID = claimIDs.get(i);
+                tasks.add(pool.submit(() -> this.readClaimFile(file, claimID, validWorlds)));
+            }
+
+            for (ForkJoinTask<LoadedClaim> task : tasks)
+            {
+                loadedClaims.add(task.get());
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        return loadedClaims;
+    }
+
+    private LoadedClaim readClaimFile(File file, long claimID, List<World> validWorlds)
+    {
+        try
+        {
+            ArrayList<Long> out_parentID = new ArrayList<>();  //hacky output parameter
+            Claim claim = this.loadClaim(file, out_parentID, claimID, validWorlds);
+            long parentID = out_parentID.isEmpty() ? -1 : out_parentID.get(0);
+            return new LoadedClaim(claim, parentID, null);
+        }
+        catch (Exception e)
+        {
+            return new LoadedClaim(null, -1, e);
+        }
+    }
+
     Claim loadClaim(File file, ArrayList<Long> out_parentID, long claimID) throws IOException, InvalidConfigurationException, Exception
+    {
+        return this.loadClaim(file, out_parentID, claimID, Bukkit.getServer().getWorlds());
+    }
+
+    Claim loadClaim(File file, ArrayList<Long> out_parentID, long claimID, List<World> validWorlds) throws IOException, InvalidConfigurationException, Exception
     {
         List<String> lines = Files.readLines(file, Charset.forName("UTF-8"));
         StringBuilder builder = new StringBuilder();
@@ -480,7 +638,7 @@ public class FlatFileDataStore extends DataStore
             builder.append(line).append('\n');
         }
 
-        return this.loadClaim(builder.toString(), out_parentID, file.lastModified(), claimID, Bukkit.getServer().getWorlds());
+        return this.loadClaim(builder.toString(), out_parentID, file.lastModified(), claimID, validWorlds);
     }
 
     Claim loadClaim(String input, ArrayList<Long> out_parentID, long lastModifiedDate, long claimID, List<World> validWorlds) throws InvalidConfigurationException, Exception
@@ -533,38 +691,31 @@ public class FlatFileDataStore extends DataStore
     }
 
     String getYamlForClaim(Claim claim)
+    {
+        return this.getYamlForClaim(ClaimJournal.ClaimState.of(claim));
+    }
+
+    private String getYamlForClaim(ClaimJournal.ClaimState claim)
     {
         YamlConfiguration yaml = new YamlConfiguration();
 
         //boundaries
-        yaml.set("Lesser Boundary Corner", this.locationToString(claim.lesserBoundaryCorner));
-        yaml.set("Greater Boundary Corner", this.locationToString(claim.greaterBoundaryCorner));
+        yaml.set("Lesser Boundary Corner", claim.world() + ";" + claim.lesserX() + ";" + claim.lesserY() + ";" + claim.lesserZ());
+        yaml.set("Greater Boundary Corner", claim.world() + ";" + claim.greaterX() + ";" + claim.greaterY() + ";" + claim.greaterZ());
 
         //owner
         String ownerID = "";
-        if (claim.ownerID != null) ownerID = claim.ownerID.toString();
+        if (claim.owner() != null) ownerID = claim.owner().toString();
         yaml.set("Owner", ownerID);
 
-        ArrayList<String> builders = new ArrayList<>();
-        ArrayList<String> containers = new ArrayList<>();
-        ArrayList<String> accessors = new ArrayList<>();
-        ArrayList<String> managers = new ArrayList<>();
-        claim.getPermissions(builders, containers, accessors, managers);
-
-        yaml.set("Builders", builders);
-        yaml.set("Containers", containers);
-        yaml.set("Accessors", accessors);
-        yaml.set("Managers", managers);
-
-        Long parentID = -1L;
-        if (claim.parent != null)
-        {
-            parentID = claim.parent.id;
-        }
+        yaml.set("Builders", claim.builders());
+        yaml.set("Containers", claim.containers());
+        yaml.set("Accessors", claim.accessors());
+        yaml.set("Managers", claim.managers());
 
-        yaml.set("Parent Claim ID", parentID);
+        yaml.set("Parent Claim ID", claim.parentID());
 
-        yaml.set("inheritNothing", claim.getSubclaimRestrictions());
+        yaml.set("inheritNothing", claim.inheritNothing());
 
         // Add is3D flag
         yaml.set("Is3D", claim.is3D());
@@ -575,16 +726,90 @@ public class FlatFileDataStore extends DataStore
     @Override
     synchronized void writeClaimToStorage(Claim claim)
     {
-        String claimID = String.valueOf(claim.id);
+        this.writeClaimFile(claim.id, this.getYamlForClaim(claim));
+    }
+
+    @Override
+    Runnable prepareClaimWrite(Claim claim)
+    {
+        //serialize now so the background writer never sees the claim mid-change
+        ClaimJournal.ClaimState state = ClaimJournal.ClaimState.of(claim);
+        if (this.claimJournal != null)
+        {
+            return () -> this.claimJournal.appendSave(state);
+        }
+
+        String yaml = this.getYamlForClaim(state);
+        return () -> this.writeClaimFile(state.id(), yaml);
+    }
+
+    @Override
+    Runnable prepareClaimDeletion(Claim claim)
+    {
+        long claimID = claim.id;
+        if (this.claimJournal != null)
+        {
+            return () -> this.claimJournal.appendDelete(claimID);
+        }
+
+        return () -> this.deleteClaimFile(claimID);
+    }
+
+    @Override
+    void claimWritesCompleted()
+    {
+        if (this.claimJournal == null) return;
+
+        try
+        {
+            //one sync for the whole batch
+            this.claimJournal.sync();
+
+            long size = this.claimJournal.size();
+            if (size >= CLAIM_JOURNAL_COMPACT_BYTES
+                    || size > 0 && System.currentTimeMillis() - this.lastClaimJournalCompaction >= CLAIM_JOURNAL_COMPACT_MILLIS)
+            {
+                this.compactClaimJournal();
+            }
+        }
+        catch (IOException e)
+        {
+            GriefPrevention.AddLogEntry("Unable to write the claim journal: " + e.getMessage(), CustomLogEntryTypes.Exception);
+        }
+    }
+
+    //folds journaled changes into the claim files and empties the journal
+    private void compactClaimJournal() throws IOException
+    {
+        this.claimJournal.compact(this.claimFileTarget());
+        this.lastClaimJournalCompaction = System.currentTimeMillis();
+    }
 
-        String yaml = this.getYamlForClaim(claim);
+    //applies journaled changes to the claim files, syncing each so the journal can safely be emptied afterward
+    private ClaimJournal.Target claimFileTarget()
+    {
+        return new ClaimJournal.Target()
+        {
+            @Override
+            public void save(ClaimJournal.ClaimState state) throws IOException
+            {
+                saveClaimFile(state.id(), getYamlForClaim(state), true);
+            }
 
+            @Override
+            public void delete(long claimID) throws IOException
+            {
+                java.nio.file.Files.deleteIfExists(Paths.get(claimDataFolderPath, claimID + ".yml"));
+            }
+        };
+    }
+
+    //each claim has its own file, so writing one doesn't need the data store's lock
+    private void writeClaimFile(long claimID, String yaml)
+    {
         try
         {
-            //open the claim's file
-            File claimFile = new File(claimDataFolderPath + File.separator + claimID + ".yml");
-            claimFile.createNewFile();
-            Files.write(yaml.getBytes("UTF-8"), claimFile);
+            this.saveClaimFile(claimID, yaml, false);
         }
 
         //if any problem, log it
@@ -596,12 +821,30 @@ public class FlatFileDataStore extends DataStore
         }
     }
 
+    //writes to a temporary file first, so a crash mid-write can't leave a truncated claim file behind
+    private void saveClaimFile(long claimID, String yaml, boolean sync) throws IOException
+    {
+        File temporaryFile = new File(claimDataFolderPath + File.separator + "_" + claimID + ".yml.tmp");
+        try (FileOutputStream outStream = new FileOutputStream(temporaryFile))
+        {
+            outStream.write(yaml.getBytes(StandardCharsets.UTF_8));
+            if (sync) outStream.getFD().sync();
+        }
+
+        File claimFile = new File(claimDataFolderPath + File.separator + claimID + ".yml");
+        java.nio.file.Files.move(temporaryFile.toPath(), claimFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
     //deletes a claim from the file system
     @Override
     synchronized void deleteClaimFromSecondaryStorage(Claim claim)
     {
-        String claimID = String.valueOf(claim.id);
+        this.deleteClaimFile(claim.id);
+    }
 
+    private void deleteClaimFile(long claimID)
+    {
         //remove from disk
         File claimFile = new File(claimDataFolderPath + File.separator + claimID + ".yml");
         if (claimFile.exists() && !claimFile.delete())
@@ -807,15 +1050,29 @@ public class FlatFileDataStore extends DataStore
     synchronized void migrateData(DatabaseDataStore databaseStore)
     {
         //migrate claims
-        for (Claim claim : this.claims)
+        synchronized (databaseStore)
         {
-            databaseStore.addClaim(claim, true);
-            for (Claim child : claim.children)
+            databaseStore.chunkClaimIndex.beginBatch();
+            try
             {
-                databaseStore.addClaim(child, true);
+                for (Claim claim : this.claims)
+                {
+                    databaseStore.addClaim(claim, true);
+                    for (Claim child : claim.children)
+                    {
+                        databaseStore.addClaim(child, true);
+                    }
+                }
+            }
+            finally
+            {
+                databaseStore.chunkClaimIndex.endBatch();
             }
         }
 
+        //the claim folder is renamed below, so make sure every claim reached the database first
+        databaseStore.flushClaimWrites();
+
         //migrate groups
         for (Map.Entry<String, Integer> groupEntry : this.permissionToBonusBlocksMap.entrySet())
         {
@@ -837,8 +1094,9 @@ public class FlatFileDataStore extends DataStore
             if (file.getName().startsWith("_")) continue;
             if (file.getName().endsWith(".ignore")) continue;
 
+            //written here rather than queued, the player data writer would wait on this data store's lock to read the player's claims
             UUID playerID = UUID.fromString(file.getName());
-            databaseStore.savePlayerData(playerID, this.getPlayerData(playerID));
+            databaseStore.savePlayerDataSync(playerID, this.getPlayerData(playerID));
             this.clearCachedPlayerData(playerID);
         }
 
@@ -876,7 +1134,38 @@ public class FlatFileDataStore extends DataStore
     }
 
     @Override
-    synchronized void close() { }
+    synchronized void closeStorage()
+    {
+        if (this.claimJournal != null)
+        {
+            try
+            {
+                this.compactClaimJournal();
+                this.claimJournal.close();
+                java.nio.file.Files.deleteIfExists(Paths.get(claimJournalFilePath));
+            }
+            catch (IOException e)
+            {
+                //the journal is replayed on the next startup
+                this.claimLoadFailed = true;
+                GriefPrevention.AddLogEntry("Unable to compact the claim journal: " + e.getMessage());
+            }
+        }
+
+        //claims which failed to load are missing from memory, so a snapshot would hide them from the next startup
+        if (this.claimLoadFailed) return;
+
+        try
+        {
+            File claimDataFolder = new File(claimDataFolderPath);
+            ClaimSnapshot.write(Paths.get(claimSnapshotFilePath), ClaimSnapshot.fingerprint(claimDataFolder.listFiles()),
+                    this.claims, claim -> new File(claimDataFolder, claim.id + ".yml").lastModified());
+        }
+        catch (IOException e)
+        {
+            GriefPrevention.AddLogEntry("Unable to write the claim snapshot: " + e.getMessage());
+        }
+    }
 
     @Override
     int getSchemaVersionFromStorage()
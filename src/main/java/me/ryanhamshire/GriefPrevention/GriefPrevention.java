@@ -227,6 +227,12 @@ public class GriefPrevention extends JavaPlugin
     public boolean config_advanced_fixNegativeClaimblockAmounts;    //whether to attempt to fix negative claim block amounts (some addons cause/assume players can go into negative amounts)
     public int config_advanced_claim_expiration_check_rate;            //How often GP should check for expired claims, amount in seconds
     public int config_advanced_offlineplayer_cache_days;            //Cache players who have logged in within the last x number of days
+    public boolean config_advanced_claimColumnGrid;                 //whether to resolve claims through precomputed per-chunk column grids
+    public int config_advanced_permissionRefreshSeconds;            //how often cached permission nodes of online players are recalculated
+    public int config_advanced_claimLoadThreads;                    //how many threads parse claim files or database rows at startup, 0 for one per processor
+    public int config_advanced_claimWriteDelayMilliseconds;         //how long claim changes may wait to be written in the background, 0 to write immediately
+    public int config_advanced_playerDataWriteDelayMilliseconds;    //how long player data saves may wait to be written in the background, 0 to write immediately
+    public boolean config_advanced_journalClaimChanges;             //whether file storage appends claim changes to a journal instead of rewriting claim files
 
     //custom log settings
     public int config_logs_daysToKeep;
@@ -287,13 +293,23 @@ public class GriefPrevention extends JavaPlugin
         String dbUrl = this.getConfig().getString("database.url", "");
         String dbUser = this.getConfig().getString("database.username", "");
         String dbPass = this.getConfig().getString("database.password", "");
+        int dbPoolSize = Math.max(1, this.getConfig().getInt("database.poolSize", 4));
+
+        //the embedded database keeps everything in a single file in the data folder, with no database server to run
+        if (dbUrl.isEmpty() && this.getConfig().getBoolean("database.embedded", false))
+        {
+            dbUrl = DatabaseDataStore.getEmbeddedDatabaseUrl();
+
+            //SQLite creates the database file, but not the folder it's in
+            new File(DatabaseDataStore.embeddedDatabaseFilePath).getParentFile().mkdirs();
+        }
 
         // Initialize database if configured
         if (!dbUrl.isEmpty())
         {
             try
             {
-                DatabaseDataStore databaseStore = new DatabaseDataStore(dbUrl, dbUser, dbPass);
+                DatabaseDataStore databaseStore = new DatabaseDataStore(dbUrl, dbUser, dbPass, dbPoolSize);
 
                 if (FlatFileDataStore.hasData())
                 {
@@ -358,6 +374,10 @@ public class GriefPrevention extends JavaPlugin
         FindUnusedClaimsTask task2 = new FindUnusedClaimsTask();
         SchedulerUtil.runRepeatingGlobal(this, task2, 20L * 60, 20L * config_advanced_claim_expiration_check_rate);
 
+        //start recurring expiry of cached permission nodes, so permission changes made elsewhere are picked up
+        long permissionRefreshTicks = 20L * this.config_advanced_permissionRefreshSeconds;
+        SchedulerUtil.runRepeatingGlobal(this, this::invalidateCachedPermissions, permissionRefreshTicks, permissionRefreshTicks);
+
         //register for events
         PluginManager pluginManager = this.getServer().getPluginManager();
 
@@ -683,6 +703,12 @@ public class GriefPrevention extends JavaPlugin
         this.config_advanced_fixNegativeClaimblockAmounts = config.getBoolean("GriefPrevention.Advanced.fixNegativeClaimblockAmounts", true);
         this.config_advanced_claim_expiration_check_rate = config.getInt("GriefPrevention.Advanced.ClaimExpirationCheckRate", 60);
         this.config_advanced_offlineplayer_cache_days = config.getInt("GriefPrevention.Advanced.OfflinePlayer_cache_days", 90);
+        this.config_advanced_claimColumnGrid = config.getBoolean("GriefPrevention.Advanced.ClaimColumnGrid", true);
+        this.config_advanced_permissionRefreshSeconds = Math.max(1, config.getInt("GriefPrevention.Advanced.PermissionRefreshSeconds", 30));
+        this.config_advanced_claimLoadThreads = config.getInt("GriefPrevention.Advanced.ClaimLoadThreads", 0);
+        this.config_advanced_claimWriteDelayMilliseconds = Math.max(0, config.getInt("GriefPrevention.Advanced.ClaimWriteDelayMilliseconds", 1000));
+        this.config_advanced_playerDataWriteDelayMilliseconds = Math.max(0, config.getInt("GriefPrevention.Advanced.PlayerDataWriteDelayMilliseconds", 500));
+        this.config_advanced_journalClaimChanges = config.getBoolean("GriefPrevention.Advanced.JournalClaimChanges", false);
 
         //custom logger settings
         this.config_logs_daysToKeep = config.getInt("GriefPrevention.Abridged Logs.Days To Keep", 7);
@@ -810,6 +836,12 @@ public class GriefPrevention extends JavaPlugin
         outConfig.set("GriefPrevention.Advanced.fixNegativeClaimblockAmounts", this.config_advanced_fixNegativeClaimblockAmounts);
         outConfig.set("GriefPrevention.Advanced.ClaimExpirationCheckRate", this.config_advanced_claim_expiration_check_rate);
         outConfig.set("GriefPrevention.Advanced.OfflinePlayer_cache_days", this.config_advanced_offlineplayer_cache_days);
+        outConfig.set("GriefPrevention.Advanced.ClaimColumnGrid", this.config_advanced_claimColumnGrid);
+        outConfig.set("GriefPrevention.Advanced.PermissionRefreshSeconds", this.config_advanced_permissionRefreshSeconds);
+        outConfig.set("GriefPrevention.Advanced.ClaimLoadThreads", this.config_advanced_claimLoadThreads);
+        outConfig.set("GriefPrevention.Advanced.ClaimWriteDelayMilliseconds", this.config_advanced_claimWriteDelayMilliseconds);
+        outConfig.set("GriefPrevention.Advanced.PlayerDataWriteDelayMilliseconds", this.config_advanced_playerDataWriteDelayMilliseconds);
+        outConfig.set("GriefPrevention.Advanced.JournalClaimChanges", this.config_advanced_journalClaimChanges);
 
         //custom logger settings
         outConfig.set("GriefPrevention.Abridged Logs.Days To Keep", this.config_logs_daysToKeep);
@@ -979,7 +1011,7 @@ public class GriefPrevention extends JavaPlugin
 
             //must be standing in a land claim
             PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
-            Claim claim = this.dataStore.getClaimAt(player.getLocation(), true, playerData.lastClaim);
+            Claim claim = this.dataStore.getClaimAtFor(player.getLocation(), true, playerData);
             if (claim == null)
             {
                 GriefPrevention.sendMessage(player, TextMode.Err, Messages.StandInClaimToResize);
@@ -1369,8 +1401,21 @@ public class GriefPrevention extends JavaPlugin
                     return true;
                 }
 
+                //when dropping one trustee, claims which don't trust them anywhere have nothing to change or save
+                Set<Claim> trustingClaims = null;
+                if (!clearPermissions)
+                {
+                    trustingClaims = new HashSet<>();
+                    for (Claim trusting : this.dataStore.getClaimsTrusting(idToDrop))
+                    {
+                        trustingClaims.add(trusting);
+                        if (trusting.parent != null) trustingClaims.add(trusting.parent);
+                    }
+                }
+
                 //dropping permissions
                 for (Claim targetClaim : event.getClaims()) {
+                    if (trustingClaims != null && !trustingClaims.contains(targetClaim)) continue;
                     claim = targetClaim;
 
                     //if untrusting "all" drop all permissions
@@ -1382,8 +1427,8 @@ public class GriefPrevention extends JavaPlugin
                     //otherwise drop individual permissions
                     else
                     {
-                        claim.dropPermission(idToDrop);
                         claim.managers.remove(idToDrop);
+                        claim.dropPermission(idToDrop);
                     }
 
                     //save changes
@@ -1519,7 +1564,7 @@ public class GriefPrevention extends JavaPlugin
         else if (cmd.getName().equalsIgnoreCase("restrictsubclaim") && player != null)
         {
             PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
-            Claim claim = this.dataStore.getClaimAt(player.getLocation(), true, playerData.lastClaim);
+            Claim claim = this.dataStore.getClaimAtFor(player.getLocation(), true, playerData);
             if (claim == null || claim.parent == null)
             {
                 GriefPrevention.sendMessage(player, TextMode.Err, Messages.StandInSubclaim);
@@ -1834,18 +1879,45 @@ public class GriefPrevention extends JavaPlugin
             return true;
         }
 
-        //adminclaimslist
-        else if (cmd.getName().equalsIgnoreCase("adminclaimslist"))
+        //trustedin <player>
+        else if (cmd.getName().equalsIgnoreCase("trustedin"))
         {
-            //find admin claims
-            Vector<Claim> claims = new Vector<>();
-            for (Claim claim : this.dataStore.claims)
+            //requires exactly one parameter, the trustee
+            if (args.length != 1) return false;
+
+            String identifier = args[0];
+            if (!identifier.equals("public") && !(identifier.startsWith("[") && identifier.endsWith("]")))
             {
-                if (claim.ownerID == null)  //admin claim
+                OfflinePlayer otherPlayer = this.resolvePlayerByName(identifier);
+                if (otherPlayer == null)
                 {
-                    claims.add(claim);
+                    GriefPrevention.sendMessage(player, TextMode.Err, Messages.PlayerNotFound2);
+                    return true;
                 }
+                identifier = otherPlayer.getUniqueId().toString();
             }
+
+            List<Claim> claims = this.dataStore.getClaimsTrusting(identifier);
+            if (claims.isEmpty())
+            {
+                GriefPrevention.sendMessage(player, TextMode.Info, Messages.TrustedInNone, args[0]);
+                return true;
+            }
+
+            GriefPrevention.sendMessage(player, TextMode.Instr, Messages.TrustedInHeader, args[0]);
+            for (Claim claim : claims)
+            {
+                GriefPrevention.sendMessage(player, TextMode.Instr, getfriendlyLocationString(claim.getLesserBoundaryCorner()) + " (" + claim.getOwnerName() + ")");
+            }
+
+            return true;
+        }
+
+        //adminclaimslist
+        else if (cmd.getName().equalsIgnoreCase("adminclaimslist"))
+        {
+            //find admin claims
+            List<Claim> claims = this.dataStore.getClaimsOwnedBy(null);
             if (claims.size() > 0)
             {
                 GriefPrevention.sendMessage(player, TextMode.Instr, Messages.ClaimsListHeader);
@@ -2034,7 +2106,7 @@ public class GriefPrevention extends JavaPlugin
             //FEATURE: empower players who get "stuck" in an area where they don't have permission to build to save themselves
 
             PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
-            Claim claim = this.dataStore.getClaimAt(player.getLocation(), false, playerData.lastClaim);
+            Claim claim = this.dataStore.getClaimAtFor(player.getLocation(), false, playerData);
 
             //if another /trapped is pending, ignore this slash command
             if (playerData.pendingTrapped)
@@ -2114,6 +2186,7 @@ public class GriefPrevention extends JavaPlugin
             this.loadConfig();
             this.dataStore.loadMessages();
             playerEventHandler.reload();
+            this.invalidateCachedPermissions();
             if (player != null)
             {
                 GriefPrevention.sendMessage(player, TextMode.Success, "Configuration updated.  If you have updated your Grief Prevention JAR, you still need to /reload or reboot your server.");
@@ -2311,7 +2384,7 @@ public class GriefPrevention extends JavaPlugin
         PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
 
         //which claim is being abandoned?
-        Claim claim = this.dataStore.getClaimAt(player.getLocation(), false, playerData.lastClaim);
+        Claim claim = this.dataStore.getClaimAtFor(player.getLocation(), false, playerData);
 
         //if no claim here, nothing to abandon
         if (claim == null)
@@ -2717,6 +2790,15 @@ public class GriefPrevention extends JavaPlugin
         return lookupPlayerName(id);
     }
 
+    //discards the cached permission nodes of all online players, see CachedPermission
+    public void invalidateCachedPermissions()
+    {
+        for (Player player : this.getServer().getOnlinePlayers())
+        {
+            this.dataStore.getPlayerData(player.getUniqueId()).invalidatePermissions();
+        }
+    }
+
     public void onDisable()
     {
         //save data for any online players
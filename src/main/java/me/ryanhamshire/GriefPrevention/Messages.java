@@ -215,6 +215,8 @@ public enum Messages
     StandInSubclaim("You need to be standing in a subclaim to restrict it"),
     SubclaimRestricted("This subclaim's permissions will no longer inherit from the parent claim"),
     SubclaimUnrestricted("This subclaim's permissions will now inherit from the parent claim"),
+    TrustedInHeader("{0} is trusted in these claims:"),
+    TrustedInNone("{0} isn't trusted in any claims."),
     NetherPortalTrapDetectionMessage("It seems you might be stuck inside a nether portal. We will rescue you in a few seconds if that is the case!", "Sent to player on join, if they left while inside a nether portal.");
 
     final @NotNull String defaultValue;
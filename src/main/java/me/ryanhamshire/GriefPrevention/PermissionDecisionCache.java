@@ -0,0 +1,119 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded per-claim memo of which {@link ClaimPermission ClaimPermissions} a UUID is granted by the claim's own
+ * data: ownership, explicit and public trust, and inheritance from the parent claim.
+ *
+ * <p>Decisions that depend on the checking {@link org.bukkit.entity.Player Player} object, such as permission nodes
+ * and ignoreclaims mode, are never stored. A cached grant therefore always stays a grant for the full check, and a
+ * cached miss just falls through to it.
+ *
+ * <p>All caches share one epoch. Anything that can revoke a grant (dropped trust, an owner change, restricting a
+ * subdivision or a player entering pvp combat) advances it, which discards every cached decision at once.
+ */
+final class PermissionDecisionCache
+{
+
+    private static final int MAX_PLAYERS = 32;
+    private static final AtomicLong EPOCH = new AtomicLong();
+
+    private final Map<UUID, Decisions> decisions = new LinkedHashMap<>(16, 0.75F, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Decisions> eldest)
+        {
+            return this.size() > MAX_PLAYERS;
+        }
+    };
+
+    /**
+     * Get the current epoch. Read this before computing a decision so that an invalidation racing the
+     * computation leaves the stored result stale.
+     *
+     * @return the current epoch
+     */
+    static long currentEpoch()
+    {
+        return EPOCH.get();
+    }
+
+    /**
+     * Discard the cached decisions of every claim.
+     */
+    static void invalidateAll()
+    {
+        EPOCH.incrementAndGet();
+    }
+
+    /**
+     * Get a cached decision.
+     *
+     * @param uuid the UUID being checked
+     * @param permission the ClaimPermission required
+     * @return whether the claim's data grants the permission, or null if unknown
+     */
+    @Nullable Boolean get(@NotNull UUID uuid, @NotNull ClaimPermission permission)
+    {
+        long epoch = EPOCH.get();
+        synchronized (this.decisions)
+        {
+            Decisions cached = this.decisions.get(uuid);
+            if (cached == null || cached.epoch != epoch) return null;
+
+            int bit = 1 << permission.ordinal();
+            if ((cached.known & bit) == 0) return null;
+            return (cached.granted & bit) != 0;
+        }
+    }
+
+    /**
+     * Store a decision.
+     *
+     * @param uuid the UUID being checked
+     * @param permission the ClaimPermission required
+     * @param granted whether the claim's data grants the permission
+     * @param epoch the epoch read before the decision was computed
+     */
+    void put(@NotNull UUID uuid, @NotNull ClaimPermission permission, boolean granted, long epoch)
+    {
+        synchronized (this.decisions)
+        {
+            Decisions cached = this.decisions.get(uuid);
+            if (cached == null)
+            {
+                cached = new Decisions();
+                this.decisions.put(uuid, cached);
+            }
+
+            if (cached.epoch != epoch)
+            {
+                // Never let a decision computed before an invalidation overwrite newer ones.
+                if (cached.epoch > epoch && cached.known != 0) return;
+                cached.epoch = epoch;
+                cached.known = 0;
+                cached.granted = 0;
+            }
+
+            int bit = 1 << permission.ordinal();
+            cached.known |= bit;
+            if (granted) cached.granted |= bit;
+            else cached.granted &= ~bit;
+        }
+    }
+
+    private static final class Decisions
+    {
+        private long epoch = -1;
+        private int known;
+        private int granted;
+    }
+
+}
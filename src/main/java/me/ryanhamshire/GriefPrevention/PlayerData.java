@@ -22,6 +22,9 @@ import com.griefprevention.visualization.BoundaryVisualization;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.net.InetAddress;
@@ -90,6 +93,9 @@ public class PlayerData
     //the last claim this player was in, that we know of
     public Claim lastClaim = null;
 
+    //the last claim lookup made for this player, reused while its chunk is unchanged
+    volatile ClaimLookup lastLookup = null;
+
     //pvp
     public long lastPvpTimestamp = 0;
     public String lastPvpPlayer = "";
@@ -125,10 +131,93 @@ public class PlayerData
     //true means invisible (admin-forced ignore), false means player-created ignore
     public ConcurrentHashMap<UUID, Boolean> ignoredPlayers = new ConcurrentHashMap<>();
     public boolean ignoreListChanged = false;
+    //whether the ignore list was already loaded from storage, i.e. while the player was logging in
+    volatile boolean ignoreListLoaded = false;
 
     //profanity warning, once per play session
     boolean profanityWarned = false;
 
+    //cached results for frequently checked permission nodes, one bit per CachedPermission
+    //the top bit marks the results as calculated
+    private static final int PERMISSIONS_CALCULATED = 1 << 31;
+    private volatile int permissions = 0;
+
+    //cached sum of the group bonus blocks granted by the player's permissions
+    //valid while the version matches the data store's group bonus version
+    private volatile int groupBonusBlocks = 0;
+    private volatile long groupBonusVersion = -1;
+
+    //running total of the area of the player's top level claims, maintained by the data store
+    //negative until first needed
+    volatile long claimedArea = -1;
+
+    /**
+     * Check whether the player has a frequently checked permission, calculating all cached permissions if needed.
+     *
+     * @param player the player this data belongs to
+     * @param permission the permission
+     * @return true if the player has the permission
+     */
+    public boolean hasPermission(@NotNull Player player, @NotNull CachedPermission permission)
+    {
+        int permissions = this.permissions;
+        if (permissions == 0)
+        {
+            permissions = this.refreshPermissions(player);
+        }
+        return (permissions & (1 << permission.ordinal())) != 0;
+    }
+
+    /**
+     * Recalculate the player's cached permissions.
+     *
+     * @param player the player this data belongs to
+     * @return the recalculated permission bits
+     */
+    public int refreshPermissions(@NotNull Player player)
+    {
+        int permissions = PERMISSIONS_CALCULATED;
+        for (CachedPermission permission : CachedPermission.values())
+        {
+            if (player.hasPermission(permission.getNode()))
+            {
+                permissions |= 1 << permission.ordinal();
+            }
+        }
+        this.permissions = permissions;
+        this.groupBonusVersion = -1;
+        return permissions;
+    }
+
+    /**
+     * Discard the player's cached permissions so they are recalculated on the next check.
+     */
+    public void invalidatePermissions()
+    {
+        this.permissions = 0;
+        this.groupBonusVersion = -1;
+    }
+
+    /**
+     * Get the group bonus blocks the player's permissions grant, recalculating them only when the group bonuses
+     * or the player's permissions may have changed.
+     *
+     * @param player the player this data belongs to
+     * @return the group bonus blocks
+     */
+    int getGroupBonusBlocks(@NotNull Player player)
+    {
+        DataStore dataStore = GriefPrevention.instance.dataStore;
+        long version = dataStore.getGroupBonusVersion();
+        if (this.groupBonusVersion != version)
+        {
+            // The sum is published before its version, so readers matching the version see the matching sum.
+            this.groupBonusBlocks = dataStore.calculateGroupBonusBlocks(player);
+            this.groupBonusVersion = version;
+        }
+        return this.groupBonusBlocks;
+    }
+
     //whether or not this player is "in" pvp combat
     public boolean inPvpCombat()
     {
@@ -150,6 +239,12 @@ public class PlayerData
     //the number of claim blocks a player has available for claiming land
     public int getRemainingClaimBlocks()
     {
+        //the first look at the player's claims also repairs negative block balances
+        if (this.claims == null) this.getClaims();
+
+        long claimedArea = this.claimedArea;
+        if (claimedArea < 0) claimedArea = GriefPrevention.instance.dataStore.initializeClaimedArea(this);
+
         int remainingBlocks;
         try
         {
@@ -162,21 +257,12 @@ public class PlayerData
             // If there is an overflow adding the player's available blocks, use max value.
             remainingBlocks = Integer.MAX_VALUE;
         }
-        try
-        {
-            for (int i = 0; i < this.getClaims().size(); i++)
-            {
-                Claim claim = this.getClaims().get(i);
-                remainingBlocks = Math.subtractExact(remainingBlocks, claim.getArea());
-            }
-        }
-        catch (ArithmeticException e)
-        {
-            // If there is an overflow subtracting the player's claims, they don't have any blocks left.
-            return 0;
-        }
 
-        return remainingBlocks;
+        long remaining = remainingBlocks - claimedArea;
+        // If there is an overflow subtracting the player's claims, they don't have any blocks left.
+        if (remaining < Integer.MIN_VALUE) return 0;
+
+        return (int) remaining;
     }
 
     //don't load data from secondary storage until it's needed
@@ -223,10 +309,19 @@ public class PlayerData
         this.bonusClaimBlocks = bonusClaimBlocks;
     }
 
+    //whether claim block counts have been loaded from secondary storage
+    boolean isStorageDataLoaded()
+    {
+        return this.accruedClaimBlocks != null && this.bonusClaimBlocks != null;
+    }
+
     private void loadDataFromSecondaryStorage()
     {
+        //nothing left to load, so don't touch storage
+        if (this.accruedClaimBlocks != null && this.bonusClaimBlocks != null) return;
+
         //reach out to secondary storage to get any data there
-        PlayerData storageData = GriefPrevention.instance.dataStore.getPlayerDataFromStorage(this.playerID);
+        PlayerData storageData = GriefPrevention.instance.dataStore.readPlayerData(this);
 
         if (this.accruedClaimBlocks == null)
         {
@@ -269,29 +364,11 @@ public class PlayerData
             //find all the claims belonging to this player and note them for future reference
             DataStore dataStore = GriefPrevention.instance.dataStore;
             int totalClaimsArea = 0;
-            for (int i = 0; i < dataStore.claims.size(); i++)
+            for (Claim claim : dataStore.getClaimsOwnedBy(playerID))
             {
-                Claim claim = dataStore.claims.get(i);
-                if (!claim.inDataStore)
-                {
-                    Claim remove = dataStore.claims.remove(i--);
-                    dataStore.claimIDMap.remove(remove.getID());
-                    for (Claim child : remove.children)
-                    {
-                        dataStore.claimIDMap.remove(child.getID());
-                    }
-                    continue;
-                }
-                if (playerID.equals(claim.ownerID))
-                {
-                    this.claims.add(claim);
-                    dataStore.claimIDMap.put(claim.getID(), claim);
-                    for (Claim child : claim.children)
-                    {
-                        dataStore.claimIDMap.put(child.getID(), child);
-                    }
-                    totalClaimsArea += claim.getArea();
-                }
+                if (!claim.inDataStore) continue;
+                this.claims.add(claim);
+                totalClaimsArea += claim.getArea();
             }
 
             //ensure player has claim blocks for his claims, and at least the minimum accrued
@@ -383,4 +460,144 @@ public class PlayerData
         this.visibleBoundaries = visibleBoundaries;
     }
 
-}
\ No newline at end of file
+
+    /**
+     * The result of a claim lookup, captured with the indexed entries it was resolved from so that later lookups
+     * anywhere in the same chunk can be answered without searching the claim index again.
+     *
+     * @param worldId the world's UUID
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @param ignoreHeight whether vertical containment was ignored
+     * @param chunkEpoch the chunk's mutation epoch when the lookup was made
+     * @param entry the entry of the claim found, or null if the block was unclaimed
+     * @param parent the entry of the claim's parent if the claim found is a subdivision
+     * @param topLevelEntries the top level entries indexed in the chunk
+     */
+    record ClaimLookup(
+            UUID worldId,
+            int chunkX,
+            int chunkZ,
+            boolean ignoreHeight,
+            long chunkEpoch,
+            @Nullable ChunkClaimIndex.Entry entry,
+            @Nullable ChunkClaimIndex.Entry parent,
+            ChunkClaimIndex.Entry[] topLevelEntries)
+    {
+
+        private static final ChunkClaimIndex.Entry[] NO_ENTRIES = new ChunkClaimIndex.Entry[0];
+
+        /**
+         * Capture the result of a lookup from the chunk bucket it was resolved against.
+         *
+         * @param world the world
+         * @param x the block X coordinate
+         * @param z the block Z coordinate
+         * @param ignoreHeight whether vertical containment was ignored
+         * @param bucket the chunk's bucket, read before the lookup was made
+         * @param claim the claim found, or null if the block was unclaimed
+         * @return the captured lookup, or null if the claim is not in the bucket, i.e. after a concurrent change
+         */
+        static @Nullable ClaimLookup capture(
+                @NotNull World world,
+                int x,
+                int z,
+                boolean ignoreHeight,
+                @Nullable ChunkClaimIndex.Bucket bucket,
+                @Nullable Claim claim)
+        {
+            ChunkClaimIndex.Entry[] topLevel = bucket == null ? NO_ENTRIES : bucket.topLevelEntries;
+            long chunkEpoch = bucket == null ? 0 : bucket.epoch;
+            if (claim == null)
+            {
+                return new ClaimLookup(world.getUID(), x >> 4, z >> 4, ignoreHeight, chunkEpoch, null, null, topLevel);
+            }
+
+            Claim topLevelClaim = claim.parent == null ? claim : claim.parent;
+            for (ChunkClaimIndex.Entry candidate : topLevel)
+            {
+                if (candidate.claim != topLevelClaim) continue;
+                if (candidate.claim == claim)
+                {
+                    return new ClaimLookup(world.getUID(), x >> 4, z >> 4, ignoreHeight, chunkEpoch, candidate, null, topLevel);
+                }
+                for (ChunkClaimIndex.Entry child : candidate.children)
+                {
+                    if (child.claim == claim)
+                    {
+                        return new ClaimLookup(world.getUID(), x >> 4, z >> 4, ignoreHeight, chunkEpoch, child, candidate, topLevel);
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Get the claim found.
+         *
+         * @return the claim, or null if the block was unclaimed
+         */
+        @Nullable Claim claim()
+        {
+            return this.entry == null ? null : this.entry.claim;
+        }
+
+        /**
+         * Check whether this lookup's result also holds for another block. It does if the block is in the same
+         * chunk, nothing overlapping the chunk has changed since, and the captured claim is still the most specific
+         * claim containing the block.
+         *
+         * @param world the world of the block
+         * @param x the block X coordinate
+         * @param y the block Y coordinate
+         * @param z the block Z coordinate
+         * @param ignoreHeight whether vertical containment is ignored
+         * @param chunkEpoch the chunk's current mutation epoch
+         * @return true if {@link #claim()} is the result of a lookup at the block
+         */
+        boolean answers(@NotNull World world, int x, int y, int z, boolean ignoreHeight, long chunkEpoch)
+        {
+            if ((x >> 4) != this.chunkX || (z >> 4) != this.chunkZ || this.ignoreHeight != ignoreHeight
+                    || this.chunkEpoch != chunkEpoch || !this.worldId.equals(world.getUID()))
+            {
+                return false;
+            }
+
+            // Unclaimed as long as no claim in the chunk contains the block.
+            if (this.entry == null)
+            {
+                for (ChunkClaimIndex.Entry candidate : this.topLevelEntries)
+                {
+                    if (candidate.contains(world, x, y, z, ignoreHeight, false)) return false;
+                }
+                return true;
+            }
+
+            // A top level claim, as long as none of its subdivisions contain the block.
+            if (this.parent == null) return this.entry.contains(world, x, y, z, ignoreHeight, true);
+
+            // A subdivision, as long as it's the only one of its siblings containing the block.
+            if (!subdivisionContains(this.entry, world, x, y, z, ignoreHeight)) return false;
+            for (ChunkClaimIndex.Entry sibling : this.parent.children)
+            {
+                if (sibling != this.entry && subdivisionContains(sibling, world, x, y, z, ignoreHeight)) return false;
+            }
+            return true;
+        }
+
+        //3D subdivisions are always checked vertically, like the claim lookup does
+        private static boolean subdivisionContains(
+                ChunkClaimIndex.Entry subdivision,
+                World world,
+                int x,
+                int y,
+                int z,
+                boolean ignoreHeight)
+        {
+            if (subdivision.is3D) return subdivision.containsColumn(x, z) && subdivision.containsY(y);
+            return subdivision.contains(world, x, y, z, ignoreHeight, false);
+        }
+
+    }
+
+}
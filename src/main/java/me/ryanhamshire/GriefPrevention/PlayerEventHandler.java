@@ -60,8 +60,10 @@ import org.bukkit.Tag;
  import org.bukkit.event.block.Action;
  import org.bukkit.event.entity.PlayerDeathEvent;
  import org.bukkit.event.player.AsyncPlayerChatEvent;
+ import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
  import org.bukkit.event.player.PlayerBucketEmptyEvent;
  import org.bukkit.event.player.PlayerBucketFillEvent;
+ import org.bukkit.event.player.PlayerChangedWorldEvent;
  import org.bukkit.event.player.PlayerCommandPreprocessEvent;
  import org.bukkit.event.player.PlayerDropItemEvent;
  import org.bukkit.event.player.PlayerEggThrowEvent;
@@ -218,7 +220,7 @@ import org.bukkit.Tag;
                  {
                      recipientsToKeep.add(recipient);
                  }
-                 else if (recipient.hasPermission("griefprevention.eavesdrop.softmute"))
+                 else if (CachedPermission.EavesdropSoftMute.isGrantedTo(recipient))
                  {
                      recipient.sendMessage(ChatColor.GRAY + notificationMessage);
                  }
@@ -230,13 +232,13 @@ import org.bukkit.Tag;
          }
  
          //troll and excessive profanity filter
-         else if (!player.hasPermission("griefprevention.spam") && this.bannedWordFinder.hasMatch(message))
+         else if (!CachedPermission.Spam.isGrantedTo(player) && this.bannedWordFinder.hasMatch(message))
          {
              //allow admins to see the soft-muted text
              String notificationMessage = "(Muted " + player.getName() + "): " + message;
              for (Player recipient : recipients)
              {
-                 if (recipient.hasPermission("griefprevention.eavesdrop.softmute"))
+                 if (CachedPermission.EavesdropSoftMute.isGrantedTo(recipient))
                  {
                      recipient.sendMessage(ChatColor.GRAY + notificationMessage);
                  }
@@ -275,13 +277,13 @@ import org.bukkit.Tag;
              makeSocialLogEntry(player.getName(), message);
  
              //based on ignore lists, remove some of the audience
-             if (!player.hasPermission("griefprevention.notignorable"))
+             if (!CachedPermission.NotIgnorable.isGrantedTo(player))
              {
                  Set<Player> recipientsToRemove = new HashSet<>();
                  PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
                  for (Player recipient : recipients)
                  {
-                     if (!recipient.hasPermission("griefprevention.notignorable"))
+                     if (!CachedPermission.NotIgnorable.isGrantedTo(recipient))
                      {
                          if (playerData.ignoredPlayers.containsKey(recipient.getUniqueId()))
                          {
@@ -355,7 +357,7 @@ import org.bukkit.Tag;
          if (!instance.config_spam_enabled) return false;
  
          //if the player has permission to spam, don't bother even examining the message
-         if (player.hasPermission("griefprevention.spam")) return false;
+         if (CachedPermission.Spam.isGrantedTo(player)) return false;
  
          //examine recent messages to detect spam
          SpamAnalysisResult result = this.spamDetector.AnalyzeMessage(player.getUniqueId(), message, System.currentTimeMillis());
@@ -460,10 +462,10 @@ import org.bukkit.Tag;
              }
  
              //if eavesdrop enabled and sender doesn't have the eavesdrop immunity permission, eavesdrop
-             if (instance.config_whisperNotifications && !player.hasPermission("griefprevention.eavesdropimmune"))
+             if (instance.config_whisperNotifications && !CachedPermission.EavesdropImmune.isGrantedTo(player))
              {
                  //except for when the recipient has eavesdrop immunity
-                 if (targetPlayer == null || !targetPlayer.hasPermission("griefprevention.eavesdropimmune"))
+                 if (targetPlayer == null || !CachedPermission.EavesdropImmune.isGrantedTo(targetPlayer))
                  {
  
                      String logMessage = "[[" + event.getPlayer().getName() + "]] " +
@@ -473,7 +475,7 @@ import org.bukkit.Tag;
                      Collection<Player> players = (Collection<Player>) instance.getServer().getOnlinePlayers();
                      for (Player onlinePlayer : players)
                      {
-                         if (onlinePlayer.hasPermission("griefprevention.eavesdrop.pm") && !onlinePlayer.equals(targetPlayer) && !onlinePlayer.equals(player))
+                         if (CachedPermission.EavesdropPrivateMessages.isGrantedTo(onlinePlayer) && !onlinePlayer.equals(targetPlayer) && !onlinePlayer.equals(player))
                          {
                              onlinePlayer.sendMessage(ChatColor.GRAY + logMessage);
                          }
@@ -486,7 +488,7 @@ import org.bukkit.Tag;
              {
                  //if either is ignoring the other, cancel this command
                  playerData = this.dataStore.getPlayerData(player.getUniqueId());
-                 if (playerData.ignoredPlayers.containsKey(targetPlayer.getUniqueId()) && !targetPlayer.hasPermission("griefprevention.notignorable"))
+                 if (playerData.ignoredPlayers.containsKey(targetPlayer.getUniqueId()) && !CachedPermission.NotIgnorable.isGrantedTo(targetPlayer))
                  {
                      event.setCancelled(true);
                      GriefPrevention.sendMessage(player, TextMode.Err, Messages.IsIgnoringYou);
@@ -494,7 +496,7 @@ import org.bukkit.Tag;
                  }
  
                  PlayerData targetPlayerData = this.dataStore.getPlayerData(targetPlayer.getUniqueId());
-                 if (targetPlayerData.ignoredPlayers.containsKey(player.getUniqueId()) && !player.hasPermission("griefprevention.notignorable"))
+                 if (targetPlayerData.ignoredPlayers.containsKey(player.getUniqueId()) && !CachedPermission.NotIgnorable.isGrantedTo(player))
                  {
                      event.setCancelled(true);
                      GriefPrevention.sendMessage(player, TextMode.Err, Messages.IsIgnoringYou);
@@ -530,7 +532,7 @@ import org.bukkit.Tag;
                  event.setCancelled(this.handlePlayerChat(event.getPlayer(), event.getMessage(), event));
              }
  
-             if (!player.hasPermission("griefprevention.spam") && this.bannedWordFinder.hasMatch(event.getMessage()))
+             if (!CachedPermission.Spam.isGrantedTo(player) && this.bannedWordFinder.hasMatch(event.getMessage()))
              {
                  event.setCancelled(true);
              }
@@ -545,7 +547,7 @@ import org.bukkit.Tag;
          //if requires access trust, check for permission
          if (accessTrustCommands.isMonitoredCommand(command))
          {
-             Claim claim = this.dataStore.getClaimAt(player.getLocation(), false, playerData.lastClaim);
+             Claim claim = this.dataStore.getClaimAtFor(player.getLocation(), false, playerData);
              if (claim != null)
              {
                  playerData.lastClaim = claim;
@@ -584,6 +586,15 @@ import org.bukkit.Tag;
  
      private final ConcurrentHashMap<UUID, Date> lastLoginThisServerSessionMap = new ConcurrentHashMap<>();
  
+     //before a player logs in, load their data off the main thread so logging in and joining only read memory
+     @EventHandler(priority = EventPriority.MONITOR)
+     void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event)
+     {
+         if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+
+         this.dataStore.prefetchPlayerData(event.getUniqueId());
+     }
+
      //when a player attempts to join the server...
      @EventHandler(priority = EventPriority.HIGHEST)
      void onPlayerLogin(PlayerLoginEvent event)
@@ -644,10 +655,11 @@ import org.bukkit.Tag;
          long now = nowDate.getTime();
          PlayerData playerData = this.dataStore.getPlayerData(playerID);
          playerData.lastSpawn = now;
+         playerData.refreshPermissions(player);
          this.lastLoginThisServerSessionMap.put(playerID, nowDate);
  
          //if newish, prevent chat until he's moved a bit to prove he's not a bot
-         if (GriefPrevention.isNewToServer(player) && !player.hasPermission("griefprevention.premovementchat"))
+         if (GriefPrevention.isNewToServer(player) && !CachedPermission.PreMovementChat.isGrantedTo(player))
          {
              playerData.noChatLocation = player.getLocation();
          }
@@ -659,7 +671,7 @@ import org.bukkit.Tag;
              instance.checkPvpProtectionNeeded(player);
  
              //if in survival claims mode, send a message about the claim basics video (except for admins - assumed experts)
-             if (instance.config_claims_worldModes.get(player.getWorld()) == ClaimsMode.Survival && !player.hasPermission("griefprevention.adminclaims") && this.dataStore.claims.size() > 10)
+             if (instance.config_claims_worldModes.get(player.getWorld()) == ClaimsMode.Survival && !CachedPermission.AdminClaims.isGrantedTo(player) && this.dataStore.claims.size() > 10)
              {
                  WelcomeTask task = new WelcomeTask(player);
                  SchedulerUtil.runLaterEntity(instance, player, task::run, instance.config_claims_manualDeliveryDelaySeconds * 20L);
@@ -776,8 +788,12 @@ import org.bukkit.Tag;
              }
          }
  
-         //create a thread to load ignore information
-         new IgnoreLoaderThread(playerID, playerData.ignoredPlayers).start();
+         //create a thread to load ignore information, unless it was loaded while logging in
+         if (!playerData.ignoreListLoaded)
+         {
+             playerData.ignoreListLoaded = true;
+             new IgnoreLoaderThread(playerID, playerData.ignoredPlayers).start();
+         }
  
          //is he stuck in a portal frame?
          if (player.hasMetadata("GP_PORTALRESCUE"))
@@ -1030,7 +1046,7 @@ import org.bukkit.Tag;
          Player player = event.getPlayer();
          PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
  
-         Claim toClaim = this.dataStore.getClaimAt(event.getTo(), false, playerData.lastClaim);
+         Claim toClaim = this.dataStore.getClaimAtFor(event.getTo(), false, playerData);
          if(toClaim == null) return;
  
          playerData.lastClaim = toClaim;
@@ -1043,6 +1059,13 @@ import org.bukkit.Tag;
              player.getInventory().addItem(new ItemStack(Material.ENDER_PEARL));
      }
  
+     //when a player changes worlds, recalculate permissions that may be granted per world
+     @EventHandler(priority = EventPriority.MONITOR)
+     public void onPlayerChangedWorld(PlayerChangedWorldEvent event)
+     {
+         this.dataStore.getPlayerData(event.getPlayer().getUniqueId()).invalidatePermissions();
+     }
+ 
      //when a player triggers a raid (in a claim)
      @EventHandler(priority = EventPriority.LOWEST)
      public void onPlayerTriggerRaid(RaidTriggerEvent event)
@@ -1053,7 +1076,7 @@ import org.bukkit.Tag;
          Player player = event.getPlayer();
          PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
  
-         Claim claim = this.dataStore.getClaimAt(player.getLocation(), false, playerData.lastClaim);
+         Claim claim = this.dataStore.getClaimAtFor(player.getLocation(), false, playerData);
          if (claim == null)
              return;
  
@@ -1141,7 +1164,7 @@ import org.bukkit.Tag;
                          String ownerName = owner.getName();
                          if (ownerName == null) ownerName = "someone";
                          String message = instance.dataStore.getMessage(Messages.NotYourPet, ownerName);
-                         if (player.hasPermission("griefprevention.ignoreclaims"))
+                         if (CachedPermission.IgnoreClaims.isGrantedTo(player))
                              message += "  " + instance.dataStore.getMessage(Messages.IgnoreClaimsAdvertisement);
                          GriefPrevention.sendMessage(player, TextMode.Err, message);
                          event.setCancelled(true);
@@ -1218,7 +1241,7 @@ import org.bukkit.Tag;
                  Supplier<String> override = () ->
                  {
                      String message = instance.dataStore.getMessage(Messages.NoDamageClaimedEntity, claim.getOwnerName());
-                     if (player.hasPermission("griefprevention.ignoreclaims"))
+                     if (CachedPermission.IgnoreClaims.isGrantedTo(player))
                          message += "  " + instance.dataStore.getMessage(Messages.IgnoreClaimsAdvertisement);
  
                      return message;
@@ -1241,7 +1264,7 @@ import org.bukkit.Tag;
             // Handle creatures (original logic)
             if (entity instanceof Creature || entity.getType() == EntityType.BOAT || entity.getType() == EntityType.CHEST_BOAT)
             {
-                Claim claim = this.dataStore.getClaimAt(entity.getLocation(), false, playerData.lastClaim);
+                Claim claim = this.dataStore.getClaimAtFor(entity.getLocation(), false, playerData);
                 if (claim != null)
                 {
                     Supplier<String> failureReason = claim.checkPermission(player, ClaimPermission.Inventory, event);
@@ -1270,7 +1293,7 @@ import org.bukkit.Tag;
              Supplier<String> override = () ->
              {
                  String message = dataStore.getMessage(Messages.NoDamageClaimedEntity, claim.getOwnerName());
-                 if (player.hasPermission("griefprevention.ignoreclaims"))
+                 if (CachedPermission.IgnoreClaims.isGrantedTo(player))
                      message += "  " + dataStore.getMessage(Messages.IgnoreClaimsAdvertisement);
                  return message;
              };
@@ -1293,7 +1316,7 @@ import org.bukkit.Tag;
      {
          Player player = event.getPlayer();
          PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
-         Claim claim = this.dataStore.getClaimAt(event.getEgg().getLocation(), false, playerData.lastClaim);
+         Claim claim = this.dataStore.getClaimAtFor(event.getEgg().getLocation(), false, playerData);
  
          //allow throw egg if player is in ignore claims mode
          if (playerData.ignoreClaims || claim == null) return;
@@ -1302,7 +1325,7 @@ import org.bukkit.Tag;
          if (failureReason != null)
          {
              String reason = failureReason.get();
-             if (player.hasPermission("griefprevention.ignoreclaims"))
+             if (CachedPermission.IgnoreClaims.isGrantedTo(player))
              {
                  reason += "  " + instance.dataStore.getMessage(Messages.IgnoreClaimsAdvertisement);
              }
@@ -1332,7 +1355,7 @@ import org.bukkit.Tag;
          {
              Player player = event.getPlayer();
              PlayerData playerData = instance.dataStore.getPlayerData(player.getUniqueId());
-             Claim claim = instance.dataStore.getClaimAt(entity.getLocation(), false, playerData.lastClaim);
+             Claim claim = instance.dataStore.getClaimAtFor(entity.getLocation(), false, playerData);
              if (claim != null)
              {
                  //if no permission, cancel
@@ -1400,7 +1423,7 @@ import org.bukkit.Tag;
  
          //if the bucket is being used in a claim, allow for dumping lava closer to other players
          PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
-         Claim claim = this.dataStore.getClaimAt(block.getLocation(), false, playerData.lastClaim);
+         Claim claim = this.dataStore.getClaimAtFor(block.getLocation(), false, playerData);
          if (claim != null)
          {
              minLavaDistance = 3;
@@ -1560,7 +1583,7 @@ import org.bukkit.Tag;
              if (clickedBlockType != Material.TURTLE_EGG)
                  return;
              playerData = this.dataStore.getPlayerData(player.getUniqueId());
-             Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+             Claim claim = this.dataStore.getClaimAtFor(clickedBlock.getLocation(), false, playerData);
              if (claim != null)
              {
                  playerData.lastClaim = claim;
@@ -1591,7 +1614,7 @@ import org.bukkit.Tag;
                  if (playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
                  
                  // Check claim permissions
-                 Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+                 Claim claim = this.dataStore.getClaimAtFor(clickedBlock.getLocation(), false, playerData);
                  if (claim != null)
                  {
                      playerData.lastClaim = claim;
@@ -1647,7 +1670,7 @@ import org.bukkit.Tag;
              }
  
              //otherwise check permissions for the claim the player is in
-             Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+             Claim claim = this.dataStore.getClaimAtFor(clickedBlock.getLocation(), false, playerData);
              if (claim != null)
              {
                  playerData.lastClaim = claim;
@@ -1684,7 +1707,7 @@ import org.bukkit.Tag;
                  instance.config_claims_lockFenceGates && Tag.FENCE_GATES.isTagged(clickedBlockType)))
          {
              if (playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
-             Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+             Claim claim = this.dataStore.getClaimAtFor(clickedBlock.getLocation(), false, playerData);
              if (claim != null)
              {
                  playerData.lastClaim = claim;
@@ -1703,7 +1726,7 @@ import org.bukkit.Tag;
          else if (clickedBlock != null && instance.config_claims_preventButtonsSwitches && (Tag.BUTTONS.isTagged(clickedBlockType) || clickedBlockType == Material.LEVER))
          {
              if (playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
-             Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+             Claim claim = this.dataStore.getClaimAtFor(clickedBlock.getLocation(), false, playerData);
              if (claim != null)
              {
                  playerData.lastClaim = claim;
@@ -1722,7 +1745,7 @@ import org.bukkit.Tag;
          else if (clickedBlock != null && instance.config_claims_preventTheft && (clickedBlockType == Material.CAKE || Tag.CANDLE_CAKES.isTagged(clickedBlockType)))
          {
              if (playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
-             Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+             Claim claim = this.dataStore.getClaimAtFor(clickedBlock.getLocation(), false, playerData);
              if (claim != null)
              {
                  playerData.lastClaim = claim;
@@ -1751,7 +1774,7 @@ import org.bukkit.Tag;
                  ))
          {
              if (playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
-             Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+             Claim claim = this.dataStore.getClaimAtFor(clickedBlock.getLocation(), false, playerData);
              if (claim != null)
              {
                  Supplier<String> noBuildReason = claim.checkPermission(player, ClaimPermission.Build, event);
@@ -1798,7 +1821,7 @@ import org.bukkit.Tag;
              else if (clickedBlock != null && Tag.ITEMS_BOATS.isTagged(materialInHand))
              {
                  if (playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
-                 Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+                 Claim claim = this.dataStore.getClaimAtFor(clickedBlock.getLocation(), false, playerData);
                  if (claim != null)
                  {
                      Supplier<String> reason = claim.checkPermission(player, ClaimPermission.Inventory, event);
@@ -1822,7 +1845,7 @@ import org.bukkit.Tag;
                      !instance.creativeRulesApply(clickedBlock.getLocation()))
              {
                  if (playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
-                 Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+                 Claim claim = this.dataStore.getClaimAtFor(clickedBlock.getLocation(), false, playerData);
                  if (claim != null)
                  {
                      Supplier<String> reason = claim.checkPermission(player, ClaimPermission.Inventory, event);
@@ -1895,7 +1918,7 @@ import org.bukkit.Tag;
                      // else: do not message/return here; shovel path below will handle it
                  }
  
-                 Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false /*ignore height*/, playerData.lastClaim);
+                 Claim claim = this.dataStore.getClaimAtFor(clickedBlock.getLocation(), false /*ignore height*/, playerData);
  
                  //no claim case
                  if (claim == null)
@@ -1930,7 +1953,7 @@ import org.bukkit.Tag;
                      }
  
                      //if permission, tell about the player's offline time
-                     if (!claim.isAdminClaim() && (player.hasPermission("griefprevention.deleteclaims") || player.hasPermission("griefprevention.seeinactivity")))
+                     if (!claim.isAdminClaim() && (CachedPermission.DeleteClaims.isGrantedTo(player) || player.hasPermission("griefprevention.seeinactivity")))
                      {
                          if (claim.parent != null)
                          {
@@ -1961,10 +1984,10 @@ import org.bukkit.Tag;
              if (action == Action.RIGHT_CLICK_AIR)
              {
                  // Try to snap to a nearby 3D subclaim corner along the player's view ray
-                 CornerHit cornerHit = raycast3DSubclaimCorner(player, 100);
-                 if (cornerHit != null)
+                 Location corner = raycast3DSubclaimCorner(player, 100);
+                 if (corner != null)
                  {
-                     clickedBlock = player.getWorld().getBlockAt(cornerHit.x, cornerHit.y, cornerHit.z);
+                     clickedBlock = corner.getBlock();
                      clickedBlockType = clickedBlock.getType();
                      cornerSelected = true;
                  }
@@ -2082,11 +2105,11 @@ import org.bukkit.Tag;
  
              //otherwise, since not currently resizing a claim, must be starting a resize, creating a new claim, or creating a subdivision
             // Prefer a Y-aware lookup first so we correctly target stacked 3D subclaims at this Y level.
-            Claim resolvedClaim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false /* respect height */, playerData.lastClaim);
+            Claim resolvedClaim = this.dataStore.getClaimAtFor(clickedBlock.getLocation(), false /* respect height */, playerData);
             if (resolvedClaim == null)
             {
                 // Fallback to ignore-height search to preserve legacy behavior when no 3D subclaim matches Y
-                resolvedClaim = this.dataStore.getClaimAt(clickedBlock.getLocation(), true /* ignore height */, playerData.lastClaim);
+                resolvedClaim = this.dataStore.getClaimAtFor(clickedBlock.getLocation(), true /* ignore height */, playerData);
             }
             Claim claim = resolvedClaim;
 
@@ -2379,7 +2402,7 @@ import org.bukkit.Tag;
                      playerData.lastShovelLocation = null;
  
                      //if it's a big claim, tell the player about subdivisions
-                     if (!player.hasPermission("griefprevention.adminclaims") && result.claim.getArea() >= 1000)
+                     if (!CachedPermission.AdminClaims.isGrantedTo(player) && result.claim.getArea() >= 1000)
                      {
                          GriefPrevention.sendMessage(player, TextMode.Info, Messages.BecomeMayor, 200L);
                          GriefPrevention.sendMessage(player, TextMode.Instr, Messages.SubdivisionVideo2, 201L, DataStore.SUBDIVISION_VIDEO_URL);
@@ -2391,69 +2414,18 @@ import org.bukkit.Tag;
          }
      }
  
-     // Helper container for a corner raycast hit
-     private static class CornerHit {
-         final Claim claim;
-         final int x, y, z;
-         final double t;
-         CornerHit(Claim claim, int x, int y, int z, double t) {
-             this.claim = claim; this.x = x; this.y = y; this.z = z; this.t = t;
-         }
-     }
- 
      // Raycast from player's eye to detect intersection near any 3D subclaim corner within maxDistance.
      // Returns the closest corner hit along the ray, or null if none.
-     private CornerHit raycast3DSubclaimCorner(Player player, int maxDistance)
+     private Location raycast3DSubclaimCorner(Player player, int maxDistance)
      {
-         Vector eyePos = player.getEyeLocation().toVector();
-         Vector dir = player.getEyeLocation().getDirection().normalize();
-         World world = player.getWorld();
- 
-         CornerHit best = null;
-         double bestT = Double.POSITIVE_INFINITY;
+         Location eye = player.getEyeLocation();
+         Vector dir = eye.getDirection().normalize();
          double threshold = 1.2; // be more forgiving when aiming at corners
- 
-         for (Claim parent : this.dataStore.getClaims())
-         {
-             if (parent == null || parent.children.isEmpty()) continue;
-             if (parent.getLesserBoundaryCorner().getWorld() != world) continue;
- 
-             for (Claim child : parent.children)
-             {
-                 if (!child.is3D() || !child.inDataStore) continue;
- 
-                 int x1 = child.getLesserBoundaryCorner().getBlockX();
-                 int x2 = child.getGreaterBoundaryCorner().getBlockX();
-                 int y1 = child.getLesserBoundaryCorner().getBlockY();
-                 int y2 = child.getGreaterBoundaryCorner().getBlockY();
-                 int z1 = child.getLesserBoundaryCorner().getBlockZ();
-                 int z2 = child.getGreaterBoundaryCorner().getBlockZ();
- 
-                 int[] xs = new int[] { x1, x2 };
-                 int[] ys = new int[] { y1, y2 };
-                 int[] zs = new int[] { z1, z2 };
- 
-                 for (int xi : xs)
-                     for (int yi : ys)
-                         for (int zi : zs)
-                         {
-                             // Use the true corner vertex instead of block center
-                             Vector p = new Vector(xi, yi, zi);
-                             Vector v = p.clone().subtract(eyePos);
-                             double t = v.dot(dir);
-                             if (t < 0 || t > maxDistance) continue; // behind or too far
-                             Vector closest = eyePos.clone().add(dir.clone().multiply(t));
-                             double dist = closest.distance(p);
-                             if (dist <= threshold && t < bestT)
-                             {
-                                 bestT = t;
-                                 best = new CornerHit(child, xi, yi, zi, t);
-                             }
-                         }
-             }
-         }
- 
-         return best;
+
+         return this.dataStore.find3DSubdivisionCorner(player.getWorld(),
+                 eye.getX(), eye.getY(), eye.getZ(),
+                 dir.getX(), dir.getY(), dir.getZ(),
+                 maxDistance, threshold);
      }
  
      //determines whether a block type is an inventory holder.  uses a caching strategy to save cpu time
@@ -2516,7 +2488,7 @@ import org.bukkit.Tag;
          Player player = event.getPlayer();
          PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
 
-         Claim claim = this.dataStore.getClaimAt(event.getLectern().getLocation(), false, playerData.lastClaim);
+         Claim claim = this.dataStore.getClaimAtFor(event.getLectern().getLocation(), false, playerData);
          if (claim != null)
          {
              playerData.lastClaim = claim;
@@ -2552,7 +2524,7 @@ import org.bukkit.Tag;
 
          // Check if the location is in a claim
          PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
-         Claim claim = this.dataStore.getClaimAt(vehicle.getLocation(), false, playerData.lastClaim);
+         Claim claim = this.dataStore.getClaimAtFor(vehicle.getLocation(), false, playerData);
         
          if (claim != null) {
              playerData.lastClaim = claim;
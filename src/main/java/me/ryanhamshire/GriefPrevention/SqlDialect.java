@@ -0,0 +1,63 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+/**
+ * The SQL flavours {@link DatabaseDataStore} knows how to write efficiently, determined from the JDBC URL.
+ */
+enum SqlDialect
+{
+
+    MYSQL,
+    POSTGRESQL,
+    SQLITE,
+    OTHER;
+
+    /**
+     * Determine the dialect of a JDBC URL.
+     *
+     * @param url the JDBC URL
+     * @return the dialect, {@link #OTHER} if unknown
+     */
+    static @NotNull SqlDialect of(@NotNull String url)
+    {
+        if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) return MYSQL;
+        if (url.startsWith("jdbc:postgresql:")) return POSTGRESQL;
+        if (url.startsWith("jdbc:sqlite:")) return SQLITE;
+        return OTHER;
+    }
+
+    /**
+     * Build a statement that inserts a row, or updates it in place if a row with the same key exists.
+     * Parameters are the columns in order.
+     *
+     * @param table the table
+     * @param key the table's primary key column
+     * @param columns all columns, including the key
+     * @return the statement, or null if this dialect has no such statement
+     */
+    @Nullable String upsert(@NotNull String table, @NotNull String key, @NotNull String... columns)
+    {
+        String insert = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+
+        return switch (this)
+        {
+            case MYSQL -> insert + " ON DUPLICATE KEY UPDATE " + Arrays.stream(columns)
+                    .filter(column -> !column.equals(key))
+                    .map(column -> column + " = VALUES(" + column + ")")
+                    .collect(Collectors.joining(", "));
+            case POSTGRESQL, SQLITE -> insert + " ON CONFLICT (" + key + ") DO UPDATE SET " + Arrays.stream(columns)
+                    .filter(column -> !column.equals(key))
+                    .map(column -> column + " = excluded." + column)
+                    .collect(Collectors.joining(", "));
+            case OTHER -> null;
+        };
+    }
+
+}
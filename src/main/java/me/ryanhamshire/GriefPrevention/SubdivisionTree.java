@@ -0,0 +1,261 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.Consumer;
+
+/**
+ * A static bounding volume hierarchy over the 3D subdivisions of a single parent claim.
+ *
+ * <p>Stacked 3D subdivisions (i.e. rooms in an apartment tower) all share the same columns, so a linear scan
+ * touches every one of them for each lookup. The hierarchy groups subdivisions into nested boxes split along
+ * their longest axis, so point and box queries only visit the branches that can match.
+ *
+ * <p>Instances are immutable and rebuilt whenever the parent's {@link ChunkClaimIndex.Entry} is recaptured.
+ */
+final class SubdivisionTree
+{
+
+    private static final int LEAF_SIZE = 4;
+
+    // Subdivisions, reordered so every node covers a contiguous range.
+    private final ChunkClaimIndex.Entry[] entries;
+    // Position of each subdivision in the parent's child list, used to break ties the way a linear scan would.
+    private final int[] childIndices;
+    // Per node: min X, Y, Z and max X, Y, Z.
+    private final int[] bounds;
+    // Per node: start of the covered range and its length for leaves, or the index of the right child
+    // (the left child always directly follows its parent) and -1 for branches.
+    private final int[] start;
+    private final int[] count;
+    private int nodes;
+
+    /**
+     * Build a tree over 3D subdivisions.
+     *
+     * @param subdivisions the 3D subdivisions
+     * @param childIndices the position of each subdivision in its parent's child list
+     */
+    SubdivisionTree(ChunkClaimIndex.Entry[] subdivisions, int[] childIndices)
+    {
+        int size = subdivisions.length;
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++)
+        {
+            order[i] = i;
+        }
+
+        int maxNodes = Math.max(1, 2 * size);
+        this.bounds = new int[maxNodes * 6];
+        this.start = new int[maxNodes];
+        this.count = new int[maxNodes];
+        build(subdivisions, order, 0, size);
+
+        this.entries = new ChunkClaimIndex.Entry[size];
+        this.childIndices = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            this.entries[i] = subdivisions[order[i]];
+            this.childIndices[i] = childIndices[order[i]];
+        }
+    }
+
+    private int build(ChunkClaimIndex.Entry[] subdivisions, Integer[] order, int from, int to)
+    {
+        int node = this.nodes++;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (int i = from; i < to; i++)
+        {
+            ChunkClaimIndex.Entry entry = subdivisions[order[i]];
+            minX = Math.min(minX, entry.minX);
+            minY = Math.min(minY, entry.minY);
+            minZ = Math.min(minZ, entry.minZ);
+            maxX = Math.max(maxX, entry.maxX);
+            maxY = Math.max(maxY, entry.maxY);
+            maxZ = Math.max(maxZ, entry.maxZ);
+        }
+        int offset = node * 6;
+        this.bounds[offset] = minX;
+        this.bounds[offset + 1] = minY;
+        this.bounds[offset + 2] = minZ;
+        this.bounds[offset + 3] = maxX;
+        this.bounds[offset + 4] = maxY;
+        this.bounds[offset + 5] = maxZ;
+
+        if (to - from <= LEAF_SIZE)
+        {
+            this.start[node] = from;
+            this.count[node] = to - from;
+            return node;
+        }
+
+        // Split at the median along the longest axis.
+        long spanX = (long) maxX - minX, spanY = (long) maxY - minY, spanZ = (long) maxZ - minZ;
+        Comparator<Integer> byCenter;
+        if (spanX >= spanY && spanX >= spanZ)
+        {
+            byCenter = Comparator.comparingLong(i -> (long) subdivisions[i].minX + subdivisions[i].maxX);
+        }
+        else if (spanY >= spanZ)
+        {
+            byCenter = Comparator.comparingLong(i -> (long) subdivisions[i].minY + subdivisions[i].maxY);
+        }
+        else
+        {
+            byCenter = Comparator.comparingLong(i -> (long) subdivisions[i].minZ + subdivisions[i].maxZ);
+        }
+        Arrays.sort(order, from, to, byCenter);
+
+        int middle = (from + to) >>> 1;
+        build(subdivisions, order, from, middle);
+        this.start[node] = build(subdivisions, order, middle, to);
+        this.count[node] = -1;
+        return node;
+    }
+
+    /**
+     * Find the most specific active subdivision containing a block. Subdivisions with a smaller Y range are
+     * more specific; ties are broken by smaller area, then by position in the parent's child list.
+     *
+     * @param x the block X coordinate
+     * @param y the block Y coordinate
+     * @param z the block Z coordinate
+     * @return the most specific subdivision or {@code null} if none contains the block
+     */
+    @Nullable ChunkClaimIndex.Entry findMostSpecific(int x, int y, int z)
+    {
+        int best = -1;
+        int[] stack = new int[64];
+        int depth = 0;
+        stack[depth++] = 0;
+        while (depth > 0)
+        {
+            int node = stack[--depth];
+            if (!nodeContains(node, x, y, z)) continue;
+
+            if (this.count[node] < 0)
+            {
+                stack[depth++] = this.start[node];
+                stack[depth++] = node + 1;
+                continue;
+            }
+
+            for (int i = this.start[node], end = i + this.count[node]; i < end; i++)
+            {
+                ChunkClaimIndex.Entry entry = this.entries[i];
+                if (!entry.claim.inDataStore || !entry.containsColumn(x, z) || !entry.containsY(y)) continue;
+                if (best < 0 || isMoreSpecific(i, best))
+                {
+                    best = i;
+                }
+            }
+        }
+        return best < 0 ? null : this.entries[best];
+    }
+
+    /**
+     * Check whether any subdivision, active or not, contains a block.
+     *
+     * @param x the block X coordinate
+     * @param y the block Y coordinate
+     * @param z the block Z coordinate
+     * @return true if a subdivision contains the block
+     */
+    boolean anyContains(int x, int y, int z)
+    {
+        int[] stack = new int[64];
+        int depth = 0;
+        stack[depth++] = 0;
+        while (depth > 0)
+        {
+            int node = stack[--depth];
+            if (!nodeContains(node, x, y, z)) continue;
+
+            if (this.count[node] < 0)
+            {
+                stack[depth++] = this.start[node];
+                stack[depth++] = node + 1;
+                continue;
+            }
+
+            for (int i = this.start[node], end = i + this.count[node]; i < end; i++)
+            {
+                ChunkClaimIndex.Entry entry = this.entries[i];
+                if (entry.containsColumn(x, z) && entry.containsY(y)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Visit every subdivision, active or not, whose bounds intersect a box. Bounds are inclusive.
+     *
+     * @param minX the minimum X coordinate
+     * @param minY the minimum Y coordinate
+     * @param minZ the minimum Z coordinate
+     * @param maxX the maximum X coordinate
+     * @param maxY the maximum Y coordinate
+     * @param maxZ the maximum Z coordinate
+     * @param action the action to perform for each intersecting subdivision
+     */
+    void forEachIntersecting(int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+            @NotNull Consumer<ChunkClaimIndex.Entry> action)
+    {
+        int[] stack = new int[64];
+        int depth = 0;
+        stack[depth++] = 0;
+        while (depth > 0)
+        {
+            int node = stack[--depth];
+            int offset = node * 6;
+            if (this.bounds[offset] > maxX || this.bounds[offset + 3] < minX
+                    || this.bounds[offset + 1] > maxY || this.bounds[offset + 4] < minY
+                    || this.bounds[offset + 2] > maxZ || this.bounds[offset + 5] < minZ)
+            {
+                continue;
+            }
+
+            if (this.count[node] < 0)
+            {
+                stack[depth++] = this.start[node];
+                stack[depth++] = node + 1;
+                continue;
+            }
+
+            for (int i = this.start[node], end = i + this.count[node]; i < end; i++)
+            {
+                ChunkClaimIndex.Entry entry = this.entries[i];
+                if (entry.minX <= maxX && entry.maxX >= minX
+                        && entry.minY <= maxY && entry.maxY >= minY
+                        && entry.minZ <= maxZ && entry.maxZ >= minZ)
+                {
+                    action.accept(entry);
+                }
+            }
+        }
+    }
+
+    private boolean nodeContains(int node, int x, int y, int z)
+    {
+        int offset = node * 6;
+        return x >= this.bounds[offset] && x <= this.bounds[offset + 3]
+                && y >= this.bounds[offset + 1] && y <= this.bounds[offset + 4]
+                && z >= this.bounds[offset + 2] && z <= this.bounds[offset + 5];
+    }
+
+    private boolean isMoreSpecific(int candidate, int best)
+    {
+        ChunkClaimIndex.Entry candidateEntry = this.entries[candidate];
+        ChunkClaimIndex.Entry bestEntry = this.entries[best];
+        int candidateYRange = candidateEntry.getYRange();
+        int bestYRange = bestEntry.getYRange();
+        if (candidateYRange != bestYRange) return candidateYRange < bestYRange;
+        if (candidateEntry.area != bestEntry.area) return candidateEntry.area < bestEntry.area;
+        return this.childIndices[candidate] < this.childIndices[best];
+    }
+
+}
@@ -181,11 +181,11 @@ public class BoundingBox implements Cloneable
      */
     public BoundingBox(@NotNull Claim claim)
     {
-        this(claim.getLesserBoundaryCorner(), claim.getGreaterBoundaryCorner(), false);
+        this(claim.getMinX(), claim.getMinY(), claim.getMinZ(), claim.getMaxX(), claim.getMaxY(), claim.getMaxZ(), false);
         // For 3D claims, preserve their exact Y boundaries
         // For 2D claims, extend to world max height
         if (!claim.is3D()) {
-            this.maxY = Objects.requireNonNull(claim.getLesserBoundaryCorner().getWorld()).getMaxHeight();
+            this.maxY = Objects.requireNonNull(claim.getWorld()).getMaxHeight();
         }
     }
 
@@ -0,0 +1,147 @@
+package com.griefprevention.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CoalescingWriteQueueTest
+{
+    @Test
+    public void testRepeatedSubmissionsAreCoalesced()
+    {
+        List<String> writes = Collections.synchronizedList(new ArrayList<>());
+        CoalescingWriteQueue<Long, String> queue = new CoalescingWriteQueue<>("test writer",
+                (key, value) -> writes.add(key + "=" + value), 60_000);
+
+        for (int i = 0; i < 1000; i++)
+        {
+            queue.submit(1L, "one" + i);
+            queue.submit(2L, "two" + i);
+        }
+        assertTrue(writes.isEmpty());
+        assertEquals(2, queue.getQueueDepth());
+
+        // Flushing doesn't wait out the delay.
+        queue.flush();
+        assertEquals(List.of("1=one999", "2=two999"), writes);
+        assertEquals(0, queue.getQueueDepth());
+        assertEquals(2, queue.getWriteCount());
+        assertEquals(1998, queue.getCoalescedCount());
+
+        queue.close();
+    }
+
+    @Test
+    public void testCloseWritesEverything()
+    {
+        List<String> writes = Collections.synchronizedList(new ArrayList<>());
+        CoalescingWriteQueue<Long, String> queue = new CoalescingWriteQueue<>("test writer",
+                (key, value) -> writes.add(key + "=" + value), 60_000);
+
+        queue.submit(3L, "pending");
+        queue.close();
+        assertEquals(List.of("3=pending"), writes);
+
+        // Once closed, submissions are written right away.
+        queue.submit(4L, "late");
+        assertEquals(List.of("3=pending", "4=late"), writes);
+    }
+
+    @Test
+    public void testPeekDoesNotWaitForWriter()
+    {
+        List<String> writes = Collections.synchronizedList(new ArrayList<>());
+        CoalescingWriteQueue<Long, String> queue = new CoalescingWriteQueue<>("test writer",
+                (key, value) -> writes.add(key + "=" + value), 60_000);
+
+        queue.submit(6L, "first");
+        queue.submit(6L, "second");
+        assertEquals("second", queue.peek(6L));
+        assertNull(queue.peek(7L));
+        assertTrue(writes.isEmpty());
+
+        queue.flush(6L);
+        assertNull(queue.peek(6L));
+        assertEquals(List.of("6=second"), writes);
+
+        queue.close();
+    }
+
+    @Test
+    public void testWritesWithinDelay() throws InterruptedException
+    {
+        List<String> writes = Collections.synchronizedList(new ArrayList<>());
+        CoalescingWriteQueue<Long, String> queue = new CoalescingWriteQueue<>("test writer",
+                (key, value) -> writes.add(key + "=" + value), 10);
+
+        queue.submit(5L, "soon");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (writes.isEmpty() && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(5);
+        }
+        assertEquals(List.of("5=soon"), writes);
+
+        queue.close();
+    }
+
+    @Test
+    public void testManySavesCollapseIntoFewWrites() throws InterruptedException
+    {
+        // Like player data, values are live objects whose state is read when they're written.
+        AtomicInteger[] players = new AtomicInteger[100];
+        for (int i = 0; i < players.length; i++)
+        {
+            players[i] = new AtomicInteger();
+        }
+
+        AtomicLong writes = new AtomicLong();
+        Map<Integer, Integer> stored = new ConcurrentHashMap<>();
+        CoalescingWriteQueue<Integer, AtomicInteger> queue = new CoalescingWriteQueue<>("test writer", (key, value) ->
+        {
+            writes.incrementAndGet();
+            stored.put(key, value.get());
+        }, 50);
+
+        Thread[] submitters = new Thread[4];
+        for (int t = 0; t < submitters.length; t++)
+        {
+            int offset = t;
+            submitters[t] = new Thread(() ->
+            {
+                for (int i = 0; i < 2_500; i++)
+                {
+                    int key = (i * submitters.length + offset) % players.length;
+                    players[key].incrementAndGet();
+                    queue.submit(key, players[key]);
+                }
+            });
+            submitters[t].start();
+        }
+        for (Thread submitter : submitters)
+        {
+            submitter.join();
+        }
+        queue.close();
+
+        assertEquals(10_000, queue.getWriteCount() + queue.getCoalescedCount());
+        assertEquals(writes.get(), queue.getWriteCount());
+        assertTrue(writes.get() < 1_000, "10000 saves took " + writes.get() + " writes");
+        for (int i = 0; i < players.length; i++)
+        {
+            assertNotNull(stored.get(i));
+            assertEquals(Integer.valueOf(players[i].get()), stored.get(i));
+        }
+    }
+}
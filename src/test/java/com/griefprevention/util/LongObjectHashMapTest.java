@@ -0,0 +1,92 @@
+package com.griefprevention.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LongObjectHashMapTest
+{
+    @Test
+    public void testPutGetRemove()
+    {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(0L, "zero"));
+        assertNull(map.put(-1L, "negative"));
+        assertNull(map.put(Long.MAX_VALUE, "max"));
+        assertEquals(3, map.size());
+
+        assertEquals("zero", map.get(0L));
+        assertEquals("negative", map.get(-1L));
+        assertEquals("max", map.get(Long.MAX_VALUE));
+        assertNull(map.get(1L));
+
+        assertEquals("zero", map.put(0L, "replaced"));
+        assertEquals(3, map.size());
+        assertEquals("replaced", map.remove(0L));
+        assertFalse(map.containsKey(0L));
+        assertNull(map.remove(0L));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void testNullValue()
+    {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        assertThrows(NullPointerException.class, () -> map.put(1L, null));
+    }
+
+    @Test
+    public void testComputeIfAbsent()
+    {
+        LongObjectHashMap<StringBuilder> map = new LongObjectHashMap<>();
+        StringBuilder first = map.computeIfAbsent(5L, key -> new StringBuilder());
+        StringBuilder second = map.computeIfAbsent(5L, key -> new StringBuilder());
+        assertSame(first, second);
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testMatchesHashMap()
+    {
+        // Random inserts and removals across packed chunk keys exercise resizing and backward-shift deletion.
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>(0);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++)
+        {
+            long key = ((long) (random.nextInt(64) - 32) << 32) | ((random.nextInt(64) - 32) & 0xFFFFFFFFL);
+            if (random.nextInt(3) == 0)
+            {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+            else
+            {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+        int[] visited = new int[1];
+        map.forEach((key, value) ->
+        {
+            assertEquals(expected.get(key), value);
+            visited[0]++;
+        });
+        assertEquals(expected.size(), visited[0]);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0L));
+    }
+}
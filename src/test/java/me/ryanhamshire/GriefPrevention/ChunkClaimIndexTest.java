@@ -0,0 +1,307 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ChunkClaimIndexTest
+{
+    private static World newWorld()
+    {
+        World world = mock(World.class);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+        when(world.getMinHeight()).thenReturn(-64);
+        when(world.getMaxHeight()).thenReturn(320);
+        return world;
+    }
+
+    private static Claim newClaim(World world, int x1, int z1, int x2, int z2, long id)
+    {
+        return new Claim(new Location(world, x1, 0, z1), new Location(world, x2, 0, z2), UUID.randomUUID(),
+                List.of(), List.of(), List.of(), List.of(), id);
+    }
+
+    @Test
+    public void testWorldsDoNotShareBuckets()
+    {
+        World overworld = newWorld();
+        World nether = newWorld();
+        Claim overworldClaim = newClaim(overworld, 0, 0, 20, 20, 1);
+        Claim netherClaim = newClaim(nether, 0, 0, 5, 5, 2);
+
+        ChunkClaimIndex index = new ChunkClaimIndex();
+        index.add(overworldClaim);
+        index.add(netherClaim);
+
+        assertEquals(List.of(overworldClaim), index.getClaims(overworld, 1, 1));
+        assertEquals(List.of(netherClaim), index.getClaims(nether, 0, 0));
+        assertTrue(index.getClaims(nether, 1, 1).isEmpty());
+        assertEquals(2, index.getClaimsInAllWorlds(0, 0).size());
+
+        index.remove(overworldClaim);
+        assertNull(index.get(overworld, 0, 0));
+        assertNotNull(index.get(nether, 0, 0));
+    }
+
+    @Test
+    public void testBatchPublishesOnce()
+    {
+        World world = newWorld();
+        Claim claim = newClaim(world, 0, 0, 5, 5, 1);
+
+        ChunkClaimIndex index = new ChunkClaimIndex();
+        index.beginBatch();
+        index.add(claim);
+        assertNull(index.get(world, 0, 0));
+        index.endBatch();
+
+        ChunkClaimIndex.Entry[] entries = index.get(world, 0, 0);
+        assertNotNull(entries);
+        assertSame(claim, entries[0].claim);
+    }
+
+    @Test
+    public void testTopLevelClaimsIntersecting()
+    {
+        World world = newWorld();
+        Claim large = newClaim(world, -40, -40, 40, 40, 1);
+        Claim nearby = newClaim(world, 50, 0, 60, 10, 2);
+        Claim distant = newClaim(world, 500, 500, 510, 510, 3);
+
+        ChunkClaimIndex index = new ChunkClaimIndex();
+        index.rebuild(List.of(large, nearby, distant));
+
+        // Claims spanning several chunks are only listed once.
+        List<Claim> candidates = index.getTopLevelClaimsIntersecting(world, -20, -20, 55, 5);
+        assertEquals(2, candidates.size());
+        assertTrue(candidates.contains(large));
+        assertTrue(candidates.contains(nearby));
+
+        // Claims in the same chunks but outside the area are not candidates.
+        assertEquals(List.of(nearby), index.getTopLevelClaimsIntersecting(world, 45, 5, 55, 5));
+
+        // Writers see their own unpublished changes.
+        index.beginBatch();
+        index.remove(nearby);
+        assertTrue(index.getTopLevelClaimsIntersecting(world, 45, 5, 55, 5).isEmpty());
+        index.endBatch();
+    }
+
+    @Test
+    public void testEpochs()
+    {
+        World world = newWorld();
+        Claim claim = newClaim(world, 0, 0, 5, 5, 1);
+        Claim neighbor = newClaim(world, 40, 40, 45, 45, 2);
+
+        ChunkClaimIndex index = new ChunkClaimIndex();
+        assertEquals(0, index.getChunkEpoch(world, 0, 0));
+        index.add(claim);
+        long claimEpoch = index.getChunkEpoch(world, 0, 0);
+        assertEquals(index.getEpoch(), claimEpoch);
+
+        // Changes elsewhere advance the global epoch but leave untouched chunks alone.
+        index.add(neighbor);
+        assertTrue(index.getEpoch() > claimEpoch);
+        assertEquals(claimEpoch, index.getChunkEpoch(world, 0, 0));
+
+        // A batch publishes a single new epoch.
+        long before = index.getEpoch();
+        index.beginBatch();
+        index.remove(claim);
+        claim.greaterBoundaryCorner = new Location(world, 10, 0, 10);
+        claim.refreshBounds();
+        index.add(claim);
+        index.endBatch();
+        assertEquals(before + 1, index.getEpoch());
+        assertEquals(before + 1, index.getChunkEpoch(world, 0, 0));
+    }
+
+    @Test
+    public void testColumnGrid()
+    {
+        World world = newWorld();
+        Claim parent = newClaim(world, 0, 0, 31, 31, 1);
+        Claim subdivision = newClaim(world, 2, 2, 5, 5, 2);
+        subdivision.parent = parent;
+        parent.children.add(subdivision);
+        Claim room = newClaim(world, 10, 10, 12, 12, 3);
+        room.set3D(true);
+        room.parent = parent;
+        parent.children.add(room);
+
+        ChunkClaimIndex index = new ChunkClaimIndex();
+        index.rebuild(List.of(parent));
+
+        ChunkClaimIndex.Bucket bucket = index.getBucket(world, 0, 0);
+        assertNotNull(bucket);
+        ClaimColumnGrid grid = bucket.getColumnGrid();
+
+        ClaimColumnGrid.Column open = grid.get(0, 0);
+        assertSame(parent, open.claim().claim);
+        assertSame(parent, open.claimExcludingSubdivisions().claim);
+
+        ClaimColumnGrid.Column inSubdivision = grid.get(3, 4);
+        assertSame(subdivision, inSubdivision.claim().claim);
+        assertNull(inSubdivision.claimExcludingSubdivisions());
+
+        assertTrue(grid.get(11, 11).has3D());
+        assertSame(grid.get(0, 0), grid.get(15, 15));
+
+        // Columns outside any claim resolve to nothing.
+        index.remove(parent);
+        Claim corner = newClaim(world, 0, 0, 3, 3, 4);
+        index.add(corner);
+        ClaimColumnGrid.Column unclaimed = index.getBucket(world, 0, 0).getColumnGrid().get(8, 8);
+        assertNull(unclaimed.claim());
+        assertNull(unclaimed.claimExcludingSubdivisions());
+    }
+
+    @Test
+    public void testSubdivisionTree()
+    {
+        World world = newWorld();
+        Claim tower = newClaim(world, 0, 0, 31, 31, 1);
+        // Twenty stacked floors of four rooms each.
+        for (int floor = 0; floor < 20; floor++)
+        {
+            for (int room = 0; room < 4; room++)
+            {
+                int x = (room & 1) * 16;
+                int z = (room >> 1) * 16;
+                Claim subdivision = new Claim(new Location(world, x, floor * 5, z), new Location(world, x + 15, floor * 5 + 4, z + 15),
+                        UUID.randomUUID(), List.of(), List.of(), List.of(), List.of(), 2L + floor * 4 + room);
+                subdivision.set3D(true);
+                subdivision.parent = tower;
+                tower.children.add(subdivision);
+            }
+        }
+        // A taller room overlapping the first two floors loses to the shorter rooms it contains.
+        Claim atrium = new Claim(new Location(world, 0, 0, 0), new Location(world, 15, 9, 15),
+                UUID.randomUUID(), List.of(), List.of(), List.of(), List.of(), 100L);
+        atrium.set3D(true);
+        atrium.parent = tower;
+        tower.children.add(atrium);
+
+        ChunkClaimIndex index = new ChunkClaimIndex();
+        index.rebuild(List.of(tower));
+        ChunkClaimIndex.Entry entry = index.find(tower);
+        assertNotNull(entry);
+        SubdivisionTree tree = entry.subdivisions3D;
+        assertNotNull(tree);
+        assertEquals(0, entry.flatChildren.length);
+
+        for (Claim subdivision : tower.children)
+        {
+            subdivision.inDataStore = true;
+        }
+        assertSame(tower.children.get(4 * 7 + 3), tree.findMostSpecific(20, 37, 20).claim);
+        assertSame(tower.children.get(0), tree.findMostSpecific(3, 2, 3).claim);
+        assertNull(tree.findMostSpecific(3, 150, 3));
+
+        // Inactive subdivisions are skipped by lookups but still block the parent.
+        tower.children.get(0).inDataStore = false;
+        assertSame(atrium, tree.findMostSpecific(3, 2, 3).claim);
+        assertTrue(tree.anyContains(3, 2, 3));
+        assertTrue(entry.contains(world, 3, 2, 3, false, false));
+        assertFalse(entry.contains(world, 3, 2, 3, false, true));
+
+        List<Claim> column = new ArrayList<>();
+        tree.forEachIntersecting(20, Integer.MIN_VALUE, 3, 20, Integer.MAX_VALUE, 3, hit -> column.add(hit.claim));
+        assertEquals(20, column.size());
+    }
+
+    @Test
+    public void testReadersNeverSeePartialResize() throws InterruptedException
+    {
+        World world = newWorld();
+        Claim claim = newClaim(world, 0, 0, 15, 15, 1);
+        Object dataStoreMonitor = new Object();
+        ChunkClaimIndex index = new ChunkClaimIndex();
+        synchronized (dataStoreMonitor)
+        {
+            index.add(claim);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        int readerCount = 4;
+        CountDownLatch started = new CountDownLatch(readerCount);
+        Thread[] readers = new Thread[readerCount];
+        for (int i = 0; i < readerCount; i++)
+        {
+            readers[i] = new Thread(() ->
+            {
+                started.countDown();
+                while (running.get() && failure.get() == null)
+                {
+                    // Chunk 0,0 is covered by both shapes, so the claim must always be found there.
+                    ChunkClaimIndex.Entry[] entries = index.get(world, 0, 0);
+                    if (entries == null || entries.length != 1)
+                    {
+                        failure.set("Claim missing or duplicated during resize");
+                        return;
+                    }
+
+                    ChunkClaimIndex.Entry entry = entries[0];
+                    boolean small = entry.minX == 0 && entry.minZ == 0 && entry.maxX == 15 && entry.maxZ == 15;
+                    boolean large = entry.minX == -16 && entry.minZ == -16 && entry.maxX == 31 && entry.maxZ == 31;
+                    if (!small && !large)
+                    {
+                        failure.set("Observed partial bounds " + entry.minX + "," + entry.minZ + " " + entry.maxX + "," + entry.maxZ);
+                        return;
+                    }
+
+                    // Chunk 1,1 is only covered by the large shape.
+                    ChunkClaimIndex.Entry[] outer = index.get(world, 1, 1);
+                    if (outer != null && (outer.length != 1 || outer[0].maxX != 31))
+                    {
+                        failure.set("Observed stale bucket in chunk 1,1");
+                        return;
+                    }
+                }
+            });
+            readers[i].start();
+        }
+
+        started.await();
+        for (int i = 0; i < 20_000 && failure.get() == null; i++)
+        {
+            boolean grow = i % 2 == 0;
+            synchronized (dataStoreMonitor)
+            {
+                // Mirrors DataStore#resizeClaim: the corners are replaced one at a time between removal and re-adding.
+                index.beginBatch();
+                index.remove(claim);
+                claim.lesserBoundaryCorner = new Location(world, grow ? -16 : 0, 0, grow ? -16 : 0);
+                claim.greaterBoundaryCorner = new Location(world, grow ? 31 : 15, 0, grow ? 31 : 15);
+                claim.refreshBounds();
+                index.add(claim);
+                index.endBatch();
+            }
+        }
+
+        running.set(false);
+        for (Thread reader : readers)
+        {
+            reader.join();
+        }
+        assertNull(failure.get(), failure.get());
+    }
+}
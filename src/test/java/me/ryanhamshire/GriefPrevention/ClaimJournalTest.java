@@ -0,0 +1,129 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class ClaimJournalTest
+{
+    private static ClaimJournal.ClaimState state(long id, int size, List<String> builders)
+    {
+        return new ClaimJournal.ClaimState(id, id > 10 ? 1 : -1, "world", 0, 0, 0, size, 320, size,
+                id % 2 == 0 ? null : UUID.randomUUID(), builders, List.of("public"), List.of(), List.of(),
+                id % 3 == 0, id > 10);
+    }
+
+    /**
+     * Folds changes into a map, like claim files in a folder.
+     */
+    private static class MapTarget implements ClaimJournal.Target
+    {
+        private final Map<Long, ClaimJournal.ClaimState> claims = new HashMap<>();
+
+        @Override
+        public void save(ClaimJournal.ClaimState state)
+        {
+            this.claims.put(state.id(), state);
+        }
+
+        @Override
+        public void delete(long claimID)
+        {
+            this.claims.remove(claimID);
+        }
+    }
+
+    @Test
+    public void testCrashAtAnyOffset(@TempDir Path folder) throws IOException
+    {
+        Path path = folder.resolve("_journal.log");
+        ClaimJournal journal = new ClaimJournal(path);
+
+        // The expected claims after each record, and the journal size at which that record ends.
+        List<Map<Long, ClaimJournal.ClaimState>> expected = new ArrayList<>();
+        List<Long> ends = new ArrayList<>();
+        MapTarget model = new MapTarget();
+        expected.add(new HashMap<>());
+        ends.add(0L);
+
+        List<String> builders = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+        {
+            long id = 1 + i % 13;
+            if (i % 7 == 6)
+            {
+                journal.appendDelete(id);
+                model.delete(id);
+            }
+            else
+            {
+                builders.add(UUID.randomUUID().toString());
+                ClaimJournal.ClaimState state = state(id, 10 + i, List.copyOf(builders));
+                journal.appendSave(state);
+                model.save(state);
+            }
+            journal.sync();
+            expected.add(new HashMap<>(model.claims));
+            ends.add(journal.size());
+        }
+        journal.close();
+
+        byte[] bytes = Files.readAllBytes(path);
+        assertEquals((long) ends.get(ends.size() - 1), bytes.length);
+
+        // Cut the journal off at every offset, as if the writer died there.
+        int record = 0;
+        for (int cut = 0; cut <= bytes.length; cut++)
+        {
+            while (record + 1 < ends.size() && ends.get(record + 1) <= cut) record++;
+
+            Path torn = folder.resolve("torn.log");
+            Files.write(torn, Arrays.copyOf(bytes, cut));
+            MapTarget target = new MapTarget();
+            assertEquals(record, ClaimJournal.replay(torn, target));
+            assertEquals(expected.get(record), target.claims, "cut at " + cut);
+            assertFalse(Files.exists(torn));
+        }
+    }
+
+    @Test
+    public void testCompactionEmptiesJournal(@TempDir Path folder) throws IOException
+    {
+        Path path = folder.resolve("_journal.log");
+        ClaimJournal journal = new ClaimJournal(path);
+        MapTarget target = new MapTarget();
+
+        journal.appendSave(state(1, 10, List.of()));
+        journal.appendSave(state(2, 10, List.of()));
+        journal.appendSave(state(1, 20, List.of()));
+        journal.compact(target);
+        assertEquals(0, journal.size());
+        assertEquals(20, target.claims.get(1L).greaterX());
+        assertEquals(2, target.claims.size());
+
+        // Only changes since the last compaction are folded again.
+        target.claims.clear();
+        journal.appendDelete(2);
+        journal.sync();
+        Map<Long, ClaimJournal.ClaimState> latest = new LinkedHashMap<>();
+        assertEquals(1, ClaimJournal.read(Files.readAllBytes(path), latest));
+        assertEquals(1, latest.size());
+        journal.compact(target);
+        assertEquals(0, journal.size());
+        assertEquals(0, target.claims.size());
+        journal.close();
+    }
+}
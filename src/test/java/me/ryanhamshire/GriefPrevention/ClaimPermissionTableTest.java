@@ -0,0 +1,68 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ClaimPermissionTableTest
+{
+    @Test
+    public void testPlayersStaySorted()
+    {
+        ClaimPermissionTable table = new ClaimPermissionTable();
+        Map<UUID, ClaimPermission> expected = new HashMap<>();
+        ClaimPermission[] levels = { ClaimPermission.Build, ClaimPermission.Inventory, ClaimPermission.Access };
+        for (int i = 0; i < 200; i++)
+        {
+            UUID uuid = UUID.randomUUID();
+            ClaimPermission level = levels[i % levels.length];
+            table.put(uuid.toString(), level);
+            expected.put(uuid, level);
+        }
+
+        int removed = 0;
+        for (Map.Entry<UUID, ClaimPermission> entry : expected.entrySet())
+        {
+            if (removed++ % 3 == 0)
+            {
+                table.remove(entry.getKey().toString());
+                entry.setValue(null);
+            }
+        }
+
+        for (Map.Entry<UUID, ClaimPermission> entry : expected.entrySet())
+        {
+            assertEquals(entry.getValue(), table.get(entry.getKey()));
+            assertEquals(entry.getValue(), table.get(entry.getKey().toString()));
+        }
+    }
+
+    @Test
+    public void testGroupsAndPublic()
+    {
+        ClaimPermissionTable table = new ClaimPermissionTable();
+        table.put("public", ClaimPermission.Access);
+        table.put("[some.node]", ClaimPermission.Build);
+        // Names from before UUIDs were used are kept as they are.
+        table.put("somename", ClaimPermission.Inventory);
+
+        assertEquals(ClaimPermission.Access, table.getPublic());
+        assertEquals(ClaimPermission.Build, table.get("[some.node]"));
+        assertEquals(ClaimPermission.Inventory, table.get("somename"));
+
+        Map<String, ClaimPermission> all = new HashMap<>();
+        table.forEach(all::put);
+        assertEquals(3, all.size());
+
+        ClaimPermissionTable copy = new ClaimPermissionTable(table);
+        table.clear();
+        assertNull(table.getPublic());
+        assertNull(table.get("[some.node]"));
+        assertEquals(ClaimPermission.Access, copy.getPublic());
+    }
+}
@@ -0,0 +1,104 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ClaimSnapshotTest
+{
+    private static World newWorld(String name)
+    {
+        World world = mock(World.class);
+        when(world.getName()).thenReturn(name);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+        when(world.getMinHeight()).thenReturn(-64);
+        when(world.getMaxHeight()).thenReturn(320);
+        return world;
+    }
+
+    @Test
+    public void testRoundTrip(@TempDir Path folder) throws IOException
+    {
+        World world = newWorld("world");
+        UUID owner = UUID.randomUUID();
+        String builder = UUID.randomUUID().toString();
+        Claim parent = new Claim(new Location(world, -10, 40, -10), new Location(world, 30, 40, 30), owner,
+                List.of(builder, "[some.node]"), List.of("public"), List.of(), List.of(builder), true, 5L, false);
+        Claim room = new Claim(new Location(world, 0, 60, 0), new Location(world, 4, 64, 4), null,
+                List.of(), List.of(), List.of(builder), List.of(), false, 6L, true);
+        room.parent = parent;
+        room.inDataStore = true;
+        parent.children.add(room);
+        Claim admin = new Claim(new Location(world, 100, 0, 100), new Location(world, 120, 0, 120), null,
+                List.of(), List.of(), List.of(), List.of(), false, 7L, false);
+
+        Path snapshot = folder.resolve("_snapshot.bin");
+        ClaimSnapshot.write(snapshot, 42L, List.of(parent, admin), claim -> 1000L * claim.id);
+
+        // A different claim folder means the snapshot is stale.
+        assertNull(ClaimSnapshot.read(snapshot, 43L, List.of(world)));
+        // So does a world that isn't loaded.
+        assertNull(ClaimSnapshot.read(snapshot, 42L, List.of(newWorld("world_nether"))));
+
+        List<ClaimSnapshot.Entry> entries = ClaimSnapshot.read(snapshot, 42L, List.of(world));
+        assertNotNull(entries);
+        assertEquals(3, entries.size());
+
+        Claim loadedParent = entries.get(0).claim();
+        assertEquals(-1, entries.get(0).parentID());
+        assertEquals(5L, loadedParent.getID());
+        assertEquals(owner, loadedParent.getOwnerID());
+        assertEquals(new Location(world, -10, 40, -10), loadedParent.getLesserBoundaryCorner());
+        assertEquals(new Location(world, 30, 40, 30), loadedParent.getGreaterBoundaryCorner());
+        assertTrue(loadedParent.getSubclaimRestrictions());
+        assertEquals(5000L, loadedParent.modifiedDate.getTime());
+        assertEquals(ClaimPermission.Build, loadedParent.getPermission(builder));
+        assertEquals(ClaimPermission.Build, loadedParent.getPermission("[some.node]"));
+        assertEquals(ClaimPermission.Inventory, loadedParent.getPermission("public"));
+        assertEquals(List.of(builder), loadedParent.managers);
+
+        assertEquals(7L, entries.get(1).claim().getID());
+        assertTrue(entries.get(1).claim().isAdminClaim());
+
+        Claim loadedRoom = entries.get(2).claim();
+        assertEquals(5L, entries.get(2).parentID());
+        assertTrue(loadedRoom.is3D());
+        assertEquals(64, loadedRoom.getGreaterBoundaryCorner().getBlockY());
+        assertEquals(ClaimPermission.Access, loadedRoom.getPermission(builder));
+
+        ArrayList<String> builders = new ArrayList<>();
+        loadedParent.getPermissions(builders, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        assertEquals(2, builders.size());
+    }
+
+    @Test
+    public void testDamagedSnapshotIsIgnored(@TempDir Path folder) throws IOException
+    {
+        World world = newWorld("world");
+        Claim claim = new Claim(new Location(world, 0, 0, 0), new Location(world, 10, 0, 10), UUID.randomUUID(),
+                List.of(), List.of(), List.of(), List.of(), false, 1L, false);
+        Path snapshot = folder.resolve("_snapshot.bin");
+        ClaimSnapshot.write(snapshot, 1L, List.of(claim), ignored -> 0L);
+
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(snapshot, bytes);
+
+        assertNull(ClaimSnapshot.read(snapshot, 1L, List.of(world)));
+    }
+}
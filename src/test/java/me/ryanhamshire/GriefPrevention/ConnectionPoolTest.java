@@ -0,0 +1,257 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConnectionPoolTest
+{
+    private static Connection connection() throws SQLException
+    {
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> mock(PreparedStatement.class));
+        return connection;
+    }
+
+    @Test
+    public void testConcurrentBorrowersShareBoundedConnections() throws Exception
+    {
+        List<Connection> opened = Collections.synchronizedList(new ArrayList<>());
+        ConnectionPool pool = new ConnectionPool(() ->
+        {
+            Connection connection = connection();
+            opened.add(connection);
+            return connection;
+        }, 3, 60_000, 60_000, 10_000, false, message -> {});
+
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger mostActive = new AtomicInteger();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        Thread[] workers = new Thread[8];
+        for (int t = 0; t < workers.length; t++)
+        {
+            workers[t] = new Thread(() ->
+            {
+                try
+                {
+                    for (int i = 0; i < 200; i++)
+                    {
+                        try (ConnectionPool.PooledConnection connection = pool.borrow())
+                        {
+                            mostActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                            connection.prepare("UPDATE claims SET x = ?").setInt(1, i);
+                            active.decrementAndGet();
+                        }
+                    }
+                }
+                catch (Throwable e)
+                {
+                    failures.add(e);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers)
+        {
+            worker.join();
+        }
+
+        assertTrue(failures.isEmpty(), failures.toString());
+        assertTrue(mostActive.get() <= 3, "most active was " + mostActive.get());
+        assertTrue(opened.size() <= 3, "opened " + opened.size());
+        assertEquals(0, pool.getActiveCount());
+
+        // Each connection prepared the statement once and reused it.
+        for (Connection connection : opened)
+        {
+            verify(connection, times(1)).prepareStatement("UPDATE claims SET x = ?");
+            verify(connection, never()).isValid(anyInt());
+        }
+
+        pool.close();
+        assertEquals(0, pool.getSize());
+        for (Connection connection : opened)
+        {
+            verify(connection).close();
+        }
+    }
+
+    @Test
+    public void testBorrowIsReentrant() throws Exception
+    {
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolTest::connection, 1, 60_000, 60_000, 100, false, message -> {});
+
+        try (ConnectionPool.PooledConnection outer = pool.borrow())
+        {
+            try (ConnectionPool.PooledConnection inner = pool.borrow())
+            {
+                assertSame(outer, inner);
+            }
+            assertEquals(1, pool.getActiveCount());
+        }
+        assertEquals(0, pool.getActiveCount());
+        pool.close();
+    }
+
+    @Test
+    public void testExhaustedPoolTimesOut() throws Exception
+    {
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolTest::connection, 1, 60_000, 60_000, 50, false, message -> {});
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        try (ConnectionPool.PooledConnection ignored = pool.borrow())
+        {
+            Thread other = new Thread(() ->
+            {
+                try
+                {
+                    pool.borrow().close();
+                }
+                catch (SQLException e)
+                {
+                    failure.set(e);
+                }
+            });
+            other.start();
+            other.join();
+        }
+        assertInstanceOf(SQLException.class, failure.get());
+        pool.close();
+    }
+
+    @Test
+    public void testIdleConnectionsAreValidated() throws Exception
+    {
+        Connection stale = connection();
+        when(stale.isValid(anyInt())).thenReturn(false);
+        List<Connection> connections = new ArrayList<>(List.of(stale, connection()));
+        ConnectionPool pool = new ConnectionPool(() -> connections.remove(0), 1, 0, 60_000, 1_000, false, message -> {});
+
+        pool.borrow().close();
+        try (ConnectionPool.PooledConnection connection = pool.borrow())
+        {
+            assertTrue(connection.connection() != stale);
+        }
+        verify(stale).close();
+        pool.close();
+    }
+
+    @Test
+    public void testReturnedConnectionsAreReset() throws Exception
+    {
+        Connection abandoned = connection();
+        Connection broken = connection();
+        List<Connection> connections = new ArrayList<>(List.of(abandoned, broken, connection()));
+        ConnectionPool pool = new ConnectionPool(() -> connections.remove(0), 1, 60_000, 60_000, 1_000, false, message -> {});
+
+        // A transaction left open is rolled back and the connection is reused.
+        try (ConnectionPool.PooledConnection connection = pool.borrow())
+        {
+            when(abandoned.getAutoCommit()).thenReturn(false);
+            connection.connection().setAutoCommit(false);
+        }
+        verify(abandoned).rollback();
+        verify(abandoned).setAutoCommit(true);
+        verify(abandoned, never()).close();
+        when(abandoned.getAutoCommit()).thenReturn(true);
+        try (ConnectionPool.PooledConnection connection = pool.borrow())
+        {
+            assertSame(abandoned, connection.connection());
+        }
+
+        // A connection that can't be rolled back is closed and replaced.
+        when(abandoned.getAutoCommit()).thenReturn(false);
+        doThrow(new SQLException("gone")).when(abandoned).rollback();
+        pool.borrow().close();
+        verify(abandoned).close();
+        try (ConnectionPool.PooledConnection connection = pool.borrow())
+        {
+            assertSame(broken, connection.connection());
+        }
+        assertEquals(1, pool.getSize());
+        pool.close();
+    }
+
+    @Test
+    public void testLeakIsReportedOnce() throws Exception
+    {
+        List<String> warnings = Collections.synchronizedList(new ArrayList<>());
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolTest::connection, 2, 60_000, 50, 1_000, true, warnings::add);
+
+        ConnectionPool.PooledConnection leaked = pool.borrow();
+        Thread.sleep(100);
+        Thread other = new Thread(() ->
+        {
+            for (int i = 0; i < 3; i++)
+            {
+                try (ConnectionPool.PooledConnection ignored = pool.borrow())
+                {
+                    // Borrowing checks for leaks.
+                }
+                catch (SQLException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        other.start();
+        other.join();
+
+        assertEquals(1, warnings.size());
+        assertTrue(warnings.get(0).contains("testLeakIsReportedOnce"));
+        leaked.close();
+        pool.close();
+    }
+
+    @Test
+    public void testUntracedLeakReportNamesThread() throws Exception
+    {
+        List<String> warnings = Collections.synchronizedList(new ArrayList<>());
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolTest::connection, 2, 60_000, 50, 1_000, false, warnings::add);
+
+        ConnectionPool.PooledConnection leaked = pool.borrow();
+        Thread.sleep(100);
+        Thread other = new Thread(() ->
+        {
+            try (ConnectionPool.PooledConnection ignored = pool.borrow())
+            {
+                // Borrowing checks for leaks.
+            }
+            catch (SQLException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        });
+        other.start();
+        other.join();
+
+        assertEquals(1, warnings.size());
+        assertTrue(warnings.get(0).contains("borrowed on thread " + Thread.currentThread().getName() + "."), warnings.get(0));
+        assertFalse(warnings.get(0).contains("testUntracedLeakReportNamesThread"), warnings.get(0));
+        leaked.close();
+        pool.close();
+    }
+}
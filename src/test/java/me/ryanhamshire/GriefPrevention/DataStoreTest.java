@@ -0,0 +1,266 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.WorldBorder;
+import org.bukkit.plugin.PluginManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class DataStoreTest
+{
+    private GriefPrevention previousInstance;
+
+    @BeforeEach
+    void setUp()
+    {
+        this.previousInstance = GriefPrevention.instance;
+        GriefPrevention plugin = mock(GriefPrevention.class);
+        when(plugin.getServer()).thenReturn(mock(Server.class));
+        plugin.config_claims_worldModes = new ConcurrentHashMap<>();
+        GriefPrevention.instance = plugin;
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        GriefPrevention.instance = this.previousInstance;
+    }
+
+    private static DataStore newDataStore()
+    {
+        // Storage is stubbed out; everything kept in memory is real.
+        return mock(DataStore.class, withSettings().useConstructor().defaultAnswer(CALLS_REAL_METHODS));
+    }
+
+    private static World newWorld()
+    {
+        World world = mock(World.class);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+        when(world.getMinHeight()).thenReturn(-64);
+        when(world.getMaxHeight()).thenReturn(320);
+        WorldBorder border = mock(WorldBorder.class);
+        when(border.isInside(any())).thenReturn(true);
+        when(world.getWorldBorder()).thenReturn(border);
+        return world;
+    }
+
+    private static Claim newClaim(World world, int x1, int z1, int x2, int z2, long id)
+    {
+        return newClaim(world, x1, z1, x2, z2, id, UUID.randomUUID());
+    }
+
+    private static Claim newClaim(World world, int x1, int z1, int x2, int z2, long id, UUID ownerID)
+    {
+        Claim claim = new Claim(new Location(world, x1, 0, z1), new Location(world, x2, 0, z2), ownerID,
+                List.of(), List.of(), List.of(), List.of(), id);
+        claim.inDataStore = true;
+        return claim;
+    }
+
+    private static long recountClaimedArea(DataStore dataStore, UUID ownerID)
+    {
+        long area = 0;
+        for (Claim claim : dataStore.getClaimsOwnedBy(ownerID))
+        {
+            area += claim.getArea();
+        }
+        return area;
+    }
+
+    private static void verifyIndexSearches(DataStore dataStore, int searches)
+    {
+        verify(dataStore, times(searches)).getClaimAt(any(), anyBoolean(), anyBoolean(), any());
+    }
+
+    @Test
+    public void testLookupsAreReusedWithinChunk()
+    {
+        World world = newWorld();
+        DataStore dataStore = newDataStore();
+        Claim claim = newClaim(world, 0, 0, 40, 40, 1);
+        Claim subdivision = newClaim(world, 8, 8, 11, 11, 2);
+        subdivision.parent = claim;
+        claim.children.add(subdivision);
+        dataStore.chunkClaimIndex.add(claim);
+        PlayerData playerData = new PlayerData();
+
+        assertSame(claim, dataStore.getClaimAtFor(new Location(world, 1, 64, 1), false, playerData));
+        verifyIndexSearches(dataStore, 1);
+
+        // Anywhere else in the chunk and the claim is answered from the previous lookup.
+        assertSame(claim, dataStore.getClaimAtFor(new Location(world, 14, 70, 3), false, playerData));
+        assertSame(claim, dataStore.getClaimAtFor(new Location(world, 3, -20, 15), false, playerData));
+        verifyIndexSearches(dataStore, 1);
+
+        // Stepping into a subdivision needs a search, after which the subdivision is reused.
+        assertSame(subdivision, dataStore.getClaimAtFor(new Location(world, 9, 64, 9), false, playerData));
+        assertSame(subdivision, dataStore.getClaimAtFor(new Location(world, 11, 64, 10), false, playerData));
+        verifyIndexSearches(dataStore, 2);
+
+        // The next chunk over is searched even though the same claim covers it.
+        assertSame(claim, dataStore.getClaimAtFor(new Location(world, 20, 64, 1), false, playerData));
+        verifyIndexSearches(dataStore, 3);
+
+        // A resize bumps the chunk's epoch, so the next lookup searches again.
+        assertSame(subdivision, dataStore.getClaimAtFor(new Location(world, 10, 64, 10), false, playerData));
+        verifyIndexSearches(dataStore, 4);
+        dataStore.chunkClaimIndex.remove(claim);
+        subdivision.greaterBoundaryCorner = new Location(world, 9, 0, 9);
+        subdivision.refreshBounds();
+        dataStore.chunkClaimIndex.add(claim);
+        assertSame(claim, dataStore.getClaimAtFor(new Location(world, 10, 64, 10), false, playerData));
+        verifyIndexSearches(dataStore, 5);
+        assertSame(subdivision, dataStore.getClaimAtFor(new Location(world, 9, 64, 9), false, playerData));
+        verifyIndexSearches(dataStore, 6);
+    }
+
+    @Test
+    public void testUnclaimedLookupsAreReusedWithinChunk()
+    {
+        World world = newWorld();
+        DataStore dataStore = newDataStore();
+        dataStore.chunkClaimIndex.add(newClaim(world, 0, 0, 3, 3, 1));
+        PlayerData playerData = new PlayerData();
+
+        // A chunk without claims.
+        assertNull(dataStore.getClaimAtFor(new Location(world, 100, 64, 100), false, playerData));
+        assertNull(dataStore.getClaimAtFor(new Location(world, 110, 64, 105), false, playerData));
+        verifyIndexSearches(dataStore, 1);
+
+        // Outside the claim sharing the chunk.
+        assertNull(dataStore.getClaimAtFor(new Location(world, 10, 64, 10), false, playerData));
+        assertNull(dataStore.getClaimAtFor(new Location(world, 12, 64, 2), false, playerData));
+        verifyIndexSearches(dataStore, 2);
+
+        // A new claim in the chunk invalidates the unclaimed result.
+        Claim added = newClaim(world, 8, 8, 12, 12, 2);
+        dataStore.chunkClaimIndex.add(added);
+        assertSame(added, dataStore.getClaimAtFor(new Location(world, 10, 64, 10), false, playerData));
+        verifyIndexSearches(dataStore, 3);
+    }
+
+    @Test
+    public void testTrustIndexFollowsUntrustAll()
+    {
+        World world = newWorld();
+        DataStore dataStore = newDataStore();
+        GriefPrevention.instance.dataStore = dataStore;
+        UUID ownerID = UUID.randomUUID();
+        String trustee = UUID.randomUUID().toString();
+
+        Claim home = newClaim(world, 0, 0, 20, 20, 1, ownerID);
+        Claim farm = newClaim(world, 100, 0, 140, 40, 2, ownerID);
+        Claim shed = newClaim(world, 110, 10, 115, 15, 3, ownerID);
+        shed.parent = farm;
+        farm.children.add(shed);
+        Claim neighbor = newClaim(world, 200, 0, 220, 20, 4);
+        dataStore.addClaim(home, false);
+        dataStore.addClaim(farm, false);
+        dataStore.addClaim(neighbor, false);
+
+        home.setPermission(trustee, ClaimPermission.Build);
+        shed.setPermission(trustee, ClaimPermission.Access);
+        neighbor.setPermission(trustee, ClaimPermission.Inventory);
+        farm.setPermission("public", ClaimPermission.Access);
+        home.setPermission("[some.permission]", ClaimPermission.Manage);
+
+        // What /trustedin lists, including subdivisions, regardless of case.
+        assertEquals(Set.of(home, shed, neighbor), Set.copyOf(dataStore.getClaimsTrusting(trustee)));
+        assertEquals(Set.of(home, shed, neighbor), Set.copyOf(dataStore.getClaimsTrusting(trustee.toUpperCase())));
+        assertEquals(List.of(farm), dataStore.getClaimsTrusting("public"));
+        assertEquals(List.of(home), dataStore.getClaimsTrusting("[SOME.PERMISSION]"));
+
+        // Dropping one trustee only touches that trustee.
+        farm.dropPermission(trustee);
+        assertEquals(Set.of(home, neighbor), Set.copyOf(dataStore.getClaimsTrusting(trustee)));
+        assertEquals(List.of(farm), dataStore.getClaimsTrusting("public"));
+
+        // /untrust all outside a claim clears every claim the player owns.
+        for (Claim owned : dataStore.getClaimsOwnedBy(ownerID))
+        {
+            owned.clearPermissions();
+        }
+        assertEquals(List.of(neighbor), dataStore.getClaimsTrusting(trustee));
+        assertTrue(dataStore.getClaimsTrusting("public").isEmpty());
+        assertTrue(dataStore.getClaimsTrusting("[some.permission]").isEmpty());
+    }
+
+    @Test
+    public void testClaimedAreaFollowsClaimChanges()
+    {
+        World world = newWorld();
+        DataStore dataStore = newDataStore();
+        GriefPrevention.instance.dataStore = dataStore;
+        doReturn(new PlayerData()).when(dataStore).getPlayerDataFromStorage(any());
+        UUID aliceID = UUID.randomUUID();
+        UUID bobID = UUID.randomUUID();
+        PlayerData alice = dataStore.getPlayerData(aliceID);
+        PlayerData bob = dataStore.getPlayerData(bobID);
+        assertEquals(0, dataStore.initializeClaimedArea(alice));
+        assertEquals(0, dataStore.initializeClaimedArea(bob));
+
+        try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class))
+        {
+            bukkit.when(Bukkit::getPluginManager).thenReturn(mock(PluginManager.class));
+
+            // Create: 10x10 and 20x10.
+            Claim home = newClaim(world, 0, 0, 9, 9, 1, aliceID);
+            Claim farm = newClaim(world, 100, 0, 119, 9, 2, aliceID);
+            dataStore.addClaim(home, false);
+            dataStore.addClaim(farm, false);
+            assertEquals(300, alice.claimedArea);
+
+            // Subdivisions don't count towards the owner's area.
+            Claim shed = newClaim(world, 102, 2, 105, 5, 3, aliceID);
+            shed.parent = farm;
+            dataStore.addClaim(shed, false);
+            assertEquals(300, alice.claimedArea);
+
+            // Resize: home grows to 20x10.
+            assertTrue(dataStore.resizeClaim(home, 0, 19, 0, 0, 0, 9, null).succeeded);
+            assertEquals(400, alice.claimedArea);
+
+            // Transfer: the farm moves to Bob, then Bob shrinks it to 10x10.
+            dataStore.changeClaimOwner(farm, bobID);
+            assertEquals(200, alice.claimedArea);
+            assertEquals(200, bob.claimedArea);
+            assertTrue(dataStore.resizeClaim(farm, 100, 109, 0, 0, 0, 9, null).succeeded);
+            assertEquals(200, alice.claimedArea);
+            assertEquals(100, bob.claimedArea);
+
+            // Delete.
+            dataStore.deleteClaim(home, false, false);
+            assertEquals(0, alice.claimedArea);
+            assertEquals(100, bob.claimedArea);
+        }
+
+        // The running totals match a full recount.
+        assertEquals(recountClaimedArea(dataStore, aliceID), alice.claimedArea);
+        assertEquals(recountClaimedArea(dataStore, bobID), bob.claimedArea);
+    }
+}
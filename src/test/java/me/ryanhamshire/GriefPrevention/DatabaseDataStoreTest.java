@@ -0,0 +1,502 @@
+package me.ryanhamshire.GriefPrevention;
+
+import com.griefprevention.test.ServerMocks;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class DatabaseDataStoreTest
+{
+    private final List<DatabaseDataStore> dataStores = new ArrayList<>();
+    private final List<String> logged = Collections.synchronizedList(new ArrayList<>());
+    private GriefPrevention previousInstance;
+    private World world;
+    private String url;
+
+    @BeforeEach
+    void setUp(@TempDir Path folder)
+    {
+        this.url = "jdbc:sqlite:" + folder.resolve("GriefPreventionData.db");
+
+        this.previousInstance = GriefPrevention.instance;
+        GriefPrevention plugin = mock(GriefPrevention.class);
+        plugin.config_claims_worldModes = new ConcurrentHashMap<>();
+        GriefPrevention.instance = plugin;
+
+        this.world = mock(World.class);
+        when(this.world.getName()).thenReturn("world");
+        when(this.world.getUID()).thenReturn(UUID.randomUUID());
+        when(this.world.getMinHeight()).thenReturn(-64);
+        when(this.world.getMaxHeight()).thenReturn(320);
+
+        Server server = ServerMocks.newServer();
+        when(server.getWorlds()).thenReturn(List.of(this.world));
+        when(server.getOfflinePlayer(any(UUID.class))).thenReturn(mock(OfflinePlayer.class));
+        doAnswer(invocation -> this.logged.add(invocation.getArgument(0))).when(server.getLogger()).info(anyString());
+        Bukkit.setServer(server);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        for (DatabaseDataStore dataStore : this.dataStores)
+        {
+            dataStore.closeStorage();
+        }
+        ServerMocks.unsetBukkitServer();
+        GriefPrevention.instance = this.previousInstance;
+    }
+
+    private DatabaseDataStore newDataStore() throws Exception
+    {
+        // Skip initialize(), which would set up the plugin's data folder, and load only from the database.
+        DatabaseDataStore dataStore = mock(DatabaseDataStore.class, withSettings()
+                .useConstructor(this.url, "", "", 2)
+                .defaultAnswer(invocation ->
+                        invocation.getMethod().getName().equals("initialize") ? null : invocation.callRealMethod()));
+        this.dataStores.add(dataStore);
+        dataStore.loadStorage();
+        return dataStore;
+    }
+
+    private Claim newClaim(int x1, int y1, int z1, int x2, int y2, int z2, UUID ownerID, long id, boolean is3D)
+    {
+        return new Claim(new Location(this.world, x1, y1, z1), new Location(this.world, x2, y2, z2), ownerID,
+                List.of(), List.of(), List.of(), List.of(), false, id, is3D);
+    }
+
+    // Trust lists are compared sorted, the order they're read back in isn't kept.
+    private static List<ClaimJournal.ClaimState> describe(DataStore dataStore)
+    {
+        List<ClaimJournal.ClaimState> states = new ArrayList<>();
+        for (Claim claim : dataStore.claims)
+        {
+            states.add(describe(claim));
+            for (Claim child : claim.children)
+            {
+                states.add(describe(child));
+            }
+        }
+        return states;
+    }
+
+    private static ClaimJournal.ClaimState describe(Claim claim)
+    {
+        ClaimJournal.ClaimState state = ClaimJournal.ClaimState.of(claim);
+        return new ClaimJournal.ClaimState(state.id(), state.parentID(), state.world(),
+                state.lesserX(), state.lesserY(), state.lesserZ(), state.greaterX(), state.greaterY(), state.greaterZ(),
+                state.owner(), sorted(state.builders()), sorted(state.containers()), sorted(state.accessors()),
+                sorted(state.managers()), state.inheritNothing(), state.is3D());
+    }
+
+    private static List<String> sorted(List<String> list)
+    {
+        return list.stream().sorted().toList();
+    }
+
+    private Connection connect() throws SQLException
+    {
+        return DriverManager.getConnection(this.url);
+    }
+
+    private List<String> query(String sql) throws SQLException
+    {
+        List<String> rows = new ArrayList<>();
+        try (Connection connection = this.connect();
+             Statement statement = connection.createStatement();
+             ResultSet results = statement.executeQuery(sql))
+        {
+            int columns = results.getMetaData().getColumnCount();
+            while (results.next())
+            {
+                List<String> values = new ArrayList<>();
+                for (int i = 1; i <= columns; i++)
+                {
+                    values.add(results.getString(i));
+                }
+                rows.add(String.join(" ", values));
+            }
+        }
+        return rows;
+    }
+
+    private void execute(String... sql) throws SQLException
+    {
+        try (Connection connection = this.connect(); Statement statement = connection.createStatement())
+        {
+            for (String line : sql)
+            {
+                statement.execute(line);
+            }
+        }
+    }
+
+    // Records every row written to the claim tables, to tell which writes were actually made.
+    private void recordChanges() throws SQLException
+    {
+        this.execute(
+                "CREATE TABLE changes (change TEXT)",
+                "CREATE TRIGGER claim_insert AFTER INSERT ON griefprevention_claims BEGIN INSERT INTO changes VALUES ('insert ' || NEW.id); END",
+                "CREATE TRIGGER claim_update AFTER UPDATE ON griefprevention_claims BEGIN INSERT INTO changes VALUES ('update ' || NEW.id); END",
+                "CREATE TRIGGER claim_delete AFTER DELETE ON griefprevention_claims BEGIN INSERT INTO changes VALUES ('delete ' || OLD.id); END",
+                "CREATE TRIGGER trust_insert AFTER INSERT ON griefprevention_claim_trust BEGIN INSERT INTO changes VALUES ('grant ' || NEW.claimid || ' ' || NEW.trustee || ' ' || NEW.level); END",
+                "CREATE TRIGGER trust_delete AFTER DELETE ON griefprevention_claim_trust BEGIN INSERT INTO changes VALUES ('revoke ' || OLD.claimid || ' ' || OLD.trustee || ' ' || OLD.level); END");
+    }
+
+    private List<String> takeChanges() throws SQLException
+    {
+        List<String> changes = this.query("SELECT change FROM changes ORDER BY rowid");
+        this.execute("DELETE FROM changes");
+        return changes;
+    }
+
+    @Test
+    public void testNewDatabaseUsesLatestSchema() throws Exception
+    {
+        DatabaseDataStore dataStore = this.newDataStore();
+
+        assertEquals(List.of("4"), this.query("SELECT version FROM griefprevention_schemaversion"));
+        assertEquals(List.of("0"), this.query("SELECT nextid FROM griefprevention_nextclaimid"));
+        List<String> tables = this.query("SELECT name FROM sqlite_master WHERE type = 'table' ORDER BY name");
+        assertEquals(List.of("griefprevention_claim_trust", "griefprevention_claims", "griefprevention_nextclaimid",
+                "griefprevention_playerdata", "griefprevention_schemaversion"), tables);
+        List<String> indexes = this.query("SELECT name FROM sqlite_master WHERE type = 'index' AND name NOT LIKE 'sqlite_%' ORDER BY name");
+        assertEquals(List.of("griefprevention_claim_trust_trustee", "griefprevention_claims_location", "griefprevention_claims_owner",
+                "griefprevention_claims_parentid", "griefprevention_playerdata_unique_name"), indexes);
+
+        // Every pooled connection gets the same settings.
+        try (Connection connection = dataStore.openConnection(); Statement statement = connection.createStatement())
+        {
+            try (ResultSet results = statement.executeQuery("PRAGMA journal_mode"))
+            {
+                assertTrue(results.next());
+                assertEquals("wal", results.getString(1));
+            }
+            try (ResultSet results = statement.executeQuery("PRAGMA synchronous"))
+            {
+                assertTrue(results.next());
+                assertEquals(1, results.getInt(1));
+            }
+            try (ResultSet results = statement.executeQuery("PRAGMA busy_timeout"))
+            {
+                assertTrue(results.next());
+                assertEquals(5000, results.getInt(1));
+            }
+        }
+
+        // Opening it again changes nothing.
+        this.newDataStore();
+        assertEquals(List.of("4"), this.query("SELECT version FROM griefprevention_schemaversion"));
+        assertEquals(tables, this.query("SELECT name FROM sqlite_master WHERE type = 'table' ORDER BY name"));
+    }
+
+    @Test
+    public void testClaimRoundTrip() throws Exception
+    {
+        DatabaseDataStore dataStore = this.newDataStore();
+        GriefPrevention.instance.dataStore = dataStore;
+        this.recordChanges();
+        UUID ownerID = UUID.randomUUID();
+        String builder = UUID.randomUUID().toString();
+        String accessor = UUID.randomUUID().toString();
+        String manager = UUID.randomUUID().toString();
+        String tenant = UUID.randomUUID().toString();
+
+        // Save.
+        Claim claim = this.newClaim(0, 0, 0, 40, 0, 40, ownerID, 1L, false);
+        claim.setPermission(builder, ClaimPermission.Build);
+        claim.setPermission("public", ClaimPermission.Inventory);
+        claim.setPermission(accessor, ClaimPermission.Access);
+        claim.setPermission(manager, ClaimPermission.Manage);
+        Claim subdivision = this.newClaim(5, 10, 5, 9, 20, 9, null, 2L, true);
+        subdivision.parent = claim;
+        subdivision.setSubclaimRestrictions(true);
+        subdivision.setPermission(tenant, ClaimPermission.Build);
+        dataStore.addClaim(claim, false);
+        dataStore.addClaim(subdivision, false);
+        dataStore.saveClaim(claim);
+        dataStore.saveClaim(subdivision);
+        assertEquals(List.of("insert 1", "grant 1 " + builder + " Build", "grant 1 public Inventory",
+                "grant 1 " + accessor + " Access", "grant 1 " + manager + " Manage",
+                "insert 2", "grant 2 " + tenant + " Build"), this.takeChanges());
+
+        // Reload.
+        List<ClaimJournal.ClaimState> saved = describe(dataStore);
+        assertEquals(2, saved.size());
+        DatabaseDataStore reloaded = this.newDataStore();
+        assertEquals(saved, describe(reloaded));
+
+        // The loaded subdivision can be found by ID and by its trustees, as /trustedin and /untrust do.
+        Claim loadedSubdivision = reloaded.getClaim(2L);
+        assertNotNull(loadedSubdivision);
+        assertSame(reloaded.getClaim(1L), loadedSubdivision.parent);
+        assertEquals(List.of(loadedSubdivision), reloaded.getClaimsTrusting(tenant));
+        assertEquals(List.of(reloaded.getClaim(1L)), reloaded.getClaimsTrusting(builder));
+
+        // Update: the row is updated in place, and only the grants that changed are written.
+        claim.dropPermission(builder);
+        claim.setPermission(tenant, ClaimPermission.Build);
+        claim.setPermission(accessor, ClaimPermission.Inventory);
+        claim.setSubclaimRestrictions(true);
+        dataStore.saveClaim(claim);
+        assertEquals(List.of("revoke 1 " + builder + " Build", "revoke 1 " + accessor + " Access", "update 1",
+                "grant 1 " + tenant + " Build", "grant 1 " + accessor + " Inventory"), this.takeChanges());
+
+        // Saving it again unchanged writes no grants.
+        dataStore.saveClaim(claim);
+        assertEquals(List.of("update 1"), this.takeChanges());
+
+        List<ClaimJournal.ClaimState> updated = describe(dataStore);
+        assertEquals(updated, describe(this.newDataStore()));
+
+        // Delete, along with the subdivision.
+        dataStore.deleteClaim(claim, false, false);
+        assertTrue(this.query("SELECT id FROM griefprevention_claims").isEmpty());
+        assertTrue(this.query("SELECT claimid FROM griefprevention_claim_trust").isEmpty());
+        assertTrue(describe(this.newDataStore()).isEmpty());
+    }
+
+    @Test
+    public void testMigratesSchema3Claims() throws Exception
+    {
+        UUID ownerID = UUID.randomUUID();
+        String builder = UUID.randomUUID().toString();
+        String accessor = UUID.randomUUID().toString();
+        String manager = UUID.randomUUID().toString();
+        String tenant = UUID.randomUUID().toString();
+
+        // Claims as schema 3 stored them, trust as delimited lists.
+        this.execute(
+                "CREATE TABLE griefprevention_nextclaimid (nextid INTEGER)",
+                "INSERT INTO griefprevention_nextclaimid VALUES (4)",
+                "CREATE TABLE griefprevention_schemaversion (version INTEGER)",
+                "INSERT INTO griefprevention_schemaversion VALUES (3)",
+                "CREATE TABLE griefprevention_claimdata (id INTEGER, owner VARCHAR(50), lessercorner VARCHAR(100), greatercorner VARCHAR(100), builders TEXT, containers TEXT, accessors TEXT, managers TEXT, inheritnothing BOOLEAN, parentid INTEGER)",
+                "INSERT INTO griefprevention_claimdata VALUES (1, '" + ownerID + "', 'world;0;0;0', 'world;40;0;40', '" + builder + ";public', '', '" + accessor + "', '" + manager + "', 0, -1)",
+                "INSERT INTO griefprevention_claimdata VALUES (2, '', 'world;5;0;5', 'world;9;0;9', '', '', '" + tenant + "', '', 1, 1)",
+                "INSERT INTO griefprevention_claimdata VALUES (3, '', 'world;100;0;100', 'world;120;0;120', '', 'public', '', '', 0, -1)");
+
+        DatabaseDataStore dataStore = this.newDataStore();
+
+        // The old table is kept as a backup under a new name.
+        assertEquals(List.of("4"), this.query("SELECT version FROM griefprevention_schemaversion"));
+        assertEquals(List.of("griefprevention_claimdata_v3"), this.query("SELECT name FROM sqlite_master WHERE type = 'table' AND name LIKE 'griefprevention_claimdata%'"));
+        assertEquals(List.of("3"), this.query("SELECT COUNT(*) FROM griefprevention_claimdata_v3"));
+
+        assertEquals(List.of(
+                "1 -1 " + ownerID + " world 0 0 0 40 0 40 0 0",
+                "2 1 null world 5 0 5 9 0 9 1 0",
+                "3 -1 null world 100 0 100 120 0 120 0 0"),
+                this.query("SELECT id, parentid, owner, world, lesserx, lessery, lesserz, greaterx, greatery, greaterz, inheritnothing, is3d FROM griefprevention_claims ORDER BY id"));
+        // UUIDs sort before "public".
+        assertEquals(List.of(
+                "1 " + accessor + " Access",
+                "1 " + builder + " Build",
+                "1 public Build",
+                "1 " + manager + " Manage",
+                "2 " + tenant + " Access",
+                "3 public Inventory"),
+                this.query("SELECT claimid, trustee, level FROM griefprevention_claim_trust ORDER BY claimid, level, trustee"));
+
+        // Reloading from the new tables gives back the claims as migrated.
+        List<ClaimJournal.ClaimState> migrated = describe(dataStore);
+        assertEquals(3, migrated.size());
+        assertEquals(dataStore.getClaim(1L), dataStore.getClaim(2L).parent);
+        DatabaseDataStore reloaded = this.newDataStore();
+        assertEquals(migrated, describe(reloaded));
+        assertEquals(reloaded.getClaim(1L), reloaded.getClaim(2L).parent);
+        assertEquals(List.of("3"), this.query("SELECT COUNT(*) FROM griefprevention_claimdata_v3"));
+    }
+
+    @Test
+    public void testSubdivisionsAreLinkedByParentID() throws Exception
+    {
+        this.newDataStore();
+
+        try (Connection connection = this.connect();
+             PreparedStatement claimStmnt = connection.prepareStatement("INSERT INTO griefprevention_claims VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"))
+        {
+            addClaimRow(claimStmnt, 1, -1, UUID.randomUUID().toString(), "world", 0, 0, 0, 40, 0, 40, false, false);
+            addClaimRow(claimStmnt, 2, -1, UUID.randomUUID().toString(), "world", 100, 0, 100, 140, 0, 140, false, false);
+            // The parent comes from the row, not from which claim the subdivision lies in.
+            addClaimRow(claimStmnt, 3, 2, null, "world", 5, 0, 5, 9, 0, 9, false, false);
+            addClaimRow(claimStmnt, 4, 8888, null, "world", 10, 0, 10, 14, 0, 14, false, false);
+            claimStmnt.executeBatch();
+        }
+
+        this.logged.clear();
+        DatabaseDataStore dataStore = this.newDataStore();
+
+        assertSame(dataStore.getClaim(2L), dataStore.getClaim(3L).parent);
+        assertEquals(List.of(dataStore.getClaim(3L)), dataStore.getClaim(2L).children);
+        assertTrue(dataStore.getClaim(1L).children.isEmpty());
+
+        // A subdivision whose parent is gone is removed.
+        assertNull(dataStore.getClaim(4L));
+        assertEquals(List.of("1", "2", "3"), this.query("SELECT id FROM griefprevention_claims ORDER BY id"));
+        assertEquals(1, this.logged.size(), this.logged.toString());
+        assertTrue(this.logged.get(0).startsWith("Removing orphaned claim subdivision: "), this.logged.get(0));
+    }
+
+    @Test
+    public void testPlayerRowsAreUpsertedByName() throws Exception
+    {
+        UUID playerID = UUID.randomUUID();
+
+        // Player names weren't unique before, so one may have been saved twice.
+        this.execute(
+                "CREATE TABLE griefprevention_nextclaimid (nextid INTEGER)",
+                "INSERT INTO griefprevention_nextclaimid VALUES (0)",
+                "CREATE TABLE griefprevention_schemaversion (version INTEGER)",
+                "INSERT INTO griefprevention_schemaversion VALUES (4)",
+                "CREATE TABLE griefprevention_playerdata (name VARCHAR(50), lastlogin DATETIME, accruedblocks INTEGER, bonusblocks INTEGER)",
+                "CREATE INDEX griefprevention_playerdata_name ON griefprevention_playerdata (name)",
+                "INSERT INTO griefprevention_playerdata VALUES ('" + playerID + "', '2024-02-01 00:00:00', 200, 5)",
+                "INSERT INTO griefprevention_playerdata VALUES ('" + playerID + "', '2024-01-01 00:00:00', 100, 0)");
+
+        DatabaseDataStore dataStore = this.newDataStore();
+
+        // The most recently seen copy is kept, and the plain index is replaced by a unique one.
+        assertEquals(List.of(playerID + " 2024-02-01 00:00:00 200 5"),
+                this.query("SELECT name, lastlogin, accruedblocks, bonusblocks FROM griefprevention_playerdata"));
+        assertEquals(List.of("griefprevention_playerdata_unique_name"),
+                this.query("SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = 'griefprevention_playerdata'"));
+
+        this.execute(
+                "CREATE TABLE changes (change TEXT)",
+                "CREATE TRIGGER player_insert AFTER INSERT ON griefprevention_playerdata BEGIN INSERT INTO changes VALUES ('insert ' || NEW.name); END",
+                "CREATE TRIGGER player_update AFTER UPDATE ON griefprevention_playerdata BEGIN INSERT INTO changes VALUES ('update ' || NEW.name); END",
+                "CREATE TRIGGER player_delete AFTER DELETE ON griefprevention_playerdata BEGIN INSERT INTO changes VALUES ('delete ' || OLD.name); END");
+
+        PlayerData playerData = new PlayerData();
+        playerData.playerID = playerID;
+        playerData.setAccruedClaimBlocks(300);
+        playerData.setBonusClaimBlocks(10);
+        dataStore.overrideSavePlayerData(playerID, playerData);
+        assertEquals(List.of("update " + playerID), this.takeChanges());
+        assertEquals(List.of("300 10"), this.query("SELECT accruedblocks, bonusblocks FROM griefprevention_playerdata WHERE name = '" + playerID + "'"));
+
+        dataStore.saveGroupBonusBlocks("vip", 50);
+        dataStore.saveGroupBonusBlocks("vip", 75);
+        assertEquals(List.of("insert $vip", "update $vip"), this.takeChanges());
+        assertEquals(List.of("75"), this.query("SELECT bonusblocks FROM griefprevention_playerdata WHERE name = '$vip'"));
+        assertEquals(75, this.newDataStore().permissionToBonusBlocksMap.get("vip"));
+    }
+
+    @Test
+    public void testParallelLoadMatchesSequentialLoad() throws Exception
+    {
+        this.newDataStore();
+
+        // More rows than are built per task, subdivisions after all of their parents.
+        try (Connection connection = this.connect();
+             PreparedStatement claimStmnt = connection.prepareStatement("INSERT INTO griefprevention_claims VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement trustStmnt = connection.prepareStatement("INSERT INTO griefprevention_claim_trust VALUES (?, ?, ?)"))
+        {
+            connection.setAutoCommit(false);
+            for (int i = 1; i <= 2000; i++)
+            {
+                addClaimRow(claimStmnt, i, -1, i % 5 == 0 ? null : UUID.randomUUID().toString(), "world", i * 100, 0, 0, i * 100 + 50, 0, 50, false, false);
+                addTrustRow(trustStmnt, i, UUID.randomUUID().toString(), "Build");
+                if (i % 2 == 0) addTrustRow(trustStmnt, i, "public", "Inventory");
+            }
+            for (int i = 1; i <= 1500; i++)
+            {
+                addClaimRow(claimStmnt, 3000 + i, i, null, "world", i * 100 + 5, 10, 5, i * 100 + 9, 20, 9, true, i % 2 == 0);
+                addTrustRow(trustStmnt, 3000 + i, UUID.randomUUID().toString(), "Access");
+            }
+
+            // Rows that can't be loaded as they are are logged.
+            addTrustRow(trustStmnt, 1, "public", "Bogus");
+            addClaimRow(claimStmnt, 9001, -1, null, "world_the_end", -500, 0, -500, -490, 0, -490, false, false);
+            addClaimRow(claimStmnt, 9002, -1, "not-a-uuid", "world", -1000, 0, -1000, -990, 0, -990, false, false);
+
+            claimStmnt.executeBatch();
+            trustStmnt.executeBatch();
+            connection.commit();
+        }
+
+        GriefPrevention.instance.config_advanced_claimLoadThreads = 1;
+        this.logged.clear();
+        DatabaseDataStore sequential = this.newDataStore();
+        List<String> sequentialLog = new ArrayList<>(this.logged);
+
+        GriefPrevention.instance.config_advanced_claimLoadThreads = 4;
+        this.logged.clear();
+        DatabaseDataStore parallel = this.newDataStore();
+        List<String> parallelLog = new ArrayList<>(this.logged);
+
+        List<ClaimJournal.ClaimState> expected = describe(sequential);
+        assertEquals(3501, expected.size());
+        assertEquals(expected, describe(parallel));
+        for (int i = 1; i <= 1500; i++)
+        {
+            assertEquals(parallel.getClaim((long) i), parallel.getClaim(3000L + i).parent);
+        }
+
+        assertNull(parallel.getClaim(9001L));
+        assertNull(parallel.getClaim(9002L).ownerID);
+        assertEquals(3, parallelLog.size(), parallelLog.toString());
+        assertEquals(sequentialLog, parallelLog);
+        assertTrue(parallelLog.get(0).startsWith("Ignoring unknown trust level Bogus in claim 1."), parallelLog.get(0));
+        assertTrue(parallelLog.get(1).contains("(ID:9001)"), parallelLog.get(1));
+        assertTrue(parallelLog.get(2).startsWith("This owner entry is not a UUID: not-a-uuid."), parallelLog.get(2));
+    }
+
+    private static void addClaimRow(PreparedStatement claimStmnt, long id, long parentId, String owner, String world,
+                                    int lesserX, int lesserY, int lesserZ, int greaterX, int greaterY, int greaterZ, boolean inheritNothing, boolean is3D) throws SQLException
+    {
+        claimStmnt.setLong(1, id);
+        claimStmnt.setLong(2, parentId);
+        claimStmnt.setString(3, owner);
+        claimStmnt.setString(4, world);
+        claimStmnt.setInt(5, lesserX);
+        claimStmnt.setInt(6, lesserY);
+        claimStmnt.setInt(7, lesserZ);
+        claimStmnt.setInt(8, greaterX);
+        claimStmnt.setInt(9, greaterY);
+        claimStmnt.setInt(10, greaterZ);
+        claimStmnt.setBoolean(11, inheritNothing);
+        claimStmnt.setBoolean(12, is3D);
+        claimStmnt.addBatch();
+    }
+
+    private static void addTrustRow(PreparedStatement trustStmnt, long claimID, String trustee, String level) throws SQLException
+    {
+        trustStmnt.setLong(1, claimID);
+        trustStmnt.setString(2, trustee);
+        trustStmnt.setString(3, level);
+        trustStmnt.addBatch();
+    }
+}
@@ -0,0 +1,169 @@
+package me.ryanhamshire.GriefPrevention;
+
+import com.griefprevention.test.ServerMocks;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class FlatFileDataStoreTest
+{
+    private final List<String> logged = Collections.synchronizedList(new ArrayList<>());
+    private GriefPrevention previousInstance;
+    private World world;
+
+    @BeforeEach
+    void setUp()
+    {
+        this.previousInstance = GriefPrevention.instance;
+        GriefPrevention plugin = mock(GriefPrevention.class);
+        plugin.config_claims_worldModes = new ConcurrentHashMap<>();
+        GriefPrevention.instance = plugin;
+
+        this.world = mock(World.class);
+        when(this.world.getName()).thenReturn("world");
+        when(this.world.getUID()).thenReturn(UUID.randomUUID());
+        when(this.world.getMinHeight()).thenReturn(-64);
+        when(this.world.getMaxHeight()).thenReturn(320);
+
+        Server server = ServerMocks.newServer();
+        when(server.getWorlds()).thenReturn(List.of(this.world));
+        // Only the first line, stack traces differ between threads.
+        doAnswer(invocation -> this.logged.add(invocation.<String>getArgument(0).lines().findFirst().orElse("")))
+                .when(server.getLogger()).info(anyString());
+        Bukkit.setServer(server);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        ServerMocks.unsetBukkitServer();
+        GriefPrevention.instance = this.previousInstance;
+    }
+
+    private static FlatFileDataStore newDataStore()
+    {
+        // Skip initialize(), which would load everything from the plugin's data folder.
+        return mock(FlatFileDataStore.class, withSettings().useConstructor().defaultAnswer(invocation ->
+                invocation.getMethod().getName().equals("initialize") ? null : invocation.callRealMethod()));
+    }
+
+    private static List<ClaimJournal.ClaimState> describe(DataStore dataStore)
+    {
+        List<ClaimJournal.ClaimState> states = new ArrayList<>();
+        for (Claim claim : dataStore.claims)
+        {
+            states.add(ClaimJournal.ClaimState.of(claim));
+            for (Claim child : claim.children)
+            {
+                states.add(ClaimJournal.ClaimState.of(child));
+            }
+        }
+        return states;
+    }
+
+    private File[] writeClaimFiles(Path folder) throws IOException
+    {
+        FlatFileDataStore writer = newDataStore();
+        List<File> files = new ArrayList<>();
+
+        // Subdivisions come first, so each has to wait for its parent.
+        List<Claim> parents = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+        {
+            parents.add(new Claim(new Location(this.world, i * 100, 0, 0), new Location(this.world, i * 100 + 50, 0, 50),
+                    i % 5 == 0 ? null : UUID.randomUUID(), List.of(UUID.randomUUID().toString()), List.of("public"),
+                    List.of(), List.of(), false, 1L + i, false));
+        }
+        for (int i = 0; i < 40; i++)
+        {
+            Claim child = new Claim(new Location(this.world, i * 100 + 5, 10, 5), new Location(this.world, i * 100 + 9, 20, 9),
+                    null, List.of(), List.of(), List.of(UUID.randomUUID().toString()), List.of(), true, 100L + i, i % 2 == 0);
+            child.parent = parents.get(i);
+            files.add(writeClaimFile(folder, child.id, writer.getYamlForClaim(child)));
+        }
+        for (Claim parent : parents)
+        {
+            files.add(writeClaimFile(folder, parent.id, writer.getYamlForClaim(parent)));
+        }
+
+        // A subdivision whose parent is gone is dropped.
+        Claim orphan = new Claim(new Location(this.world, -500, 0, -500), new Location(this.world, -490, 0, -490),
+                null, List.of(), List.of(), List.of(), List.of(), false, 200L, false);
+        orphan.parent = new Claim(new Location(this.world, -600, 0, -600), new Location(this.world, -400, 0, -400),
+                null, List.of(), List.of(), List.of(), List.of(), false, 999L, false);
+        files.add(writeClaimFile(folder, orphan.id, writer.getYamlForClaim(orphan)));
+
+        // Files that can't be loaded are logged and skipped.
+        files.add(writeClaimFile(folder, 201L, "Lesser Boundary Corner: [unclosed"));
+        files.add(writeClaimFile(folder, 202L, writer.getYamlForClaim(parents.get(0)).replace("world;", "world_the_end;")));
+
+        return files.toArray(new File[0]);
+    }
+
+    private static File writeClaimFile(Path folder, long id, String yaml) throws IOException
+    {
+        Path path = folder.resolve(id + ".yml");
+        Files.writeString(path, yaml, StandardCharsets.UTF_8);
+        return path.toFile();
+    }
+
+    private List<String> load(FlatFileDataStore dataStore, File[] files, int threads) throws Exception
+    {
+        GriefPrevention.instance.config_advanced_claimLoadThreads = threads;
+        this.logged.clear();
+        dataStore.loadClaimData(files.clone());
+        return new ArrayList<>(this.logged);
+    }
+
+    @Test
+    public void testParallelLoadMatchesSequentialLoad(@TempDir Path folder) throws Exception
+    {
+        File[] files = writeClaimFiles(folder);
+
+        FlatFileDataStore sequential = newDataStore();
+        List<String> sequentialLog = load(sequential, files, 1);
+        FlatFileDataStore parallel = newDataStore();
+        List<String> parallelLog = load(parallel, files, 4);
+
+        List<ClaimJournal.ClaimState> expected = describe(sequential);
+        assertEquals(80, expected.size());
+        assertEquals(expected, describe(parallel));
+        for (int i = 0; i < 40; i++)
+        {
+            assertEquals(parallel.getClaim(1L + i), parallel.getClaim(100L + i).parent);
+        }
+
+        assertNull(parallel.getClaim(200L));
+        assertNull(parallel.getClaim(201L));
+        assertNull(parallel.getClaim(202L));
+        assertEquals(2, parallelLog.size(), parallelLog.toString());
+        assertEquals(sequentialLog, parallelLog);
+        assertTrue(parallelLog.get(0).startsWith("201.yml "), parallelLog.get(0));
+        assertTrue(parallelLog.get(1).contains("(ID:202)"), parallelLog.get(1));
+    }
+}
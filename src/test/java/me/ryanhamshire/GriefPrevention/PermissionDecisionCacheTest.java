@@ -0,0 +1,46 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class PermissionDecisionCacheTest
+{
+    @Test
+    public void testDecisionsArePerPermission()
+    {
+        PermissionDecisionCache cache = new PermissionDecisionCache();
+        UUID uuid = UUID.randomUUID();
+        long epoch = PermissionDecisionCache.currentEpoch();
+
+        cache.put(uuid, ClaimPermission.Build, true, epoch);
+        cache.put(uuid, ClaimPermission.Manage, false, epoch);
+
+        assertEquals(Boolean.TRUE, cache.get(uuid, ClaimPermission.Build));
+        assertEquals(Boolean.FALSE, cache.get(uuid, ClaimPermission.Manage));
+        assertNull(cache.get(uuid, ClaimPermission.Access));
+        assertNull(cache.get(UUID.randomUUID(), ClaimPermission.Build));
+    }
+
+    @Test
+    public void testInvalidation()
+    {
+        PermissionDecisionCache cache = new PermissionDecisionCache();
+        UUID uuid = UUID.randomUUID();
+        long staleEpoch = PermissionDecisionCache.currentEpoch();
+        cache.put(uuid, ClaimPermission.Build, true, staleEpoch);
+
+        PermissionDecisionCache.invalidateAll();
+        assertNull(cache.get(uuid, ClaimPermission.Build));
+
+        // A decision computed before the invalidation must not be served afterwards.
+        cache.put(uuid, ClaimPermission.Build, true, staleEpoch);
+        assertNull(cache.get(uuid, ClaimPermission.Build));
+
+        cache.put(uuid, ClaimPermission.Build, false, PermissionDecisionCache.currentEpoch());
+        assertEquals(Boolean.FALSE, cache.get(uuid, ClaimPermission.Build));
+    }
+}
@@ -0,0 +1,30 @@
+package me.ryanhamshire.GriefPrevention;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class SqlDialectTest
+{
+    @Test
+    public void testDialectFromUrl()
+    {
+        assertEquals(SqlDialect.MYSQL, SqlDialect.of("jdbc:mysql://localhost:3306/minecraft"));
+        assertEquals(SqlDialect.MYSQL, SqlDialect.of("jdbc:mariadb://localhost/minecraft"));
+        assertEquals(SqlDialect.POSTGRESQL, SqlDialect.of("jdbc:postgresql://localhost/minecraft"));
+        assertEquals(SqlDialect.SQLITE, SqlDialect.of("jdbc:sqlite:plugins/GriefPreventionData/data.db"));
+        assertEquals(SqlDialect.OTHER, SqlDialect.of("jdbc:h2:mem:test"));
+    }
+
+    @Test
+    public void testUpsert()
+    {
+        assertEquals("INSERT INTO t (id, a, b) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE a = VALUES(a), b = VALUES(b)",
+                SqlDialect.MYSQL.upsert("t", "id", "id", "a", "b"));
+        assertEquals("INSERT INTO t (id, a, b) VALUES (?, ?, ?) ON CONFLICT (id) DO UPDATE SET a = excluded.a, b = excluded.b",
+                SqlDialect.POSTGRESQL.upsert("t", "id", "id", "a", "b"));
+        assertEquals(SqlDialect.POSTGRESQL.upsert("t", "id", "id", "a"), SqlDialect.SQLITE.upsert("t", "id", "id", "a"));
+        assertNull(SqlDialect.OTHER.upsert("t", "id", "id", "a"));
+    }
+}